@@ -29,12 +29,30 @@ public class Config {
 
 	//OUTPUTS
 	public static final String OUTPUT_FOLDER = "output_folder";
+	public static final String RESULT_SINK = "result_sink";
 	public static final String DB_NAME = "db_name";
+	public static final String DB_SYNCHRONOUS = "db_synchronous";
+	public static final String DB_CACHE_SIZE = "db_cache_size";
+	public static final String DB_FLUSH_INTERVAL = "db_flush_interval";
+	public static final String DB_WRITER = "db_writer";
+	public static final String DB_WRITER_QUEUE_SIZE = "db_writer_queue_size";
+	public static final String DB_FINALIZE = "db_finalize";
+	public static final String DENIED_RIDES_LOG_LEVEL = "denied_rides_log_level";
+	public static final String ENERGY_LOG_LEVEL = "energy_log_level";
+	public static final String LOAD_CURVE_BUCKET_SIZE = "load_curve_bucket_size";
+	public static final String LOAD_CURVE_HORIZON = "load_curve_horizon";
+	public static final String TRACKPOINT_POLICY = "trackpoint_policy";
+	public static final String TRACKPOINT_NTH = "trackpoint_nth";
+	public static final String TRACKPOINT_MIN_INTERVAL = "trackpoint_min_interval";
+	public static final String TRACKPOINT_MIN_DISTANCE = "trackpoint_min_distance";
 
 	// CHARGINGPOINT
 	public static final String CHARGINGPOINT_UPDATE_INTERVAL = "chargingpoint_update_interval";
 	public static final String CHARGINGPOINT_CHARGING_CURVE_DELTA_T = "chargingpoint_charging_curve_delta_t";
 
+	// FACILITIES
+	public static final String FACILITY_GRID_CELL_SIZE = "facility_grid_cell_size";
+
 	// CONNECTOR 
 	public static final String CONNECTOR_PLUG_IN_TIME = "connector_plug_in_time";
 
@@ -56,6 +74,14 @@ public class Config {
 	public static final String BEVTAXI_MIN_TIME_CHARGING = "bevtaxi_min_time_charging";
 	public static final String BEVTAXI_MAX_DISTANCE_BEST_CONNECTOR = "bevtaxi_max_distance_best_connector";
 
+	// DISPATCHING
+	public static final String DISPATCH_MODE = "dispatch_mode";
+	public static final String DISPATCH_BATCH_WINDOW = "dispatch_batch_window";
+	public static final String DISPATCH_BATCH_CANDIDATES = "dispatch_batch_candidates";
+
+	// RANDOM
+	public static final String RANDOM_SEED = "random_seed";
+
 	public static final String DEBUGMODE = "debugMode";
 
 
@@ -3,16 +3,28 @@ package de.tum.mw.ftm.deefs;
 import de.tum.mw.ftm.deefs.demand.DemandList;
 import de.tum.mw.ftm.deefs.elements.TaxiAgency;
 import de.tum.mw.ftm.deefs.elements.TaxiController;
+import de.tum.mw.ftm.deefs.elements.facilitiies.ChargingStation;
+import de.tum.mw.ftm.deefs.elements.facilitiies.Facility;
 import de.tum.mw.ftm.deefs.elements.facilitiies.FacilityFactory;
 import de.tum.mw.ftm.deefs.elements.facilitiies.FacilityList;
+import de.tum.mw.ftm.deefs.elements.taxi.Taxi;
 import de.tum.mw.ftm.deefs.elements.taxi.TaxiFactory;
 import de.tum.mw.ftm.deefs.events.*;
+import de.tum.mw.ftm.deefs.log.EnergyAccounting;
+import de.tum.mw.ftm.deefs.log.KpiAccounting;
+import de.tum.mw.ftm.deefs.log.NullSink;
+import de.tum.mw.ftm.deefs.log.RejectionAccounting;
+import de.tum.mw.ftm.deefs.log.ResultSink;
+import de.tum.mw.ftm.deefs.log.TrackpointPolicy;
+import de.tum.mw.ftm.deefs.log.columnar.ColumnarSink;
 import de.tum.mw.ftm.deefs.log.sqlite.DBLog;
 import de.tum.mw.ftm.deefs.utils.ProgressBar;
+import de.tum.mw.ftm.deefs.utils.RandomNumber;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.SplittableRandom;
 
 
 /**
@@ -25,19 +37,32 @@ public class Scenario {
 
 	private final PriorityQueue<Event> taskList;         // Event Queue. Events will be ordered by their natural Order
 	private final List<Event> deniedEvents;             // Stores denied events, for further usage
-	private final DBLog dbLog;                         // DBlogger to write simulation results to DB.
+	private final ResultSink resultSink;               // destination of all simulation results (DB by default)
+	private final RejectionAccounting rejectionAccounting; // collects the reasons customer requests are declined
+	private final EnergyAccounting energyAccounting;       // collects the energy charged at charging points
+	private final TrackpointPolicy trackpointPolicy;       // decides which trackpoints are written
+	private final KpiAccounting kpiAccounting;             // computes the key performance indicators during the simulation
+	private final RandomNumber random;                 // root random stream, subsystems get their own split streams
 	private TaxiController controller;             // TaxiController controls the count of active Taxis during Simulation
 	private TaxiAgency agency;                     // TaxiAgency holds the fleet, and manages dispatching process
 	private FacilityList facilities;             // FacilityList hodls all facilities for the simulation (TaxiRanks, and ChargingStations)
 	private ProgressBar progressBar;
+	private long time = 0;                         // scheduled time of the event being handled in ms
 
 
 	public Scenario() {
 
 		// initializing basic elements
-		dbLog = new DBLog();
+		resultSink = createResultSink();
+		rejectionAccounting = new RejectionAccounting(resultSink);
+		energyAccounting = new EnergyAccounting(resultSink);
+		trackpointPolicy = new TrackpointPolicy();
+		kpiAccounting = new KpiAccounting(resultSink);
 		taskList = new PriorityQueue<>();
 		deniedEvents = new ArrayList<>();
+		String seed = Config.getProperty(Config.RANDOM_SEED);
+		random = new RandomNumber(seed != null ? Long.parseLong(seed.trim()) : new SplittableRandom().nextLong());
+		System.out.println("Random seed: " + random.getSeed());
 	}
 
 	/**
@@ -69,6 +94,16 @@ public class Scenario {
 	}
 
 
+	/**
+	 * Returns the Instance of TaxiController
+	 *
+	 * @return
+	 */
+	public TaxiController getController() {
+		return this.controller;
+	}
+
+
 	/**
 	 * Returns a List with all Facilities available in the Scenario
 	 *
@@ -80,12 +115,85 @@ public class Scenario {
 
 
 	/**
-	 * Returns the instance of DBLog
+	 * Returns the ResultSink all simulation results are written to
+	 *
+	 * @return result sink of this scenario
+	 */
+	public ResultSink getResultSink() {
+		return this.resultSink;
+	}
+
+	/**
+	 * Creates the ResultSink selected by the config key result_sink (SQLITE, COLUMNAR or NULL)
+	 *
+	 * @return new result sink
+	 */
+	private static ResultSink createResultSink() {
+		String sink = Config.getProperty(Config.RESULT_SINK, "SQLITE").trim();
+		if (sink.equalsIgnoreCase("SQLITE")) {
+			return new DBLog();
+		} else if (sink.equalsIgnoreCase("COLUMNAR")) {
+			return new ColumnarSink();
+		} else if (sink.equalsIgnoreCase("NULL")) {
+			return new NullSink();
+		}
+		throw new RuntimeException("Unknown result sink: " + sink);
+	}
+
+
+	/**
+	 * Returns the root random stream of this scenario. Subsystems should split their own stream from it during initialization.
+	 *
+	 * @return root random stream
+	 * @see RandomNumber#split()
+	 */
+	public RandomNumber getRandom() {
+		return this.random;
+	}
+
+	/**
+	 * Returns the instance of RejectionAccounting
 	 *
 	 * @return
 	 */
-	public DBLog getDBLog() {
-		return this.dbLog;
+	public RejectionAccounting getRejectionAccounting() {
+		return this.rejectionAccounting;
+	}
+
+	/**
+	 * Returns the instance of EnergyAccounting
+	 *
+	 * @return energy accounting of this scenario
+	 */
+	public EnergyAccounting getEnergyAccounting() {
+		return this.energyAccounting;
+	}
+
+	/**
+	 * Returns the instance of KpiAccounting
+	 *
+	 * @return KPI accounting of this scenario
+	 */
+	public KpiAccounting getKpiAccounting() {
+		return this.kpiAccounting;
+	}
+
+	/**
+	 * Returns the TrackpointPolicy shared by all vehicles
+	 *
+	 * @return trackpoint policy of this scenario
+	 */
+	public TrackpointPolicy getTrackpointPolicy() {
+		return this.trackpointPolicy;
+	}
+
+	/**
+	 * Returns the actual simulation time, which is the scheduled time of the event being handled.
+	 *
+	 * @return simulation time in ms
+	 */
+	public long getTime() {
+		return this.time;
 	}
 
 
@@ -124,22 +232,35 @@ public class Scenario {
 	public void run() {
 
 		// write initial informations to resultsDB
-		dbLog.addFacilities(facilities.getFacilities());
-		dbLog.addFleet(agency.getFleet());
+		resultSink.addFacilities(facilities.getFacilities());
+		resultSink.addFleet(agency.getFleet());
+		for (Facility f : facilities.getChargingStations()) {
+			if (f instanceof ChargingStation) energyAccounting.addStation((ChargingStation) f);
+		}
 
 		System.out.println("Number of Events: " + taskList.size());
 
 		// Initialize Progessbar with number of initial events
 		progressBar = new ProgressBar((int) taskList.stream().filter(c -> c instanceof DemandEvent).count());
 
-		// start handling tasks
-		handleTasks();
+		try {
+			// start handling tasks
+			handleTasks();
 
-		// display unserved events in console
-		System.out.println("Unserved Events:" + deniedEvents.size());
+			// display unserved events in console
+			System.out.println("Unserved Events:" + deniedEvents.size());
 
-		// finally flush Log
-		dbLog.flush();
+			// finally flush Log, the charge of connected cars first, as it adds trackpoints
+			energyAccounting.flush(time);
+			for (Taxi taxi : agency.getFleet()) {
+				taxi.flushTrackpoints();
+			}
+			rejectionAccounting.flush();
+			kpiAccounting.flush(time, agency.getFleet());
+		} finally {
+			// write all pending results, also if the simulation failed, so they can be used for diagnosis
+			resultSink.close();
+		}
 	}
 
 
@@ -151,15 +272,21 @@ public class Scenario {
 		// work until tasklist is empty
 		while (!taskList.isEmpty()) {
 			Event e = taskList.poll();
+			time = e.getScheduledTime();
+			kpiAccounting.advance(time, agency.getFleet());
 			if (e instanceof CarLocationUpdateEvent) {
 				((CarLocationUpdateEvent) e).updateCar();
 			} else if (e instanceof UpdateChargeEvent) {
 				((UpdateChargeEvent) e).updateSOC();
 			} else if (e instanceof DemandEvent) {
-				if (!agency.tryToPlaceCustomerRequest((DemandEvent) e)) {
+				if (agency.isBatchDispatch()) {
+					agency.bufferCustomerRequest((DemandEvent) e);
+				} else if (!agency.tryToPlaceCustomerRequest((DemandEvent) e)) {
 					deniedEvents.add(e);
 				}
 				progressBar.incrementProgress();
+			} else if (e instanceof DispatchBatchEvent) {
+				deniedEvents.addAll(agency.dispatchBufferedRequests(e.getScheduledTime()));
 			} else if (e instanceof FullChargedEvent) {
 				((FullChargedEvent) e).disconnect();
 			} else if (e instanceof TaxiControlNewTargetCountEvent) {
@@ -30,7 +30,7 @@ public class BestChargingPointComparator implements Comparator<ChargingPoint> {
 
 	@Override
 	public int compare(ChargingPoint o1, ChargingPoint o2) {
-		return Float.compare(o1.getBestConnector(ci).getPMax(), o2.getBestConnector(ci).getPMax());
+		return Float.compare(o1.getChargingInterface().getBestPower(ci), o2.getChargingInterface().getBestPower(ci));
 	}
 
 
@@ -0,0 +1,138 @@
+package de.tum.mw.ftm.deefs.comparators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Ranking engine which replaces comparator chains in selection processes.
+ * <p> Every candidate is added once together with its composite score key. All key components are evaluated exactly once per candidate,
+ * instead of once per comparison as within {@link java.util.Collections#min(java.util.Collection, Comparator)} or {@link List#sort(Comparator)}.
+ * Keys are stored in a flat primitive array and compared lexicographically component by component with {@link Double#compare(double, double)}.
+ * A component can be reversed, which corresponds to a reversed comparator in a comparator chain.
+ * <p> Candidates with equal keys keep the order they were added, like {@link java.util.Collections#min(java.util.Collection, Comparator)} and the stable {@link List#sort(Comparator)}.
+ *
+ * @param <T> type of the ranked candidates
+ */
+public class ScoreKeyRanking<T> {
+
+	private final boolean[] reversed;        // reversed flag of each key component
+	private final int components;            // number of key components
+	private final List<T> candidates;
+	private double[] keys;                   // flat key array [candidate * components + component]
+
+
+	/**
+	 * New ranking instance
+	 *
+	 * @param reversed one flag per key component, <b>true</b> if higher values shall be ranked first
+	 */
+	public ScoreKeyRanking(boolean... reversed) {
+		this.reversed = reversed;
+		this.components = reversed.length;
+		this.candidates = new ArrayList<>();
+		this.keys = new double[Math.max(components * 16, 1)];
+	}
+
+	/**
+	 * Adds a candidate with its score key to the ranking.
+	 *
+	 * @param candidate candidate to be ranked
+	 * @param key       score key, one value per component
+	 */
+	public void add(T candidate, double... key) {
+		if (key.length != components) {
+			throw new RuntimeException(String.format("Score key has %d components, %d expected", key.length, components));
+		}
+		int offset = candidates.size() * components;
+		if (offset + components > keys.length) {
+			keys = Arrays.copyOf(keys, Math.max(keys.length * 2, offset + components));
+		}
+		System.arraycopy(key, 0, keys, offset, components);
+		candidates.add(candidate);
+	}
+
+	/**
+	 * @return number of ranked candidates
+	 */
+	public int size() {
+		return candidates.size();
+	}
+
+	/**
+	 * @return <b>true</b> if no candidate was added
+	 */
+	public boolean isEmpty() {
+		return candidates.isEmpty();
+	}
+
+	/**
+	 * Returns the best ranked candidate. If there are several candidates with the same key, the first added one is returned.
+	 *
+	 * @return best ranked candidate or <b>null</b> if the ranking is empty
+	 */
+	public T min() {
+		int best = -1;
+		for (int i = 0; i < candidates.size(); i++) {
+			if (best < 0 || compare(i, best) < 0) {
+				best = i;
+			}
+		}
+		return best < 0 ? null : candidates.get(best);
+	}
+
+	/**
+	 * Returns the k best ranked candidates in ranking order.
+	 *
+	 * @param k max. number of returned candidates
+	 * @return list with the min(k, size) best candidates
+	 */
+	public List<T> top(int k) {
+		Integer[] order = order();
+		int n = Math.min(k, order.length);
+		List<T> result = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			result.add(candidates.get(order[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * @return all candidates in ranking order
+	 */
+	public List<T> sorted() {
+		return top(candidates.size());
+	}
+
+	/**
+	 * @return candidate indexes in ranking order (stable)
+	 */
+	private Integer[] order() {
+		Integer[] order = new Integer[candidates.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, this::compare);
+		return order;
+	}
+
+	/**
+	 * Compares the score keys of two candidates
+	 *
+	 * @param a index of first candidate
+	 * @param b index of second candidate
+	 * @return comparison result, see {@link Comparator#compare(Object, Object)}
+	 */
+	private int compare(int a, int b) {
+		int offsetA = a * components;
+		int offsetB = b * components;
+		for (int c = 0; c < components; c++) {
+			int result = Double.compare(keys[offsetA + c], keys[offsetB + c]);
+			if (result != 0) {
+				return reversed[c] ? -result : result;
+			}
+		}
+		return 0;
+	}
+}
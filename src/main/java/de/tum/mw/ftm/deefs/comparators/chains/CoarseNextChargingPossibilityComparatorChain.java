@@ -8,6 +8,7 @@ import org.apache.commons.collections.comparators.ComparatorChain;
  * Comparator Chain to determine the next chosen charging possibility.
  * <br> 1-Step sorting process:
  * <p> 1. coarse distance {@link FacilityCoarseDistanceComparator}.
+ * <p> Selections use the spatial index of {@link de.tum.mw.ftm.deefs.elements.facilitiies.FacilityList}, which returns the same closest candidate.
  *
  * @author Michael Wittmann
  */
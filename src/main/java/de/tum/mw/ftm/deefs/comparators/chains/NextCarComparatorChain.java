@@ -2,27 +2,51 @@ package de.tum.mw.ftm.deefs.comparators.chains;
 
 
 import de.tum.mw.ftm.deefs.comparators.DistanceComparator;
+import de.tum.mw.ftm.deefs.comparators.ScoreKeyRanking;
 import de.tum.mw.ftm.deefs.comparators.TaxiAtChargingStationComparator;
 import de.tum.mw.ftm.deefs.comparators.TaxiAtRankComparator;
+import de.tum.mw.ftm.deefs.elements.facilitiies.ChargingStation;
+import de.tum.mw.ftm.deefs.elements.facilitiies.Facility;
+import de.tum.mw.ftm.deefs.elements.facilitiies.TaxiRank;
+import de.tum.mw.ftm.deefs.elements.taxi.BEVTaxi;
+import de.tum.mw.ftm.deefs.elements.taxi.Taxi;
 import de.tum.mw.ftm.deefs.location.Position;
-import org.apache.commons.collections.comparators.ComparatorChain;
+
+import java.util.Collection;
 
 /**
- * Comparator Chain to determine the next car selected for dispatching process.
+ * Selection rules to determine the next car selected for dispatching process.
  * <br> 3-Step sorting process:
- * <p> 1. Coarse distance {@link DistanceComparator}.
- * <p> 2. Position at rank queue {@link TaxiAtRankComparator}.
- * <p> 3. SOC level if at charging station {@link TaxiAtChargingStationComparator}.
+ * <p> 1. Coarse distance, same order as {@link DistanceComparator}.
+ * <p> 2. Position at rank queue, same order as {@link TaxiAtRankComparator}.
+ * <p> 3. SOC level if at charging station, reversed order of {@link TaxiAtChargingStationComparator}.
+ * <p> The rules are evaluated by {@link #rank(Collection, Position)}, the former comparator chain was dropped.
  *
  * @author Michael Wittmann
  */
-@SuppressWarnings("serial")
-public class NextCarComparatorChain extends ComparatorChain {
+public class NextCarComparatorChain {
+
+	private NextCarComparatorChain() {
+	}
 
-	public NextCarComparatorChain(Position pos) {
-		super();
-		this.addComparator(new DistanceComparator(pos));
-		this.addComparator(new TaxiAtRankComparator());
-		this.addComparator(new TaxiAtChargingStationComparator(), true);
+	/**
+	 * Ranks the given cars by the selection rules of this class. The score key of each car is evaluated once:
+	 * (distance, queue ticket if waiting at a rank, reversed SOC if connected to a charging station).
+	 * Queue tickets have the same order as queue positions, see {@link TaxiRank#getQueueTicket(Taxi)}.
+	 * The last two components only decide between cars with equal distance, i.e. cars waiting at the same facility.
+	 *
+	 * @param cars candidates
+	 * @param pos  reference position
+	 * @return ranking of the given cars
+	 */
+	public static ScoreKeyRanking<Taxi> rank(Collection<? extends Taxi> cars, Position pos) {
+		ScoreKeyRanking<Taxi> ranking = new ScoreKeyRanking<>(false, false, true);
+		for (Taxi car : cars) {
+			Facility facility = car.connectedToFacility();
+			double queuePosition = facility instanceof TaxiRank ? ((TaxiRank) facility).getQueueTicket(car) : 0;
+			double soc = facility instanceof ChargingStation ? ((BEVTaxi) car).getSOC() : 0;
+			ranking.add(car, car.getPosition().calcDist(pos), queuePosition, soc);
+		}
+		return ranking;
 	}
 }
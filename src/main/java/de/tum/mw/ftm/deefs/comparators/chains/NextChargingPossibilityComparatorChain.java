@@ -1,31 +1,54 @@
 package de.tum.mw.ftm.deefs.comparators.chains;
 
+import com.graphhopper.GHRequest;
 import de.tum.mw.ftm.deefs.comparators.ChargingPossibilityQueueSizeComparator;
 import de.tum.mw.ftm.deefs.comparators.FacilityExactDistanceComparator;
+import de.tum.mw.ftm.deefs.comparators.ScoreKeyRanking;
 import de.tum.mw.ftm.deefs.elements.eMobilityComponents.ChargingInterface;
+import de.tum.mw.ftm.deefs.elements.facilitiies.ChargingPossibility;
+import de.tum.mw.ftm.deefs.elements.facilitiies.Facility;
 import de.tum.mw.ftm.deefs.graphopper.extensions.MyGraphHopper;
 import de.tum.mw.ftm.deefs.location.Position;
-import org.apache.commons.collections.comparators.ComparatorChain;
+
+import java.util.Collection;
 
 /**
- * Comparator Chain to determine the next chosen charging possibility.
+ * Selection rules to determine the next chosen charging possibility.
  * <br> 2-Step sorting process:
- * <p> 1. Charging possibility queue size {@link ChargingPossibilityQueueSizeComparator}.
- * <p> 2. Exact distance to facility {@link FacilityExactDistanceComparator}.
+ * <p> 1. Charging possibility queue size, same order as {@link ChargingPossibilityQueueSizeComparator}.
+ * <p> 2. Exact distance to facility, same order as {@link FacilityExactDistanceComparator}.
+ * <p> The rules are evaluated by {@link #rankInRange(Collection, Position, ChargingInterface, float, MyGraphHopper)}, the former comparator chain was dropped.
  *
  * @author Michael Wittmann
  */
-@SuppressWarnings("serial")
-public class NextChargingPossibilityComparatorChain extends ComparatorChain {
+public class NextChargingPossibilityComparatorChain {
+
+    private NextChargingPossibilityComparatorChain() {
+    }
 
-    public NextChargingPossibilityComparatorChain(Position pos, ChargingInterface ci, float remainingRange, MyGraphHopper hopper) {
-        super();
-//		this.addComparator(new FacilityInCoarseRadiusComparator(pos, remainingRange));
-//		this.addComparator(new FacilityInExactRadiusComparator(pos, remainingRange, hopper), true);
-//		this.addComparator(new ChargingPossibilityHasFreeCPComperator(ci), true)
-        this.addComparator(new ChargingPossibilityQueueSizeComparator());
-        //TODO: Check if the compare of available max. power can be added here...
-        this.addComparator(new FacilityExactDistanceComparator(pos, hopper));
+    //TODO: Check if the compare of available max. power can be added here...
 
+    /**
+     * Ranks the given charging possibilities by the selection rules of this class. The route to each candidate is calculated only once and used
+     * for both, the range check and the score key (queue size, exact distance). Candidates whose exact distance exceeds the range are not ranked.
+     *
+     * @param candidates     charging possibilities
+     * @param pos            reference position
+     * @param ci             charging interface of the vehicle
+     * @param remainingRange max. exact distance in m
+     * @param hopper         GraphHopper instance for route calculations
+     * @return ranking of the candidates in range
+     */
+    public static ScoreKeyRanking<ChargingPossibility> rankInRange(Collection<? extends ChargingPossibility> candidates, Position pos, ChargingInterface ci,
+                                                                   float remainingRange, MyGraphHopper hopper) {
+        ScoreKeyRanking<ChargingPossibility> ranking = new ScoreKeyRanking<>(false, false);
+        for (ChargingPossibility c : candidates) {
+            Position target = ((Facility) c).getPosition();
+            double distance = hopper.route(new GHRequest(pos.getLat(), pos.getLon(), target.getLat(), target.getLon())).getDistance();
+            if (distance <= remainingRange) {
+                ranking.add(c, c.getQueueSize(), distance);
+            }
+        }
+        return ranking;
     }
 }
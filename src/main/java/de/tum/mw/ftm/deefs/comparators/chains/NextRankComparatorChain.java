@@ -12,6 +12,7 @@ import org.apache.commons.collections.comparators.ComparatorChain;
  * <p> 1. Facilities that have empty space {@link FacilityHasSpaceCompartaor}.
  * <p> 2. Rank demand weight {@link RankDemandWeightComparator}.
  * <p> 3. Rank space left {@link RankSpaceLeftComparator}.
+ * <p> Selections use the {@link de.tum.mw.ftm.deefs.elements.facilitiies.RankScoreboard}, which keeps the ranks in this order.
  *
  * @author Michael Wittmann
  */
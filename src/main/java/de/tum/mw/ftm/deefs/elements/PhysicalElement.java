@@ -3,16 +3,12 @@ package de.tum.mw.ftm.deefs.elements;
 import de.tum.mw.ftm.deefs.Scenario;
 import de.tum.mw.ftm.deefs.location.Position;
 
-import java.util.Observable;
-
 /**
  * Base Element for all physical elements in the behavior model.
- * implements observe functions for child-classes.
  *
  * @author Michael Wittmann
- * @see Observable
  */
-public class PhysicalElement extends Observable {
+public class PhysicalElement {
 
 	protected int id;                // Element Id
 	protected Position position;    // Elements Position
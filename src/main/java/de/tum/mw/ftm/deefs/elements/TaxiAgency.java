@@ -1,30 +1,47 @@
 package de.tum.mw.ftm.deefs.elements;
 
+import de.tum.mw.ftm.deefs.Config;
 import de.tum.mw.ftm.deefs.Scenario;
+import de.tum.mw.ftm.deefs.comparators.ScoreKeyRanking;
+import de.tum.mw.ftm.deefs.comparators.TaxiLastLogOffComparator;
+import de.tum.mw.ftm.deefs.comparators.TaxiLastLoginComparator;
 import de.tum.mw.ftm.deefs.comparators.chains.NextCarComparatorChain;
 import de.tum.mw.ftm.deefs.elements.taxi.Taxi;
 import de.tum.mw.ftm.deefs.events.DemandEvent;
-import de.tum.mw.ftm.deefs.log.DeniedRide;
+import de.tum.mw.ftm.deefs.events.DispatchBatchEvent;
+import de.tum.mw.ftm.deefs.utils.HungarianAlgorithm;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.PriorityQueue;
+import java.util.*;
 import java.util.stream.Collectors;
 
 
 /**
  * The TaxiAgency is responsible for holding the vehicle fleet and to assign customer requests to a car.
+ * <p> Two dispatch modes are supported (config key dispatch_mode):
+ * <br>GREEDY: every request is assigned on its own, as soon as it occurs (default).
+ * <br>BATCH: requests are buffered over a short time window and assigned together, see {@link #dispatchBufferedRequests(long)}.
  *
  * @author Michael Wittmann
  */
 public class TaxiAgency {
 
+	public static final String DISPATCH_MODE_GREEDY = "GREEDY";
+	public static final String DISPATCH_MODE_BATCH = "BATCH";
+
+	//length of a batch window in ms
+	private final long BATCH_WINDOW = Long.parseLong(Config.getProperty(Config.DISPATCH_BATCH_WINDOW, "30000"));
+	//number of closest free cars per request considered in the batch assignment
+	private final int BATCH_CANDIDATES = Integer.parseInt(Config.getProperty(Config.DISPATCH_BATCH_CANDIDATES, "10"));
+	private final boolean batchDispatch = DISPATCH_MODE_BATCH.equalsIgnoreCase(Config.getProperty(Config.DISPATCH_MODE, DISPATCH_MODE_GREEDY));
+
 	private final List<Taxi> fleet;
 	private final Scenario scenario;
+	private final TreeSet<Taxi> activeByLogin;        // active taxis ordered by their last login (ties by id)
+	private final TreeSet<Taxi> inactiveByLogOff;    // logged off taxis ordered by their last log off (ties by id)
+	private final List<DemandEvent> bufferedRequests; // requests of the current batch window
 
 	public TaxiAgency(Scenario scenario) {
-		fleet = new ArrayList<>();
-		this.scenario = scenario;
+		this(scenario, 10);
 	}
 
 
@@ -37,6 +54,19 @@ public class TaxiAgency {
 	public TaxiAgency(Scenario scenario, int fleetSize) {
 		this.scenario = scenario;
 		fleet = new ArrayList<>(fleetSize);
+		activeByLogin = new TreeSet<>(new TaxiLastLoginComparator().thenComparingInt(Taxi::getId));
+		inactiveByLogOff = new TreeSet<>(new TaxiLastLogOffComparator().thenComparingInt(Taxi::getId));
+		bufferedRequests = new ArrayList<>();
+	}
+
+	/**
+	 * Checks whether the given vehicle state counts as active for the taxi controller.
+	 *
+	 * @param status vehicle state
+	 * @return <b>true</b> if the state is neither STATUS_LOGGED_OFF nor STATUS_ON_WAY_BACK_HOME, <b>false</b> otherwise
+	 */
+	private static boolean isActiveStatus(int status) {
+		return status != Taxi.STATUS_LOGGED_OFF && status != Taxi.STATUS_ON_WAY_BACK_HOME;
 	}
 
 	/**
@@ -58,14 +88,66 @@ public class TaxiAgency {
 	 * @return a List of all cars with status: STATUS_LOGGED_OFF
 	 */
 	public List<Taxi> getInactive_taxis() {
-		return fleet.stream().filter(Taxi::isLoggedOff).collect(Collectors.toList());
+		return new ArrayList<>(inactiveByLogOff);
 	}
 
 	/**
 	 * @return a List of all cars they are not logged off.
 	 */
 	public List<Taxi> getActive_taxis() {
-		return fleet.stream().filter(c -> !c.isLoggedOff() && !c.isOnWayBackHome()).collect(Collectors.toList());
+		return new ArrayList<>(activeByLogin);
+	}
+
+	/**
+	 * @return number of cars they are not logged off and not on their way back home.
+	 */
+	public int getActiveTaxiCount() {
+		return activeByLogin.size();
+	}
+
+	/**
+	 * Gives read access to the index of active cars. The index is kept up to date on every status change,
+	 * so iterating it never requires sorting the fleet.
+	 *
+	 * @return active cars in ascending order of their last login
+	 */
+	public NavigableSet<Taxi> getActiveTaxisByLogin() {
+		return Collections.unmodifiableNavigableSet(activeByLogin);
+	}
+
+	/**
+	 * Gives read access to the index of logged off cars. The index is kept up to date on every status change,
+	 * so iterating it never requires sorting the fleet.
+	 *
+	 * @return logged off cars in ascending order of their last log off
+	 */
+	public NavigableSet<Taxi> getInactiveTaxisByLogOff() {
+		return Collections.unmodifiableNavigableSet(inactiveByLogOff);
+	}
+
+	/**
+	 * Moves the given car between the login and log off indexes, whenever its status changes.
+	 * <p><b>Notice:</b> the sort keys (last login / last log off) must not be changed while the car is part of the related index.
+	 *
+	 * @param car       car whose status changed
+	 * @param oldStatus status before the change
+	 */
+	public void onStatusChanged(Taxi car, int oldStatus) {
+		int newStatus = car.getStatus();
+		if (isActiveStatus(oldStatus) != isActiveStatus(newStatus)) {
+			if (isActiveStatus(newStatus)) {
+				activeByLogin.add(car);
+			} else {
+				activeByLogin.remove(car);
+			}
+		}
+		if ((oldStatus == Taxi.STATUS_LOGGED_OFF) != (newStatus == Taxi.STATUS_LOGGED_OFF)) {
+			if (newStatus == Taxi.STATUS_LOGGED_OFF) {
+				inactiveByLogOff.add(car);
+			} else {
+				inactiveByLogOff.remove(car);
+			}
+		}
 	}
 
 	/**
@@ -82,18 +164,114 @@ public class TaxiAgency {
 	 * @return <b>true</b> if the request was assigned to a car successfully. <b>false</b> otherwise.
 	 */
 	public boolean tryToPlaceCustomerRequest(DemandEvent e) {
+		return tryToPlaceCustomerRequest(e, e.getScheduledTime());
+	}
 
-		@SuppressWarnings("unchecked")
-		PriorityQueue<Taxi> cars = new PriorityQueue<Taxi>(new NextCarComparatorChain(e.getStart()));
-		cars.addAll(getFree_taxis());
-		while (!cars.isEmpty()) {
-			Taxi car = cars.poll();
-			if (car.tryToPlaceAssignment(e)) return true;
+	/**
+	 * Try to find a car which can serve the customer demand at the given dispatch time. If a car was found the job will be assigned to it.
+	 *
+	 * @param e    DemandEvent
+	 * @param time simulation time the request is dispatched in ms
+	 * @return <b>true</b> if the request was assigned to a car successfully. <b>false</b> otherwise.
+	 */
+	private boolean tryToPlaceCustomerRequest(DemandEvent e, long time) {
+
+		scenario.getRejectionAccounting().begin(e);
+		for (Taxi car : NextCarComparatorChain.rank(getFree_taxis(), e.getStart()).sorted()) {
+			if (car.tryToPlaceAssignment(e, time)) {
+				scenario.getRejectionAccounting().end(e, true);
+				scenario.getKpiAccounting().request(e.getScheduledTime(), true);
+				return true;
+			}
 		}
-		scenario.getDBLog().addDeniedRide(new DeniedRide(0, e.getTrack_id(), e.getScheduledTime(), e.getDistance(), -1, DeniedRide.REASON_NO_FREE_CAR));
+		scenario.getRejectionAccounting().end(e, false);
+		scenario.getKpiAccounting().request(e.getScheduledTime(), false);
 		return false;
 	}
 
+	/**
+	 * @return <b>true</b> if customer requests are dispatched in batches, <b>false</b> if every request is placed on its own.
+	 */
+	public boolean isBatchDispatch() {
+		return batchDispatch;
+	}
+
+	/**
+	 * Buffers a customer request for the batch dispatch. The first request of a window schedules a {@link DispatchBatchEvent}
+	 * at the end of the window.
+	 *
+	 * @param e DemandEvent
+	 */
+	public void bufferCustomerRequest(DemandEvent e) {
+		if (bufferedRequests.isEmpty()) {
+			scenario.addEvent(new DispatchBatchEvent(e.getScheduledTime() + BATCH_WINDOW));
+		}
+		bufferedRequests.add(e);
+	}
+
+	/**
+	 * Assigns all buffered customer requests in one go.
+	 * <p> For every request the closest free cars (coarse distance) are collected into one request-to-car cost matrix,
+	 * which is solved as a linear assignment problem. Routes are only calculated for the chosen pairs by the car's usual feasibility check,
+	 * so the reasons a car may deny a request are the same as in the greedy mode.
+	 * Requests without assignment or denied by the assigned car fall back to {@link #tryToPlaceCustomerRequest(DemandEvent)},
+	 * after all assigned pairs were placed.
+	 * <p><b>Notice:</b> Cars start their rides at the dispatch time, as customers wait until the window is closed.
+	 * The requests keep their original request time, which is used by the result logs.
+	 *
+	 * @param time simulation time the batch window is closed in ms
+	 * @return list of requests which could not be placed
+	 */
+	public List<DemandEvent> dispatchBufferedRequests(long time) {
+		List<DemandEvent> requests = new ArrayList<>(bufferedRequests);
+		bufferedRequests.clear();
+		List<DemandEvent> denied = new ArrayList<>();
+		if (requests.isEmpty()) return denied;
+
+		//collect candidate cars, the closest free cars of every request
+		List<Taxi> freeTaxis = getFree_taxis();
+		Map<Taxi, Integer> candidateIndex = new LinkedHashMap<>();
+		for (DemandEvent e : requests) {
+			ScoreKeyRanking<Taxi> closest = new ScoreKeyRanking<>(false);
+			for (Taxi taxi : freeTaxis) {
+				closest.add(taxi, taxi.getPosition().calcDist(e.getStart()));
+			}
+			for (Taxi taxi : closest.top(BATCH_CANDIDATES)) {
+				candidateIndex.putIfAbsent(taxi, candidateIndex.size());
+			}
+		}
+		List<Taxi> candidates = new ArrayList<>(candidateIndex.keySet());
+
+		List<DemandEvent> fallback = new ArrayList<>();
+		if (!candidates.isEmpty()) {
+			double[][] cost = new double[requests.size()][candidates.size()];
+			for (int i = 0; i < requests.size(); i++) {
+				for (int j = 0; j < candidates.size(); j++) {
+					cost[i][j] = candidates.get(j).getPosition().calcDist(requests.get(i).getStart());
+				}
+			}
+			int[] assignment = HungarianAlgorithm.solve(cost);
+			for (int i = 0; i < requests.size(); i++) {
+				DemandEvent e = requests.get(i);
+				if (assignment[i] >= 0 && candidates.get(assignment[i]).tryToPlaceAssignment(e, time)) {
+					scenario.getRejectionAccounting().end(e, true);
+					scenario.getKpiAccounting().request(e.getScheduledTime(), true);
+				} else {
+					fallback.add(e);
+				}
+			}
+		} else {
+			fallback.addAll(requests);
+		}
+
+		for (DemandEvent e : fallback) {
+			if (!tryToPlaceCustomerRequest(e, time)) {
+				denied.add(e);
+			}
+		}
+		return denied;
+	}
+
 	/**
 	 * Adding a car to the vehicle fleet
 	 *
@@ -101,6 +279,12 @@ public class TaxiAgency {
 	 */
 	public void addCar(Taxi car) {
 		fleet.add(car);
+		if (isActiveStatus(car.getStatus())) {
+			activeByLogin.add(car);
+		}
+		if (car.isLoggedOff()) {
+			inactiveByLogOff.add(car);
+		}
 	}
 
 }
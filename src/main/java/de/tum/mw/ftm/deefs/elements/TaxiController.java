@@ -2,9 +2,8 @@ package de.tum.mw.ftm.deefs.elements;
 
 
 import de.tum.mw.ftm.deefs.Scenario;
-import de.tum.mw.ftm.deefs.comparators.TaxiLastLogOffComparator;
-import de.tum.mw.ftm.deefs.comparators.TaxiLastLoginComparator;
 import de.tum.mw.ftm.deefs.elements.taxi.Taxi;
+import de.tum.mw.ftm.deefs.events.TaxiControlEvent;
 import de.tum.mw.ftm.deefs.events.TaxiControlNewTargetCountEvent;
 import de.tum.mw.ftm.deefs.log.ControllerStats;
 import org.apache.commons.csv.CSVFormat;
@@ -13,9 +12,9 @@ import org.apache.commons.csv.CSVRecord;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.stream.Collectors;
+import java.util.NavigableSet;
 
 
 /**
@@ -29,6 +28,7 @@ public class TaxiController {
 
 	private final Scenario scenario;
 	private int nTarget = 0;
+	private long pendingControlTime = -1;    // time of the already scheduled TaxiControlEvent, -1 if none is pending
 
 
 	/**
@@ -57,58 +57,81 @@ public class TaxiController {
 	}
 
 
+	/**
+	 * Schedules a control pass at the given time. Requests for the same time are coalesced,
+	 * so a wave of log offs at the same timestamp results in a single call of {@link #controlActiveTaxiCount(long)}.
+	 *
+	 * @param time simulation time the control pass should be done in ms
+	 */
+	public void requestControl(long time) {
+		if (time != pendingControlTime) {
+			pendingControlTime = time;
+			scenario.addEvent(new TaxiControlEvent(time));
+		}
+	}
+
+
 	/**
 	 * When this method is called, the actual number of active taxis is compared to the target value.
 	 * If desired the Controller logs on/off vehicles to reach the target value.
 	 * There might be a delay between triggering a log off and the actual log off, because the car needs to reach his home position first.
-	 * Log on and log off is done by ordering cars regarding their last login / last log off time
+	 * Log on and log off is done by ordering cars regarding their last login / last log off time.
+	 * Both orders are kept as persistent indexes by the {@link TaxiAgency}, so a pass only touches the cars it actually logs on or off.
 	 *
 	 * @param time simulation time the count is checked in ms
 	 */
 	public void controlActiveTaxiCount(long time) {
+		//log offs happening during this pass need a new pass
+		pendingControlTime = -1;
+		TaxiAgency agency = scenario.getAgency();
+		NavigableSet<Taxi> activeTaxis = agency.getActiveTaxisByLogin();
+
 		/* First check if there are taxis, which already exceeded_their active time, if so log them of.
 		/ this is needed because sometimes taxis stuck at at taxi rank gettig no customer request.
-		/ in fact no updates are done on this agent and he would never log off as long he gets a customer ride
+		/ in fact no updates are done on this agent and he would never log off as long he gets a customer ride.
+		/ As all cars share the same maximum active time, those taxis are always a prefix of the login index.
 		*/
-		List<Taxi> exceeded_taxis = scenario.getAgency().getFree_taxis();
-		exceeded_taxis = exceeded_taxis.stream().filter(c -> c.maxTimeActiveIsExceeded(time)).collect(Collectors.toList());
+		List<Taxi> exceeded_taxis = new ArrayList<>();
+		for (Taxi taxi : activeTaxis) {
+			if (!taxi.maxTimeActiveIsExceeded(time)) break;
+			if (taxi.isFree()) exceeded_taxis.add(taxi);
+		}
 		for (Taxi taxi : exceeded_taxis) {
 			taxi.triggerlogOff(time);
 		}
 
 		/*
-		 * Next step, all active taxis are collected. If there is a difference between active taxis and the target value taxis will be logged on or logged off.
+		 * Next step, all active taxis are counted. If there is a difference between active taxis and the target value taxis will be logged on or logged off.
+		 * Index entries are walked by higher(), as logging on/off a car moves it between the indexes, while its sort key stays untouched.
 		 */
-		PriorityQueue<Taxi> active_taxis = new PriorityQueue<>(new TaxiLastLoginComparator());
-		active_taxis.addAll(scenario.getAgency().getActive_taxis());
+		int nActive = agency.getActiveTaxiCount();
 
 		//Try to log on taxis
-		if (nTarget > active_taxis.size()) {
-
-			int delta = active_taxis.size() - nTarget;
-			PriorityQueue<Taxi> inactive_taxis = new PriorityQueue<>(new TaxiLastLogOffComparator());
-			inactive_taxis.addAll(scenario.getAgency().getInactive_taxis());
-			while (inactive_taxis.size() > 0 && delta != 0) {
-				if (inactive_taxis.poll().logOn(time)) {
-					delta++;
+		if (nTarget > nActive) {
+			int delta = nTarget - nActive;
+			NavigableSet<Taxi> inactiveTaxis = agency.getInactiveTaxisByLogOff();
+			Taxi taxi = inactiveTaxis.isEmpty() ? null : inactiveTaxis.first();
+			while (taxi != null && delta != 0) {
+				if (taxi.logOn(time)) {
+					delta--;
 				}
+				taxi = inactiveTaxis.higher(taxi);
 			}
 		}
 
 		//Try to log off taxis
-		else if (nTarget < active_taxis.size()) {
-
-			int delta = active_taxis.size() - nTarget;
-			PriorityQueue<Taxi> free_taxis = new PriorityQueue<>(new TaxiLastLoginComparator());
-			free_taxis.addAll(scenario.getAgency().getActive_taxis());
-			while (free_taxis.size() > 0 && delta != 0) {
-				if (free_taxis.poll().triggerlogOff(time)) {
+		else if (nTarget < nActive) {
+			int delta = nActive - nTarget;
+			Taxi taxi = activeTaxis.first();
+			while (taxi != null && delta != 0) {
+				if (taxi.triggerlogOff(time)) {
 					delta--;
 				}
+				taxi = activeTaxis.higher(taxi);
 			}
 		}
 		//Log action in Database
-		scenario.getDBLog().addControllerStats(new ControllerStats(time, ControllerStats.TYPE_VALUE, scenario.getAgency().getActive_taxis().size()));
+		scenario.getResultSink().addControllerStats(new ControllerStats(time, ControllerStats.TYPE_VALUE, agency.getActiveTaxiCount()));
 	}
 
 
@@ -126,7 +149,7 @@ public class TaxiController {
 			for (CSVRecord record : records) {
 				long scheduledTime = (Integer.parseInt(record.get("day")) - 1) * 24 * 3600 * 1000 + (Integer.parseInt(record.get("hour")) - 1) * 3600 * 1000;
 				int n_soll = Integer.parseInt(record.get("n"));
-				scenario.getDBLog().addControllerStats(new ControllerStats(scheduledTime, ControllerStats.TYPE_TARGET, n_soll));
+				scenario.getResultSink().addControllerStats(new ControllerStats(scheduledTime, ControllerStats.TYPE_TARGET, n_soll));
 				TaxiControlNewTargetCountEvent event = new TaxiControlNewTargetCountEvent(scheduledTime, n_soll);
 				scenario.addEvent(event);
 			}
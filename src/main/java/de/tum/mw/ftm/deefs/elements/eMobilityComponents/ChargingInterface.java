@@ -2,23 +2,32 @@ package de.tum.mw.ftm.deefs.elements.eMobilityComponents;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
  * ChargingInterface describes a collection of possible Connectors. It delivers methods to find the best common Connector of two ChargingInterfaces
+ * <p> The supported connector types are kept as bitmask and the most powerful connector of each type is stored, so compatibility checks
+ * and best connector lookups don't depend on the number of connectors. The best connector with every other ChargingInterface is looked up
+ * in a table, which is filled on first use. ChargingInterfaces are shared by all cars and charging points of the same type, so the table stays small.
  *
  * @author Michael Wittmann
  * @see Connector
  */
 public class ChargingInterface {
 	private final List<Connector> connectors;
+	private final Connector[] bestByType;    //most powerful connector of each type, index is the connector type
+	private int typeMask = 0;                //bitmask of all supported connector types, see Connector#getTypeMask(int)
+	private final Map<ChargingInterface, Connector> bestConnectors = new HashMap<>();    //best common connector with each other ChargingInterface, null if incompatible
 
 	/**
 	 * Basic Constructor. A Charging interface with no content will be created. Connectors have to be added manually via addConnector.
 	 */
 	public ChargingInterface() {
 		connectors = new ArrayList<>();
+		bestByType = new Connector[Connector.TYPE_SUPERCHARGER + 1];
 	}
 
 
@@ -58,13 +67,30 @@ public class ChargingInterface {
 	}
 
 	/**
-	 * Use this method to manually add a Connector.
+	 * Use this method to manually add a Connector. All connectors have to be added before the ChargingInterface is compared to others.
 	 *
 	 * @param c Connector to add
 	 * @see Connector
 	 */
 	public void addConnector(Connector c) {
 		connectors.add(c);
+		bestConnectors.clear();
+		typeMask |= c.getTypeMask();
+		Connector best = bestByType[c.getType()];
+		if (best == null || c.compareTo(best) > 0) {
+			bestByType[c.getType()] = c;
+		}
+	}
+
+	/**
+	 * Returns the bitmask of all connector types supported by this ChargingInterface. Two ChargingInterfaces with the same
+	 * type mask are compatible to the same ChargingInterfaces.
+	 *
+	 * @return bitmask of supported connector types
+	 * @see Connector#getTypeMask(int)
+	 */
+	public int getTypeMask() {
+		return typeMask;
 	}
 
 	/**
@@ -74,12 +100,7 @@ public class ChargingInterface {
 	 * @return <b>true</b> if both ChargingInterfaces have Connectors that are compatible to each other
 	 */
 	public boolean isCompatibleTo(ChargingInterface cf) {
-		for (Connector c1 : connectors) {
-			for (Connector c2 : cf.connectors) {
-				if (c1.isCompatible(c2)) return true;
-			}
-		}
-		return false;
+		return (typeMask & cf.typeMask) != 0;
 	}
 
 	/**
@@ -92,28 +113,86 @@ public class ChargingInterface {
 		return Collections.min(connectors);
 	}
 
+	/**
+	 * Returns the power of the most powerful connector. Only one connector can be used at the same time.
+	 *
+	 * @return max. power in <b>Watt</b> or <b>0.0</b> if there is no connector
+	 */
+	public float getMaxPower() {
+		return connectors.isEmpty() ? 0f : Collections.max(connectors).getPMax();
+	}
+
 	/**
 	 * Returns the best Connector (according to their natural order) the two given ChargingInterfaces have in common.
+	 * For every common type the weaker of both most powerful connectors is usable, the best of those is returned.
+	 * If several types offer the same power, the lowest type is chosen.
 	 *
 	 * @param cf ChargingInterface to check
 	 * @return best connector both ChargingInterfaces support or <b>null</b> if no compatible Connector was found
 	 * @see Connector
 	 */
 	public Connector getBestConnector(ChargingInterface cf) {
-		List<Connector> tmp = new ArrayList<>();
-		for (Connector c1 : connectors) {
-			for (Connector c2 : cf.connectors) {
-				if (c1.isCompatible(c2)) {
-					if (c1.compareTo(c2) < 0) {
-						tmp.add(c1);
-					} else {
-						tmp.add(c2);
-					}
-				}
+		Connector best = bestConnectors.get(cf);
+		if (best == null && !bestConnectors.containsKey(cf)) {
+			best = getBestConnector(bestByType, cf.bestByType, typeMask & cf.typeMask);
+			bestConnectors.put(cf, best);
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the best Connector (according to their natural order) this ChargingInterface has in common with the offered connectors.
+	 * Use this method if the offered connectors are combined from several ChargingInterfaces, e.g. all free charging points of a station.
+	 *
+	 * @param offeredByType most powerful offered connector of each type, index is the connector type
+	 * @param offeredMask   bitmask of all offered connector types
+	 * @return best common connector or <b>null</b> if no compatible Connector was offered
+	 * @see #getBestConnector(ChargingInterface)
+	 */
+	public Connector getBestConnector(Connector[] offeredByType, int offeredMask) {
+		return getBestConnector(offeredByType, bestByType, offeredMask & typeMask);
+	}
+
+	/**
+	 * Returns the most powerful connector of the given type
+	 *
+	 * @param type connector type
+	 * @return most powerful connector of the given type or <b>null</b> if the type is not supported
+	 */
+	public Connector getBestConnector(int type) {
+		return bestByType[type];
+	}
+
+	/**
+	 * For every common type the weaker of both most powerful connectors is usable, the best of those is returned.
+	 *
+	 * @param first  most powerful connectors of the first side per type
+	 * @param second most powerful connectors of the second side per type
+	 * @param common bitmask of the types both sides support
+	 * @return best usable connector or <b>null</b> if there is no common type
+	 */
+	private static Connector getBestConnector(Connector[] first, Connector[] second, int common) {
+		Connector best = null;
+		for (int type = Connector.TYPE_SCHUKO; common != 0 && type <= Connector.TYPE_SUPERCHARGER; type++) {
+			if ((common & Connector.getTypeMask(type)) == 0) continue;
+			Connector c1 = first[type];
+			Connector c2 = second[type];
+			Connector usable = c1.compareTo(c2) < 0 ? c1 : c2;
+			if (best == null || usable.compareTo(best) > 0) {
+				best = usable;
 			}
 		}
-		if (!tmp.isEmpty()) {
-			return Collections.max(tmp);
-		} else return null;
+		return best;
+	}
+
+	/**
+	 * Returns the max. power the two given ChargingInterfaces support together, see {@link #getBestConnector(ChargingInterface)}.
+	 *
+	 * @param cf ChargingInterface to check
+	 * @return max. common power in <b>Watt</b> or <b>0.0</b> if no compatible Connector was found
+	 */
+	public float getBestPower(ChargingInterface cf) {
+		Connector best = getBestConnector(cf);
+		return best == null ? 0f : best.getPMax();
 	}
 }
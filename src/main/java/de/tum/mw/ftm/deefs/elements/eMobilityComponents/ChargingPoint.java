@@ -3,12 +3,13 @@ package de.tum.mw.ftm.deefs.elements.eMobilityComponents;
 import de.tum.mw.ftm.deefs.Config;
 import de.tum.mw.ftm.deefs.Scenario;
 import de.tum.mw.ftm.deefs.elements.evConcept.Battery;
+import de.tum.mw.ftm.deefs.elements.evConcept.ChargingCurve;
 import de.tum.mw.ftm.deefs.elements.facilitiies.ChargingStation;
 import de.tum.mw.ftm.deefs.elements.facilitiies.Facility;
 import de.tum.mw.ftm.deefs.elements.taxi.BEVTaxi;
 import de.tum.mw.ftm.deefs.events.UpdateChargeEvent;
-import de.tum.mw.ftm.deefs.log.EnergyStats;
-import de.tum.mw.ftm.deefs.utils.Units;
+import de.tum.mw.ftm.deefs.log.EnergyAccounting;
+import de.tum.mw.ftm.deefs.utils.ReservationCalendar;
 
 
 /**
@@ -21,16 +22,19 @@ import de.tum.mw.ftm.deefs.utils.Units;
  * @see ChargingInterface
  */
 public class ChargingPoint {
-	private static final long UPDATE_INTERVALL = Long.parseLong(Config.getProperty(Config.CHARGINGPOINT_UPDATE_INTERVAL, "60000"));    //interval a UpdateChargeEvent is pushed in ms
-	private static final long delta_t = Long.parseLong(Config.getProperty(Config.CHARGINGPOINT_CHARGING_CURVE_DELTA_T, "60000"));        // step size for calculation of charging curve in ms
+	private static final long UPDATE_INTERVALL = Long.parseLong(Config.getProperty(Config.CHARGINGPOINT_UPDATE_INTERVAL, "60000"));    //interval a car retries to log off after its max. time active is exceeded in ms
 
 	private final Scenario scenario;
 	private final ChargingInterface chargingInterface;    //charging interface of the charging point
 	private UpdateChargeEvent nextEvent = null;    //next scheduled event of this charging point
+	private long charged_until = -1;                //time up to which the charge of the connected car is calculated in ms
+	private long full_charged_at = -1;            //time the connected car reaches its max. SOC in ms
 	private BEVTaxi connected_car = null;            //connected car
 	private long connected_since = -1;                //time the car is connected in ms
 	private Connector connector = null;                //used connector
 	private int parent_facility_id = 0;                //id of facility this charging point belongs to
+	private ChargingStation parent = null;            //facility this charging point belongs to, notified about vacancy changes
+	private final ReservationCalendar<BEVTaxi> calendar = new ReservationCalendar<>();    //reserved slots and expected occupation of the connected car
 
 	/**
 	 * Basic constructor. A ChargingPoint consists a defined ChargingInterface and a scenario.
@@ -45,68 +49,52 @@ public class ChargingPoint {
 
 	/**
 	 * This Method should be used when the car charges at home, as no charging points are modeled there right now.
-	 * Calculations based on the description in {@link #chargeCar(long, long, BEVTaxi)}
+	 * Calculations based on the description in {@link #getChargedEnergy(long, float, Battery)}
 	 *
 	 * @param chargingTime time the car was at home for charing in ms
 	 * @param car          car to be charged
 	 */
 	public static void chargeCarAtHome(long chargingTime, BEVTaxi car) {
-		float energy;
 		float p_max = car.getConcept().getChargingInterface().getHomeConnector().getPMax();
 		Battery battery = car.getConcept().getBattery();
-		long n = chargingTime / delta_t;
-		long r = chargingTime - (n * delta_t);
-		for (long i = 1; i <= n; i++) {
-			energy = getEnergyIU(delta_t, p_max, battery);
-			car.getConcept().getBattery().charge(energy);
-			if (car.getSOC() == 100) return;
-		}
-		if (r != 0) {
-			energy = getEnergyIU(r, p_max, battery);
-			car.getConcept().getBattery().charge(energy);
-		}
+		battery.charge(getChargedEnergy(chargingTime, p_max, battery));
 	}
 
 	/**
-	 * Calculates the energy charged in the given timestep
-	 * The amount of energy is calculated via an UI-charging model, introduced by [Str13].
-	 * It is recommended to use a timestep of 60000ms which is a good compromise between accuracy and computation time. See [Wit15] for further details.
+	 * Calculates the energy charged in the given time, starting at the battery's actual SOC.
+	 * The energy is looked up in the shared charging curve of the battery type, see {@link ChargingCurve}.
 	 *
-	 * @param timestep charging time in ms
-	 * @param p_max    maximum power supported by charging point an vehicle
-	 * @param battery  vehicle's battery
+	 * @param chargingTime charging time in ms
+	 * @param p_max        maximum power supported by charging point an vehicle in W
+	 * @param battery      vehicle's battery
 	 * @return amount of energy the car was charged in J
 	 */
-	public static float getEnergyIU(long timestep, float p_max, Battery battery) {
-		float energy;
-		float soc = battery.getSoc() / 100f;
-		float u_cell_n = battery.getU_cell_n();
-		float u_cell_ls = battery.getU_cell_ls();
-		float e_bat_max = battery.getEBatMax();
-		float e_bat = battery.getE_bat();
-		float eta_l = battery.getEta_l();
-		float i_ls = 0.006f / 1000f * p_max + 0.008f;
-		float s = -0.008f / 1000f * p_max + 0.83f;
-		if (soc < s) {
-			energy = p_max * timestep / 1000f;
-		} else {
-			float p_ls = (u_cell_ls / u_cell_n * i_ls * (float) Units.JToKWh(e_bat_max)) * 1000f;
-			float k_l = (float) ((1 - s) / Math.log(p_max / p_ls));
-			float p = (float) (p_max * Math.exp((s - soc) / k_l));
-			energy = p * timestep / 1000f;
-		}
-		float newCharge = e_bat + energy * eta_l;
-		if (newCharge > e_bat_max) {
-			energy = (e_bat_max - e_bat) / eta_l;
-			return energy;
-		} else {
-			return energy;
-		}
+	public static float getChargedEnergy(long chargingTime, float p_max, Battery battery) {
+		ChargingCurve curve = ChargingCurve.of(p_max, battery);
+		return curve == null ? 0 : curve.getChargedEnergy(chargingTime, battery);
+	}
 
+	/**
+	 * Calculates the time needed to charge the battery from its actual SOC up to the given SOC. See {@link ChargingCurve} for the charging model.
+	 *
+	 * @param targetSoc SOC to be reached in %
+	 * @param p_max     maximum power supported by charging point an vehicle in W
+	 * @param battery   vehicle's battery
+	 * @return charging time in ms, 0 if the SOC is already reached, {@link Long#MAX_VALUE} if the SOC can not be reached
+	 */
+	public static long getChargingTime(float targetSoc, float p_max, Battery battery) {
+		ChargingCurve curve = ChargingCurve.of(p_max, battery);
+		return curve == null ? Long.MAX_VALUE : curve.getChargingTime(targetSoc, battery.getE_bat(), battery);
 	}
 
-	public void setParentFacility(int parent_facility_id) {
-		this.parent_facility_id = parent_facility_id;
+	/**
+	 * Sets the charging station this charging point belongs to. The station is notified whenever the charging point becomes vacant or stops being vacant.
+	 *
+	 * @param parent charging station this charging point belongs to
+	 */
+	public void setParentFacility(ChargingStation parent) {
+		this.parent = parent;
+		this.parent_facility_id = parent.getId();
 	}
 
 	/**
@@ -118,6 +106,116 @@ public class ChargingPoint {
 		return connected_car == null;
 	}
 
+	/**
+	 * Checks if this ChargingPoint can be offered to cars searching a charging point, i.e. no car is connected and no arriving car has reserved it.
+	 *
+	 * @return <b>true</b> if this charging point is vacant, <b>false</b> if it is occupied or reserved.
+	 */
+	public boolean isVacant() {
+		return connected_car == null && calendar.isEmpty();
+	}
+
+	/**
+	 * Checks if the given car could connect to this ChargingPoint now without colliding with the reservations of other cars,
+	 * i.e. no car is connected and no other car has reserved a slot overlapping the expected charging time of the given car.
+	 * The charging point must be compatible to the car.
+	 *
+	 * @param car  car which wants to connect
+	 * @param time simulation time in ms
+	 * @return <b>true</b> if the car could connect now, <b>false</b> otherwise.
+	 */
+	public boolean isFree(BEVTaxi car, long time) {
+		return connected_car == null
+				&& calendar.isFree(time, getExpectedEnd(car, time, car.getConcept().getBattery().getE_bat()), car);
+	}
+
+	/**
+	 * Checks if the given car could reserve this charging point for the given time slot.
+	 * The slot must not overlap the reservations of other cars or the expected charging time of the connected car.
+	 *
+	 * @param car  car to be checked
+	 * @param from expected arrival time in ms
+	 * @param to   expected end of charging in ms
+	 * @return <b>true</b> if the charging point is compatible and the time slot is free
+	 */
+	public boolean canReserve(BEVTaxi car, long from, long to) {
+		return isCompatibleTo(car.getChargingInterface()) && calendar.isFree(from, to, car);
+	}
+
+	/**
+	 * Reserves this charging point for the given car and time slot.
+	 *
+	 * @param car  car which reserves the charging point
+	 * @param from expected arrival time in ms
+	 * @param to   expected end of charging in ms
+	 * @return <b>true</b> if the charging point was reserved, <b>false</b> if the time slot is not free
+	 * @see #canReserve(BEVTaxi, long, long)
+	 */
+	public boolean reserve(BEVTaxi car, long from, long to) {
+		boolean wasVacant = isVacant();
+		if (canReserve(car, from, to) && calendar.book(car, from, to)) {
+			notifyVacancy(wasVacant);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Cancels the reservation of the given car.
+	 *
+	 * @param car car which reserved the charging point
+	 * @return <b>true</b> if the car had reserved this charging point, <b>false</b> otherwise
+	 */
+	public boolean cancelReservation(BEVTaxi car) {
+		boolean wasVacant = isVacant();
+		if (car != connected_car && calendar.release(car)) {
+			notifyVacancy(wasVacant);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Notifies the parent station if the vacancy of this charging point changed, see {@link #isVacant()}.
+	 *
+	 * @param wasVacant vacancy before the change
+	 */
+	private void notifyVacancy(boolean wasVacant) {
+		if (parent != null && wasVacant != isVacant()) {
+			parent.onVacancyChanged(this, wasVacant ? -1 : 1);
+		}
+	}
+
+	/**
+	 * Estimates the time needed to plug in the given car and charge it up to {@link BEVTaxi#SOC_STOP_CHARGE_MAX} with the best connector.
+	 * The result is never smaller than {@link BEVTaxi#MIN_TIME_CHARGING}.
+	 *
+	 * @param car    car to be charged
+	 * @param energy expected battery energy when the car arrives in J
+	 * @return expected charging time in ms, {@link Long#MAX_VALUE} if the car never reaches the SOC at this charging point
+	 */
+	public long getExpectedChargingTime(BEVTaxi car, float energy) {
+		Connector c = getBestConnector(car.getChargingInterface());
+		Battery battery = car.getConcept().getBattery();
+		ChargingCurve curve = ChargingCurve.of(c.getPMax(), battery);
+		long chargingTime = curve == null ? Long.MAX_VALUE : curve.getChargingTime(car.SOC_STOP_CHARGE_MAX, energy, battery);
+		if (chargingTime == Long.MAX_VALUE) return Long.MAX_VALUE;
+		return c.getPlugInTime() + Math.max(chargingTime, car.MIN_TIME_CHARGING);
+	}
+
+	/**
+	 * Estimates the end of charging of the given car, see {@link #getExpectedChargingTime(BEVTaxi, float)}.
+	 *
+	 * @param car    car to be charged
+	 * @param start  time the car connects in ms
+	 * @param energy expected battery energy when the car connects in J
+	 * @return expected end of charging in ms, {@link Long#MAX_VALUE} if the car never reaches the SOC at this charging point
+	 */
+	public long getExpectedEnd(BEVTaxi car, long start, float energy) {
+		long chargingTime = getExpectedChargingTime(car, energy);
+		return chargingTime == Long.MAX_VALUE ? Long.MAX_VALUE : start + chargingTime;
+	}
+
 	/**
 	 * Checks if the given Car is connected to the charging point.
 	 *
@@ -129,6 +227,13 @@ public class ChargingPoint {
 		return car == connected_car;
 	}
 
+	/**
+	 * @return the charging interface this charging point offers
+	 */
+	public ChargingInterface getChargingInterface() {
+		return chargingInterface;
+	}
+
 	/**
 	 * Checks if this charging point is compatible to the given charging interface
 	 *
@@ -154,7 +259,7 @@ public class ChargingPoint {
 	 * Connects the given car to this charging point, if possible(a car can only be connected, if it is compatible and
 	 * if there is no other car already connected to the charging point). Connecting a car to a charging point
 	 * will automatically start the charging process after a specified plug in time based on the selected connector.
-	 * The car's SOC will be updated in a fixed interval, defined in this class.
+	 * Only one UpdateChargeEvent is scheduled, when the car reaches its max. SOC or exceeds its max. time active. In between the car's SOC is calculated on demand.
 	 *
 	 * @param car  car to connect
 	 * @param time time at which the car is connected
@@ -162,12 +267,18 @@ public class ChargingPoint {
 	 */
 	public boolean connect(BEVTaxi car, long time) {
 		if (isCompatibleTo(car.getChargingInterface()) && isAvailable()) {
+			boolean wasVacant = isVacant();
 			connected_car = car;
 			connected_since = time;
 			connector = getBestConnector(car.getChargingInterface());
-			nextEvent = new UpdateChargeEvent(time + UPDATE_INTERVALL + connector.getPlugInTime(), time + connector.getPlugInTime(), this);
-			scenario.addEvent(nextEvent);
-			scenario.getDBLog().addEnergyStats(new EnergyStats(parent_facility_id, car.getId(), time, 0, 0, connector.getTypeAsString(), connector.getPMax()));
+			//the reservation of the car is replaced by its expected occupation
+			calendar.put(car, time, getExpectedEnd(car, time, car.getConcept().getBattery().getE_bat()));
+			notifyVacancy(wasVacant);
+			charged_until = time + connector.getPlugInTime();
+			long chargingTime = getChargingTime(car.SOC_STOP_CHARGE_MAX, connector.getPMax(), car.getConcept().getBattery());
+			full_charged_at = chargingTime == Long.MAX_VALUE ? Long.MAX_VALUE : charged_until + chargingTime;
+			scheduleNextEvent();
+			scenario.getEnergyAccounting().beginSession(this, parent_facility_id, car, time, connector);
 			return true;
 		} else return false;
 	}
@@ -200,8 +311,8 @@ public class ChargingPoint {
 	}
 
 	/**
-	 * Disconnects the actual connected car from this charging point. The charging process will be stopped automatically,
-	 * and future scheduled UpdateChargeEvents will be removed from the event queue.
+	 * Disconnects the actual connected car from this charging point. The charge is calculated up to the given time, the charging process will be stopped automatically,
+	 * and the scheduled UpdateChargeEvent will be removed from the event queue.
 	 *
 	 * @param time to be disconnected
 	 * @return <b>true</b> if the car was successfully disconnected, <b>false</b> otherwise or if no car was connected
@@ -209,16 +320,16 @@ public class ChargingPoint {
 	public boolean disconnect(long time) {
 		if (connected_car != null) {
 			if (mayDisconnect(time)) {
+				chargeUntil(time);
 				if (nextEvent != null) {
-					if (nextEvent.getPostedTime() < time) {
-						//needed beacaue posted time has an offset of connectors plugintime, so if a disconnect occurs in this time a negative energy would be calculatetd
-						chargeCar(nextEvent.getPostedTime(), time, connected_car);
-					}
 					scenario.removeEvent(nextEvent);
 					nextEvent = null;
 				}
+				scenario.getEnergyAccounting().endSession(connected_car, time);
+				calendar.release(connected_car);
 				connected_car = null;
 				connected_since = -1;
+				notifyVacancy(false);
 				return true;
 			}
 		}
@@ -235,58 +346,93 @@ public class ChargingPoint {
 	}
 
 	/**
-	 * Updates the charge of the connected car and pushes new update events to the event queue according to the defined interval.
+	 * Handles the scheduled UpdateChargeEvent. The charge is calculated up to the given time. If the connected car reached its max. SOC it continues with its next action,
+	 * otherwise it exceeded its max. time active and tries to log off. If it can't log off, it retries after the update interval.
+	 *
+	 * @param time simulation time in ms
 	 */
 	public void updateCharge(long time) {
 		if (connected_car != null) {
-			chargeCar(nextEvent.getPostedTime(), nextEvent.getScheduledTime(), connected_car);
-			//TODO: Fix this dirty fix ;-)
-			//Dirty quick fix. because cars now can stop charging when their max_time is exceeded.
-			if (connected_car != null) {
-				if (connected_car.getSOC() < connected_car.SOC_STOP_CHARGE_MAX) {
-					nextEvent = new UpdateChargeEvent(nextEvent.getScheduledTime() + UPDATE_INTERVALL, nextEvent.getScheduledTime(), this);
-					scenario.addEvent(nextEvent);
-				} else {
-					nextEvent = null;
-					connected_car.nextAction(time);
+			BEVTaxi car = connected_car;
+			nextEvent = null;
+			chargeUntil(time);
+			if (time >= full_charged_at) {
+				car.nextAction(time);
+			} else {
+				if (car.maxTimeActiveIsExceeded(time)) {
+					car.triggerlogOff(time);
+				}
+				if (connected_car == car) {
+					scheduleNextEvent();
 				}
 			}
 		}
 	}
 
 	/**
-	 * Calculates the energy charged in the given time interval, and updates the vehicles charge.
-	 * The amount of energy is calculated via an UI-charging model, introduced by [Str13]. The numeric timestep used for the calculation can be defined in delta_t.
-	 * It is recommended to use a timestep of 60000ms which is a good compromise between accuracy and computation time. See [Wit15] for further details.
-	 * Charging actions will be logged in EnergyStats data-logger.
+	 * Calculates the charge of the connected car up to the given time, without changing the scheduled UpdateChargeEvent.
+	 * Has to be called before the car's SOC is used.
 	 *
-	 * @param timeBegin start time of charging interval in ms
-	 * @param timeEnd   end time of charging interval in ms
-	 * @param car       connected car
-	 * @return amount of energy the car was charged in J
+	 * @param time simulation time in ms
 	 */
-	private float chargeCar(long timeBegin, long timeEnd, BEVTaxi car) {
-		float energy_sum = 0;
-		float energy;
-		float p_max = connector.getPMax();
-		Battery battery = car.getConcept().getBattery();
-		long chargingTime = timeEnd - timeBegin;
+	public void evaluateCharge(long time) {
+		chargeUntil(time);
+	}
 
-		long n = chargingTime / delta_t;
-		long r = chargingTime - (n * delta_t);
+	/**
+	 * Projects the SOC of the connected car at the given time from the charging curve. Neither the car nor the EnergyAccounting is changed,
+	 * so the result doesn't depend on how often it is called.
+	 *
+	 * @param time simulation time in ms
+	 * @return projected SOC in %
+	 * @see #evaluateCharge(long)
+	 */
+	public float getProjectedSoc(long time) {
+		Battery battery = connected_car.getConcept().getBattery();
+		if (time <= charged_until) return battery.getSoc();
+		return battery.estimateSOCAfterCharge(getChargedEnergy(time - charged_until, connector.getPMax(), battery));
+	}
 
-		for (long i = 1; i <= n; i++) {
-			energy = getEnergyIU(delta_t, p_max, battery);
-			car.chargeCar(timeBegin + i * delta_t, energy);
-			scenario.getDBLog().addEnergyStats(new EnergyStats(parent_facility_id, car.getId(), timeBegin + i * delta_t, energy / delta_t * 1000, energy, connector.getTypeAsString(), connector.getPMax()));
-			energy_sum += energy;
+	/**
+	 * Schedules the next UpdateChargeEvent, when the connected car reaches its max. SOC or exceeds its max. time active, whichever comes first.
+	 * If the max. time active is already exceeded, the event is scheduled after the update interval.
+	 */
+	private void scheduleNextEvent() {
+		long next = full_charged_at;
+		if (connected_car.maxTimeActiveIsExceeded(charged_until)) {
+			next = Math.min(next, charged_until + UPDATE_INTERVALL);
+		} else {
+			next = Math.min(next, connected_car.getMaxTimeActiveEnd());
 		}
-		if (r != 0) {
-			energy = getEnergyIU(r, p_max, battery);
-			car.chargeCar(timeEnd, energy);
-			scenario.getDBLog().addEnergyStats(new EnergyStats(parent_facility_id, car.getId(), timeEnd, energy / delta_t * 1000, energy, connector.getTypeAsString(), connector.getPMax()));
-			energy_sum += energy;
+		nextEvent = new UpdateChargeEvent(next, charged_until, this);
+		scenario.addEvent(nextEvent);
+	}
+
+	/**
+	 * Calculates the energy charged since the last calculation up to the given time, and updates the vehicles charge.
+	 * The amount of energy is calculated in closed form, see {@link #getChargedEnergy(long, float, Battery)}. The interval is split at the boundaries
+	 * demanded by the EnergyAccounting, every part is reported to it.
+	 *
+	 * @param time end of the charging interval in ms
+	 * @see EnergyAccounting
+	 */
+	private void chargeUntil(long time) {
+		if (connected_car == null || time <= charged_until) return;
+		long from = charged_until;
+		//must be set first, as charging may cause the car to disconnect
+		charged_until = time;
+		BEVTaxi car = connected_car;
+		Battery battery = car.getConcept().getBattery();
+		ChargingCurve curve = ChargingCurve.of(connector.getPMax(), battery);
+		EnergyAccounting accounting = scenario.getEnergyAccounting();
+		long chargingStart = connected_since + connector.getPlugInTime();
+		while (from < time && connected_car == car) {
+			long to = Math.min(time, accounting.getNextBoundary(from, chargingStart));
+			float peak = curve == null ? 0 : curve.getPower(battery.getE_bat(), battery);
+			float energy = getChargedEnergy(to - from, connector.getPMax(), battery);
+			accounting.charge(car, from, to, energy, peak);
+			car.chargeCar(to, energy);
+			from = to;
 		}
-		return energy_sum;
 	}
 }
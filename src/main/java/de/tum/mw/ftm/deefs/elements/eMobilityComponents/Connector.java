@@ -75,6 +75,25 @@ public class Connector implements Comparable<Connector> {
 		}
 	}
 
+	/**
+	 * Returns the bit which represents the given connector type in a type mask. Type masks are used for fast compatibility checks.
+	 *
+	 * @param type connector type. Use the static fields from this class
+	 * @return bitmask with the bit of the given type set
+	 * @see ChargingInterface#getTypeMask()
+	 */
+	public static int getTypeMask(int type) {
+		return 1 << type;
+	}
+
+	/**
+	 * @return bitmask with the bit of this connector's type set
+	 * @see #getTypeMask(int)
+	 */
+	public int getTypeMask() {
+		return getTypeMask(type);
+	}
+
 	/**
 	 * Checks if the two given Connectors are compatible to each other
 	 *
@@ -112,6 +131,16 @@ public class Connector implements Comparable<Connector> {
 	 * @return the connector's type as readable text.
 	 */
 	public String getTypeAsString() {
+		return getTypeName(type);
+	}
+
+	/**
+	 * Gives you the Name of the given connector type.
+	 *
+	 * @param type connector type. Use the static fields from this class
+	 * @return the type as readable text.
+	 */
+	public static String getTypeName(int type) {
 		return TYPE_NAMES[type - 1];
 	}
 
@@ -143,6 +143,17 @@ public class Battery {
 		return newCharge / e_bat_max * 100f;
 	}
 
+	/**
+	 * Calculates the estimated SOC after putting a certain amount of energy into the battery, without charging it.
+	 *
+	 * @param energy possibly charged energy in <b>J</b>, see {@link #charge(float)}
+	 * @return estimated SOC after charging the given energy in %
+	 */
+	public float estimateSOCAfterCharge(float energy) {
+		float newCharge = Math.min(e_bat + energy * eta_l, e_bat_max);
+		return newCharge / e_bat_max * 100f;
+	}
+
 	/**
 	 * Charging the Battery by putting a certain amount of energy into the battery
 	 * Charging considers the charging efficiency given by eta_l.<br>
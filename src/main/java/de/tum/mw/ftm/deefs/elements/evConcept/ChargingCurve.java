@@ -0,0 +1,173 @@
+package de.tum.mw.ftm.deefs.elements.evConcept;
+
+import de.tum.mw.ftm.deefs.utils.Units;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Charging curve of a battery type at a certain charging power, based on the UI-charging model introduced by [Str13]:
+ * the battery is charged with constant power p_max up to the SOC s, from then on the power decays exponentially with the SOC.
+ * <br> dSOC/dt = a                          for SOC &lt; s
+ * <br> dSOC/dt = a * exp((s - SOC) / k_l)   for SOC &gt;= s, with a = eta_l * p_max / e_bat_max
+ * <br> The decay ends at the power p_ls of the full battery, k_l = (1 - s) / ln(p_max / p_ls). If p_max does not exceed p_ls, e.g. a large battery
+ * at a household socket, there is no decay (k_l &lt;= 0 would even let the power grow with the SOC), so the battery is charged with constant power p_max until it is full.
+ * <p> The curve is tabulated once as charging time from an empty battery over the SOC, using the closed form solution of the model.
+ * Charging times and charged energies are looked up in the table with linear interpolation. With {@value #STEPS} SOC steps the deviation
+ * from the closed form solution stays below 0.01 % SOC.
+ * <p> Curves are shared by all batteries with equal parameters, use {@link #of(float, Battery)} to get an instance.
+ */
+public class ChargingCurve {
+
+	private static final int STEPS = 1000;                                   // number of SOC steps of the table
+	private static final Map<Key, ChargingCurve> curves = new HashMap<>();    // shared curves by battery parameters and charging power
+
+	private final double[] time;    // charging time in s from SOC 0 to SOC i / STEPS
+	private final float p_max;      // constant charging power in W
+	private final double s;         // SOC the power starts to decay
+	private final double k_l;       // decay constant of the power
+
+
+	/**
+	 * Tabulates a new charging curve
+	 *
+	 * @param p_max   maximum power supported by charging point an vehicle in W
+	 * @param battery battery whose parameters are used
+	 */
+	private ChargingCurve(float p_max, Battery battery) {
+		double a = battery.getEta_l() * p_max / battery.getEBatMax();    // SOC rate at constant power in 1/s
+		double s = -0.008f / 1000f * p_max + 0.83f;
+		float i_ls = 0.006f / 1000f * p_max + 0.008f;
+		float p_ls = (battery.getU_cell_ls() / battery.getU_cell_n() * i_ls * (float) Units.JToKWh(battery.getEBatMax())) * 1000f;
+		double k_l = (1 - s) / Math.log(p_max / p_ls);
+		if (Double.isNaN(k_l) || Double.isInfinite(k_l) || k_l <= 0) {
+			//p_max <= p_ls: without decay the power is constant until the battery is full
+			s = 1;
+			k_l = 1;
+		}
+		this.p_max = p_max;
+		this.s = s;
+		this.k_l = k_l;
+		this.time = new double[STEPS + 1];
+		for (int i = 0; i <= STEPS; i++) {
+			double soc = (double) i / STEPS;
+			if (soc <= s) {
+				time[i] = soc / a;
+			} else {
+				time[i] = s / a + k_l / a * (Math.exp((soc - s) / k_l) - 1);
+			}
+		}
+	}
+
+	/**
+	 * Returns the shared charging curve for the given battery parameters and charging power.
+	 *
+	 * @param p_max   maximum power supported by charging point an vehicle in W
+	 * @param battery vehicle's battery
+	 * @return charging curve, <b>null</b> if the power is not positive
+	 */
+	public static ChargingCurve of(float p_max, Battery battery) {
+		if (p_max <= 0) return null;
+		return curves.computeIfAbsent(new Key(p_max, battery), k -> new ChargingCurve(p_max, battery));
+	}
+
+	/**
+	 * Calculates the energy charged in the given time, starting at the battery's actual SOC.
+	 *
+	 * @param chargingTime charging time in ms
+	 * @param battery      vehicle's battery
+	 * @return amount of energy the car was charged in J
+	 */
+	public float getChargedEnergy(long chargingTime, Battery battery) {
+		if (chargingTime <= 0) return 0;
+		double soc = battery.getE_bat() / battery.getEBatMax();
+		double newSoc = getSoc(getTime(soc) + chargingTime / 1000d);
+		return (float) Math.max(0, (newSoc - soc) * battery.getEBatMax() / battery.getEta_l());
+	}
+
+	/**
+	 * Calculates the time needed to charge the battery from the given energy content up to the given SOC.
+	 *
+	 * @param targetSoc SOC to be reached in %
+	 * @param energy    energy content of the battery at the start in J
+	 * @param battery   vehicle's battery
+	 * @return charging time in ms, 0 if the SOC is already reached, {@link Long#MAX_VALUE} if the SOC can not be reached
+	 */
+	public long getChargingTime(float targetSoc, float energy, Battery battery) {
+		double soc = energy / battery.getEBatMax();
+		double target = targetSoc / 100d;
+		if (target <= soc) return 0;
+		if (target > 1) return Long.MAX_VALUE;
+		return (long) Math.ceil((getTime(target) - getTime(soc)) * 1000);
+	}
+
+	/**
+	 * Returns the charging power at the given SOC. The power decreases with the SOC, so the power at the start of an interval is its peak power.
+	 *
+	 * @param energy  energy content of the battery in J
+	 * @param battery vehicle's battery
+	 * @return charging power in W
+	 */
+	public float getPower(float energy, Battery battery) {
+		double soc = energy / battery.getEBatMax();
+		if (soc >= 1) return 0;
+		if (soc <= s) return p_max;
+		return (float) (p_max * Math.exp((s - soc) / k_l));
+	}
+
+	/**
+	 * @param soc SOC in [0;1]
+	 * @return charging time from SOC 0 up to the given SOC in s
+	 */
+	private double getTime(double soc) {
+		double x = Math.max(0, Math.min(1, soc)) * STEPS;
+		int i = Math.min((int) x, STEPS - 1);
+		return time[i] + (time[i + 1] - time[i]) * (x - i);
+	}
+
+	/**
+	 * @param t charging time from SOC 0 in s
+	 * @return SOC reached after the given charging time in [0;1]
+	 */
+	private double getSoc(double t) {
+		if (t >= time[STEPS]) return 1;
+		if (t <= 0) return 0;
+		int i = Arrays.binarySearch(time, t);
+		if (i >= 0) return (double) i / STEPS;
+		i = -i - 2;    // last entry smaller than t
+		return (i + (t - time[i]) / (time[i + 1] - time[i])) / STEPS;
+	}
+
+	/**
+	 * Battery parameters and charging power which define a charging curve
+	 */
+	private static class Key {
+		private final float p_max;
+		private final float e_bat_max;
+		private final float u_cell_n;
+		private final float u_cell_ls;
+		private final float eta_l;
+
+		Key(float p_max, Battery battery) {
+			this.p_max = p_max;
+			this.e_bat_max = battery.getEBatMax();
+			this.u_cell_n = battery.getU_cell_n();
+			this.u_cell_ls = battery.getU_cell_ls();
+			this.eta_l = battery.getEta_l();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) return false;
+			Key k = (Key) o;
+			return Float.compare(p_max, k.p_max) == 0 && Float.compare(e_bat_max, k.e_bat_max) == 0 && Float.compare(u_cell_n, k.u_cell_n) == 0
+					&& Float.compare(u_cell_ls, k.u_cell_ls) == 0 && Float.compare(eta_l, k.eta_l) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(new float[]{p_max, e_bat_max, u_cell_n, u_cell_ls, eta_l});
+		}
+	}
+}
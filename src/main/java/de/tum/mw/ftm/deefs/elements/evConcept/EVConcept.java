@@ -85,6 +85,16 @@ public class EVConcept {
 		return this.e_mean * distance;
 	}
 
+	/**
+	 * Calculates the energy needed in J for a given distance in m, e.g. the distance of a route
+	 *
+	 * @param distance in <b>m</b>
+	 * @return needed energy in <b>J</b>
+	 */
+	public float getNeededEnergy(double distance) {
+		return (float) (this.e_mean * distance);
+	}
+
 	@Override
 	public String toString() {
 		return conceptName;
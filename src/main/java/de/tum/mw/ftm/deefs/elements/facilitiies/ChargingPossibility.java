@@ -20,7 +20,7 @@ public interface ChargingPossibility {
 	int numberOfAvailableCP();
 
 	/**
-	 * Looks if there are <b>free</b> and <b>compatible</b> charing points
+	 * Looks if there are <b>free</b> and <b>compatible</b> charing points. Charging points reserved by arriving cars are not free.
 	 *
 	 * @param ci charging interface requirement
 	 * @return <b>true</b> if there are free and compatible charing points, <b>false</b> otherwise
@@ -35,6 +35,13 @@ public interface ChargingPossibility {
 	 */
 	Connector bestConnector(ChargingInterface ci);
 
+	/**
+	 * Returns the connector types which are offered by at least one free charging point right now. Charging points reserved by arriving cars are not free.
+	 *
+	 * @return bitmask of connector types with free charging points, see {@link de.tum.mw.ftm.deefs.elements.eMobilityComponents.Connector#getTypeMask(int)}
+	 */
+	int getFreeTypeMask();
+
 	/**
 	 * Checks if the given charging interface is compatible to this charging possibility
 	 *
@@ -70,6 +77,26 @@ public interface ChargingPossibility {
 	 */
 	boolean abortWaiting(BEVTaxi car, long time);
 
+	/**
+	 * Reserves a compatible charging point for the given car, from its expected arrival until its expected end of charging.
+	 * The reserved charging point is kept for the car and can not be taken by other cars checking in.
+	 *
+	 * @param car     car which will arrive
+	 * @param arrival expected arrival time in ms
+	 * @param energy  expected battery energy of the car at arrival in J
+	 * @return <b>true</b> if a charging point was reserved, <b>false</b> otherwise
+	 */
+	boolean reserve(BEVTaxi car, long arrival, float energy);
+
+	/**
+	 * Cancels the reservation of the given car.
+	 *
+	 * @param car  car which made the reservation
+	 * @param time simulation time in ms
+	 * @return <b>true</b> if the reservation was cancelled, <b>false</b> if the car had no reservation
+	 */
+	boolean cancelReservation(BEVTaxi car, long time);
+
 
 	/**
 	 * Returns the number of waiting cars in queue
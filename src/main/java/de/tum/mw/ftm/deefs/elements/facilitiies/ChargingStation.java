@@ -1,24 +1,23 @@
 package de.tum.mw.ftm.deefs.elements.facilitiies;
 
 import de.tum.mw.ftm.deefs.Scenario;
-import de.tum.mw.ftm.deefs.comparators.BestChargingPointComparator;
 import de.tum.mw.ftm.deefs.elements.eMobilityComponents.ChargingInterface;
 import de.tum.mw.ftm.deefs.elements.eMobilityComponents.ChargingPoint;
 import de.tum.mw.ftm.deefs.elements.eMobilityComponents.Connector;
 import de.tum.mw.ftm.deefs.elements.taxi.BEVTaxi;
 import de.tum.mw.ftm.deefs.elements.taxi.Taxi;
-import de.tum.mw.ftm.deefs.events.FreeSpaceEvent;
 import de.tum.mw.ftm.deefs.location.Position;
-import de.tum.mw.ftm.deefs.log.FacilityStats;
+import de.tum.mw.ftm.deefs.utils.IndexedQueue;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Represents a charging Station in the behavior model.
  * A Charging station is a collection of one or more charging points an has a physical location
  * To create a instance of ChargingPoint use {@link FacilityFactory}.
  * Every charging station consists of at least one charging point.
+ * <p> Searches only offer vacant charging points, i.e. points without connected car which are not reserved by an arriving car, see {@link ChargingPoint#isVacant()}.
+ * The vacant points are counted per connector type and power level, the counters are updated by the charging points.
  *
  * @author Michael Wittmann
  * @see FacilityFactory
@@ -30,9 +29,19 @@ public class ChargingStation extends Facility implements ChargingPossibility {
 	//Charging action identifiers
 	public static String ACTION_CHECKIN_TO_QUEUE = "CHECK_IN_TO_QUEUE";
 	public static String ACTION_ABORT_WAITING = "ABORT_WAITING";
+	public static String ACTION_RESERVE = "RESERVE";
+	public static String ACTION_CANCEL_RESERVATION = "CANCEL_RESERVATION";
 	private final List<ChargingPoint> chargingPoints;            //list with available charging points
-	private final LinkedList<BEVTaxi> queue;                    //waiting vehicle queue
+	private final IndexedQueue<BEVTaxi> queue;                  //waiting vehicle queue
 	private final Map<BEVTaxi, ChargingPoint> chargingCars;    //list with all charging cars
+	private final Map<BEVTaxi, ChargingPoint> reservations;    //reserved charging points of arriving cars
+	private final int typeMask;                                //bitmask of all connector types offered by the charging points
+	private final Map<ChargingInterface, List<ChargingPoint>> compatiblePoints;    //compatible charging points per car charging interface, most powerful first
+	private final int[] freeByType;                            //number of vacant charging points per connector type
+	private final Connector[][] powerLevels;                   //distinct most powerful connectors of the charging points per type, ascending by power
+	private final int[][] freeByLevel;                         //number of vacant charging points per connector type and power level
+	private final Connector[] bestFreeByType;                  //most powerful connector of the vacant charging points per type
+	private int freeMask = 0;                                  //bitmask of connector types with at least one vacant charging point
 
 
 	/**
@@ -48,10 +57,33 @@ public class ChargingStation extends Facility implements ChargingPossibility {
 		if (!chargingPoints.isEmpty()) {
 			this.chargingPoints = chargingPoints;
 			for (ChargingPoint chargingPoint : chargingPoints) {
-				chargingPoint.setParentFacility(this.getId());
+				chargingPoint.setParentFacility(this);
 			}
 			chargingCars = new HashMap<>(chargingPoints.size());
-			queue = new LinkedList<>();
+			reservations = new HashMap<>();
+			compatiblePoints = new HashMap<>();
+			queue = new IndexedQueue<>();
+			int mask = 0;
+			for (ChargingPoint chargingPoint : chargingPoints) {
+				mask |= chargingPoint.getChargingInterface().getTypeMask();
+			}
+			typeMask = mask;
+			freeByType = new int[Connector.TYPE_SUPERCHARGER + 1];
+			bestFreeByType = new Connector[Connector.TYPE_SUPERCHARGER + 1];
+			powerLevels = new Connector[Connector.TYPE_SUPERCHARGER + 1][];
+			freeByLevel = new int[Connector.TYPE_SUPERCHARGER + 1][];
+			for (int type = Connector.TYPE_SCHUKO; type <= Connector.TYPE_SUPERCHARGER; type++) {
+				TreeMap<Float, Connector> levels = new TreeMap<>();
+				for (ChargingPoint chargingPoint : chargingPoints) {
+					Connector c = chargingPoint.getChargingInterface().getBestConnector(type);
+					if (c != null) levels.putIfAbsent(c.getPMax(), c);
+				}
+				powerLevels[type] = levels.values().toArray(new Connector[0]);
+				freeByLevel[type] = new int[powerLevels[type].length];
+			}
+			for (ChargingPoint chargingPoint : chargingPoints) {
+				if (chargingPoint.isVacant()) countFreeChargingPoints(chargingPoint, 1);
+			}
 		} else {
 			throw new RuntimeException("Error while creating an instance of ChargingStation: there must be at least one charging point!");
 		}
@@ -69,36 +101,72 @@ public class ChargingStation extends Facility implements ChargingPossibility {
 
 	@Override
 	public boolean loginToQueue(BEVTaxi car, long time) {
-		scenario.getDBLog().addFacilityStats(new FacilityStats(this.id, car.getId(), time, ACTION_CHECKIN_TO_QUEUE, chargingCars.size(), (queue.size() + 1)));
-		return queue.add(car);
+		if (queue.contains(car)) return false;
+		scenario.getResultSink().addFacilityStats(this.id, car.getId(), time, ACTION_CHECKIN_TO_QUEUE, chargingCars.size(), (queue.size() + 1));
+		scenario.getKpiAccounting().enterQueue(this.id, car.getId(), time);
+		return queue.offer(car);
 	}
 
 	@Override
 	public boolean abortWaiting(BEVTaxi car, long time) {
-		scenario.getDBLog().addFacilityStats(new FacilityStats(this.id, car.getId(), time, ACTION_ABORT_WAITING, chargingCars.size(), (queue.size() - 1)));
+		scenario.getResultSink().addFacilityStats(this.id, car.getId(), time, ACTION_ABORT_WAITING, chargingCars.size(), (queue.size() - 1));
+		scenario.getKpiAccounting().leaveQueue(this.id, car.getId(), time);
 		return queue.remove(car);
 	}
 
+	@Override
+	public boolean reserve(BEVTaxi car, long arrival, float energy) {
+		//waiting cars are served first
+		if (!queue.isEmpty()) return false;
+		ChargingPoint reserved = reservations.remove(car);
+		if (reserved != null) reserved.cancelReservation(car);
+		//choose the most powerful charging point, which is free from the arrival until the expected end of charging
+		for (ChargingPoint cp : getCompatibleChargingPoints(car.getChargingInterface())) {
+			if (cp.reserve(car, arrival, cp.getExpectedEnd(car, arrival, energy))) {
+				reservations.put(car, cp);
+				scenario.getResultSink().addFacilityStats(this.id, car.getId(), arrival, ACTION_RESERVE, chargingCars.size(), queue.size());
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean cancelReservation(BEVTaxi car, long time) {
+		ChargingPoint cp = reservations.remove(car);
+		if (cp != null && cp.cancelReservation(car)) {
+			scenario.getResultSink().addFacilityStats(this.id, car.getId(), time, ACTION_CANCEL_RESERVATION, chargingCars.size(), queue.size());
+			notifyWaitingCar(time);
+			return true;
+		}
+		return false;
+	}
+
 	@Override
 	public boolean checkInCar(Taxi car, long time) {
 		if (car instanceof BEVTaxi) {
-			//check if there are empty compatible spots
-			List<ChargingPoint> cps = chargingPoints.stream().filter(c -> c.isAvailable() && c.isCompatibleTo(((BEVTaxi) car).getChargingInterface())).collect(Collectors.toList());
-			if (cps.isEmpty()) {
-				scenario.getDBLog().addFacilityStats(new FacilityStats(this.id, car.getId(), time, ACTION_CHECKIN_DENIED, chargingCars.size(), queue.size()));
-				return false;
+			BEVTaxi taxi = (BEVTaxi) car;
+			ChargingPoint cp = reservations.remove(taxi);
+			if (cp != null && !cp.isAvailable()) {
+				//the car connected before is still charging
+				cp.cancelReservation(taxi);
+				cp = null;
 			}
-			//choose best pssoible connector
-			ChargingPoint cp = Collections.max(cps, new BestChargingPointComparator(((BEVTaxi) car).getChargingInterface()));
-			if (cp.connect((BEVTaxi) car, time)) {
-				chargingCars.put((BEVTaxi) car, cp);
-				scenario.getDBLog().addFacilityStats(new FacilityStats(this.id, car.getId(), time, ACTION_CHECKIN, chargingCars.size(), queue.size()));
+			if (cp == null) {
+				cp = findFreeChargingPoint(taxi, time);
+			}
+			if (cp != null && cp.connect(taxi, time)) {
+				queue.remove(taxi);
+				chargingCars.put(taxi, cp);
+				scenario.getResultSink().addFacilityStats(this.id, car.getId(), time, ACTION_CHECKIN, chargingCars.size(), queue.size());
+				scenario.getKpiAccounting().checkIn(this.id, car.getId(), time);
 				return true;
 			}
 		} else {
 			System.err.println("Car must be type of BEV to connect to a charging station");
 		}
-		scenario.getDBLog().addFacilityStats(new FacilityStats(this.id, car.getId(), time, ACTION_CHECKIN_DENIED, chargingCars.size(), queue.size()));
+		scenario.getResultSink().addFacilityStats(this.id, car.getId(), time, ACTION_CHECKIN_DENIED, chargingCars.size(), queue.size());
+		scenario.getKpiAccounting().checkInDenied(this.id);
 		return false;
 	}
 
@@ -106,21 +174,50 @@ public class ChargingStation extends Facility implements ChargingPossibility {
 	public boolean checkOutCar(Taxi car, long time) {
 		if (chargingCars.get(car).disconnect(time)) {
 			chargingCars.remove(car);
-			scenario.getDBLog().addFacilityStats(new FacilityStats(this.id, car.getId(), time, ACTION_CHECKOUT, chargingCars.size(), queue.size()));
-			if (!queue.isEmpty()) {
-				//Notify the the car waiting longest
-				BEVTaxi taxi = queue.poll();
-				this.addObserver(taxi);
-				setChanged();
-				notifyObservers(new FreeSpaceEvent(time));
-				this.deleteObserver(taxi);
-			}
-
+			scenario.getResultSink().addFacilityStats(this.id, car.getId(), time, ACTION_CHECKOUT, chargingCars.size(), queue.size());
+			scenario.getKpiAccounting().checkOut(this.id, car.getId(), time);
+			notifyWaitingCar(time);
 			return true;
 		}
 		return false;
 	}
 
+	/**
+	 * Notifies the car waiting longest, which is able to connect to a charging point now, see {@link #findFreeChargingPoint(BEVTaxi, long)}.
+	 * The car stays in the queue until it is checked in, so the queue and the queue times are only changed by a successful check in.
+	 *
+	 * @param time simulation time in ms
+	 */
+	private void notifyWaitingCar(long time) {
+		if (queue.isEmpty() || chargingCars.size() == chargingPoints.size()) return;
+		BEVTaxi next = null;
+		for (BEVTaxi taxi : queue) {
+			if (findFreeChargingPoint(taxi, time) != null) {
+				next = taxi;
+				break;
+			}
+		}
+		if (next != null) {
+			next.onFreeChargingSpace(time);
+		}
+	}
+
+	/**
+	 * Chooses the most powerful compatible charging point, the given car could connect to now without colliding with the reservations of other cars.
+	 * See BestChargingPointComparator.
+	 *
+	 * @param car  car which wants to connect
+	 * @param time simulation time in ms
+	 * @return charging point or <b>null</b> if the car can't connect now
+	 * @see ChargingPoint#isFree(BEVTaxi, long)
+	 */
+	private ChargingPoint findFreeChargingPoint(BEVTaxi car, long time) {
+		for (ChargingPoint cp : getCompatibleChargingPoints(car.getChargingInterface())) {
+			if (cp.isFree(car, time)) return cp;
+		}
+		return null;
+	}
+
 	@Override
 	public int numberOfAvailableCP() {
 		return getRemainingSpace();
@@ -128,24 +225,136 @@ public class ChargingStation extends Facility implements ChargingPossibility {
 
 	@Override
 	public boolean hasFreeChargingPoints(ChargingInterface ci) {
-		List<ChargingPoint> cps = chargingPoints.stream().filter(c -> c.isAvailable() && c.isCompatibleTo(ci)).collect(Collectors.toList());
-		return !cps.isEmpty();
+		return (freeMask & ci.getTypeMask()) != 0;
 	}
 
+	/**
+	 * Looks for the most powerful connector of the vacant charging points. The most powerful vacant connector of each type
+	 * is kept up to date whenever a charging point becomes vacant or stops being vacant, so only the common types have to be compared.
+	 *
+	 * @param ci charging interface requirement
+	 * @return best possible connector or <b>null</b> if there is no compatible vacant charging point
+	 */
 	@Override
 	public Connector bestConnector(ChargingInterface ci) {
-		List<ChargingPoint> cps = chargingPoints.stream().filter(c -> c.isAvailable() && c.isCompatibleTo(ci)).collect(Collectors.toList());
-		if (cps.isEmpty()) {
-			return null;
-		} else {
-			return Collections.max(cps, new BestChargingPointComparator(ci)).getBestConnector(ci);
+		return ci.getBestConnector(bestFreeByType, freeMask);
+	}
+
+	/**
+	 * Returns the number of vacant charging points offering the given connector type, see {@link ChargingPoint#isVacant()}
+	 *
+	 * @param type connector type
+	 * @return number of vacant charging points offering the given type
+	 */
+	public int getNumberOfFreeChargingPoints(int type) {
+		return freeByType[type];
+	}
+
+	@Override
+	public int getFreeTypeMask() {
+		return freeMask;
+	}
+
+	/**
+	 * Updates the counters of vacant charging points by the connector types of the given charging point.
+	 * Has to be called by the charging point whenever it becomes vacant or stops being vacant, i.e. a car is connected or disconnected
+	 * or a reservation is made or cancelled.
+	 *
+	 * @param cp    charging point whose vacancy changed
+	 * @param delta -1 if the charging point was taken or reserved, 1 if it became vacant
+	 * @see ChargingPoint#isVacant()
+	 */
+	public void onVacancyChanged(ChargingPoint cp, int delta) {
+		int oldMask = freeMask;
+		countFreeChargingPoints(cp, delta);
+		if (oldMask != freeMask && scenario.getFacilities() != null) {
+			scenario.getFacilities().onFreeTypesChanged(this, oldMask, freeMask);
 		}
 	}
 
+	/**
+	 * Adds delta to the counters of all connector types of the given charging point and updates the bitmask of free types
+	 * and the most powerful free connector of each type.
+	 *
+	 * @param cp    charging point
+	 * @param delta change of the number of vacant charging points
+	 */
+	private void countFreeChargingPoints(ChargingPoint cp, int delta) {
+		int cpMask = cp.getChargingInterface().getTypeMask();
+		for (int type = Connector.TYPE_SCHUKO; type <= Connector.TYPE_SUPERCHARGER; type++) {
+			int bit = Connector.getTypeMask(type);
+			if ((cpMask & bit) == 0) continue;
+			int level = getPowerLevel(type, cp.getChargingInterface().getBestConnector(type));
+			freeByType[type] += delta;
+			freeByLevel[type][level] += delta;
+			if (delta > 0) {
+				if (bestFreeByType[type] == null || powerLevels[type][level].compareTo(bestFreeByType[type]) > 0) {
+					bestFreeByType[type] = powerLevels[type][level];
+				}
+			} else if (freeByLevel[type][level] == 0 && powerLevels[type][level] == bestFreeByType[type]) {
+				//the last free charging point of the best level was taken, continue with the next lower level
+				bestFreeByType[type] = null;
+				for (int l = level - 1; l >= 0; l--) {
+					if (freeByLevel[type][l] > 0) {
+						bestFreeByType[type] = powerLevels[type][l];
+						break;
+					}
+				}
+			}
+			if (freeByType[type] > 0) {
+				freeMask |= bit;
+			} else {
+				freeMask &= ~bit;
+			}
+		}
+	}
+
+	/**
+	 * Looks up the power level of the given connector
+	 *
+	 * @param type connector type
+	 * @param c    most powerful connector of a charging point of this station with the given type
+	 * @return index of the connector's power in the power levels of the type
+	 */
+	private int getPowerLevel(int type, Connector c) {
+		Connector[] levels = powerLevels[type];
+		int low = 0;
+		int high = levels.length - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (levels[mid].compareTo(c) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the charging points compatible to the given charging interface, ordered by the power they support together with it,
+	 * the most powerful first. Charging points with equal power keep their order. The list is computed once per charging interface.
+	 *
+	 * @param ci charging interface of a car
+	 * @return compatible charging points, most powerful first. The list must not be modified.
+	 * @see de.tum.mw.ftm.deefs.comparators.BestChargingPointComparator
+	 */
+	private List<ChargingPoint> getCompatibleChargingPoints(ChargingInterface ci) {
+		List<ChargingPoint> compatible = compatiblePoints.get(ci);
+		if (compatible == null) {
+			compatible = new ArrayList<>();
+			for (ChargingPoint cp : chargingPoints) {
+				if (cp.isCompatibleTo(ci)) compatible.add(cp);
+			}
+			compatible.sort((cp1, cp2) -> Float.compare(cp2.getChargingInterface().getBestPower(ci), cp1.getChargingInterface().getBestPower(ci)));
+			compatiblePoints.put(ci, compatible);
+		}
+		return compatible;
+	}
+
 	@Override
 	public boolean isCompatible(ChargingInterface ci) {
-		List<ChargingPoint> cps = chargingPoints.stream().filter(c -> c.isCompatibleTo(ci)).collect(Collectors.toList());
-		return !cps.isEmpty();
+		return (typeMask & ci.getTypeMask()) != 0;
 	}
 
 	@Override
@@ -157,6 +366,44 @@ public class ChargingStation extends Facility implements ChargingPossibility {
 		}
 	}
 
+	/**
+	 * Calculates the charge of the given car up to the given time, if it is connected to a charging point of this station.
+	 *
+	 * @param car  charging car
+	 * @param time simulation time in ms
+	 * @see ChargingPoint#evaluateCharge(long)
+	 */
+	public void updateCharge(BEVTaxi car, long time) {
+		ChargingPoint cp = chargingCars.get(car);
+		if (cp != null) cp.evaluateCharge(time);
+	}
+
+	/**
+	 * Projects the SOC of the given car at the given time without charging it.
+	 *
+	 * @param car  charging car
+	 * @param time simulation time in ms
+	 * @return projected SOC in %, the battery's SOC if the car is not connected to a charging point of this station
+	 * @see ChargingPoint#getProjectedSoc(long)
+	 */
+	public float getProjectedSoc(BEVTaxi car, long time) {
+		ChargingPoint cp = chargingCars.get(car);
+		return cp != null ? cp.getProjectedSoc(time) : car.getConcept().getBattery().getSoc();
+	}
+
+	/**
+	 * Returns the power of all charging points charging at the same time with their most powerful connector.
+	 *
+	 * @return installed charging power in W
+	 */
+	public float getInstalledPower() {
+		float power = 0;
+		for (ChargingPoint chargingPoint : chargingPoints) {
+			power += chargingPoint.getChargingInterface().getMaxPower();
+		}
+		return power;
+	}
+
 	@Override
 	public String toString() {
 		return String.format("ID:%d CP%d(%d)", getId(), getRemainingSpace(), getCapacity());
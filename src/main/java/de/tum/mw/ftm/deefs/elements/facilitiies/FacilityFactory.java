@@ -71,7 +71,7 @@ public class FacilityFactory {
 		} catch (ParserConfigurationException | SAXException | IOException pce) {
 			pce.printStackTrace();
 		}
-		return new FacilityList(facilities);
+		return new FacilityList(facilities, scenario.getRandom().split());
 	}
 
 	private ChargingStation getChargingStation(Element e) {
@@ -164,7 +164,7 @@ public class FacilityFactory {
 //		ranks.put(rank.id, rank);
 //		rank = new TaxiRank(4, new Position(48.158277, 11.511351), 1, null);
 //		ranks.put(rank.id, rank);
-		return new FacilityList(facilities);
+		return new FacilityList(facilities, scenario.getRandom().split());
 	}
 }
 
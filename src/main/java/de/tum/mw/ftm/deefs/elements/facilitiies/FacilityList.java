@@ -1,6 +1,6 @@
 package de.tum.mw.ftm.deefs.elements.facilitiies;
 
-import com.graphhopper.GHRequest;
+import de.tum.mw.ftm.deefs.Config;
 import de.tum.mw.ftm.deefs.comparators.ChargingPossibilityFastestComparator;
 import de.tum.mw.ftm.deefs.comparators.chains.CoarseNextChargingPossibilityComparatorChain;
 import de.tum.mw.ftm.deefs.comparators.chains.NextChargingPossibilityComparatorChain;
@@ -9,10 +9,10 @@ import de.tum.mw.ftm.deefs.elements.eMobilityComponents.ChargingInterface;
 import de.tum.mw.ftm.deefs.elements.eMobilityComponents.Connector;
 import de.tum.mw.ftm.deefs.graphopper.extensions.MyGraphHopper;
 import de.tum.mw.ftm.deefs.location.Position;
+import de.tum.mw.ftm.deefs.location.SpatialGrid;
 import de.tum.mw.ftm.deefs.utils.RandomNumber;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 
 /**
@@ -23,29 +23,42 @@ import java.util.stream.Collectors;
  */
 public class FacilityList {
 
+	private static final double GRID_CELL_SIZE = Double.parseDouble(Config.getProperty(Config.FACILITY_GRID_CELL_SIZE, "1000")); // cell size of the charging possibility index in m
+
 	private final Map<Integer, TaxiRank> ranks;                        // container for all taxi ranks in the simulation scenario
 	private final Map<Integer, ChargingPossibility> chargingPoints;   // container for all charging possibilities in the simulation scenario
+	private final RankScoreboard rankScoreboard;                               // taxi ranks in selection order, see NextRankComparatorChain
+	private final int[] freeByType;                                            // number of charging possibilities with free charging points per connector type
+	private final Map<Integer, SpatialGrid<ChargingPossibility>> compatibleIndex;   // spatial index of the compatible charging possibilities per connector type mask of a charging interface
+	private final RandomNumber random;                                          // random stream for rank selection, split from the scenario's root stream
 
 
 	/**
 	 * New instance of facility list. Different types of Facilities are managed automatically in this Object.
 	 *
 	 * @param facilities Facilities
+	 * @param random     random stream for random selections, split from the scenario's root stream
 	 * @see TaxiRank
 	 * @see ChargingStation
 	 */
-	public FacilityList(List<Facility> facilities) {
+	public FacilityList(List<Facility> facilities, RandomNumber random) {
+		this.random = random;
 		//putting facilities into right containers... 
 		this.chargingPoints = new HashMap<>();
+		this.compatibleIndex = new HashMap<>();
+		this.freeByType = new int[Connector.TYPE_SUPERCHARGER + 1];
 		for (Facility f : facilities) {
 			if (f instanceof ChargingPossibility) {
 				this.chargingPoints.put(f.getId(), (ChargingPossibility) f);
+				onFreeTypesChanged((ChargingPossibility) f, 0, ((ChargingPossibility) f).getFreeTypeMask());
 			}
 		}
 		this.ranks = new HashMap<>();
+		this.rankScoreboard = new RankScoreboard();
 		for (Facility facility : facilities) {
 			if (facility instanceof TaxiRank) {
 				ranks.put(facility.getId(), (TaxiRank) facility);
+				rankScoreboard.add((TaxiRank) facility);
 			}
 		}
 	}
@@ -59,9 +72,12 @@ public class FacilityList {
 	public void add(Facility f) {
 		if (f instanceof ChargingPossibility) {
 			this.chargingPoints.put(f.getId(), (ChargingPossibility) f);
+			compatibleIndex.clear();
+			onFreeTypesChanged((ChargingPossibility) f, 0, ((ChargingPossibility) f).getFreeTypeMask());
 		}
 		if (f instanceof TaxiRank) {
 			ranks.put(f.getId(), (TaxiRank) f);
+			rankScoreboard.add((TaxiRank) f);
 		}
 	}
 
@@ -72,18 +88,6 @@ public class FacilityList {
 		return new ArrayList<>(ranks.values());
 	}
 
-	/**
-	 * Filters all listed charging possibilities which are compatible to the given Connector
-	 *
-	 * @param ci Connector which shell be compatible
-	 * @return list with all charging possibilities that are compatible to the given Connector
-	 * @see Connector
-	 */
-	public List<ChargingPossibility> getCompatibleChargingPoints(ChargingInterface ci) {
-		return chargingPoints.values().stream().filter(c -> c.isCompatible(ci)).collect(Collectors.toList());
-	}
-
-
 	/**
 	 * @return All listed charging points
 	 */
@@ -119,6 +123,62 @@ public class FacilityList {
 	}
 
 
+	/**
+	 * Updates the number of charging possibilities with free charging points. Has to be called by a charging possibility whenever
+	 * the connector types of its free charging points change.
+	 *
+	 * @param c       charging possibility
+	 * @param oldMask previous bitmask of connector types with free charging points
+	 * @param newMask actual bitmask of connector types with free charging points
+	 * @see ChargingPossibility#getFreeTypeMask()
+	 */
+	public void onFreeTypesChanged(ChargingPossibility c, int oldMask, int newMask) {
+		for (int type = Connector.TYPE_SCHUKO; type <= Connector.TYPE_SUPERCHARGER; type++) {
+			int bit = Connector.getTypeMask(type);
+			if ((oldMask & bit) != 0 && (newMask & bit) == 0) {
+				freeByType[type]--;
+			} else if ((oldMask & bit) == 0 && (newMask & bit) != 0) {
+				freeByType[type]++;
+			}
+		}
+	}
+
+	/**
+	 * Checks if there is at least one charging possibility with free charging points compatible to the given charging interface right now.
+	 * Charging points reserved by arriving cars are not free, so searches don't send cars to them.
+	 *
+	 * @param ci charging interface requirement
+	 * @return <b>true</b> if there is free compatible capacity, <b>false</b> otherwise
+	 */
+	public boolean hasFreeChargingCapacity(ChargingInterface ci) {
+		for (int type = Connector.TYPE_SCHUKO; type <= Connector.TYPE_SUPERCHARGER; type++) {
+			if ((ci.getTypeMask() & Connector.getTypeMask(type)) != 0 && freeByType[type] > 0) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the spatial index over all charging possibilities compatible to the given charging interface, so searches never visit incompatible ones.
+	 * All charging interfaces with the same connector type mask are compatible to the same charging possibilities, the index is built once per type mask.
+	 * Charging possibilities don't move, the indexes are only rebuilt if a charging possibility is added.
+	 *
+	 * @param ci charging interface requirement
+	 * @return spatial index over the compatible charging possibilities
+	 * @see SpatialGrid
+	 */
+	private SpatialGrid<ChargingPossibility> getChargingPossibilityIndex(ChargingInterface ci) {
+		SpatialGrid<ChargingPossibility> index = compatibleIndex.get(ci.getTypeMask());
+		if (index == null) {
+			List<ChargingPossibility> compatible = new ArrayList<>();
+			for (ChargingPossibility c : chargingPoints.values()) {
+				if (c.isCompatible(ci)) compatible.add(c);
+			}
+			index = new SpatialGrid<>(compatible, c -> ((Facility) c).getPosition(), GRID_CELL_SIZE);
+			compatibleIndex.put(ci.getTypeMask(), index);
+		}
+		return index;
+	}
+
 	/**
 	 * Looks for the closest compatible charging possibility which does not have a queue. Selection is made on selection rules defined in {@link CoarseNextChargingPossibilityComparatorChain}.
 	 * In addition it is possible to exclude a Facility from the search process. This is necessary if an agent is already at a facility, but wants to find an other one.
@@ -131,19 +191,8 @@ public class FacilityList {
 	 * @return selected charging possibility or <b> null</b> if no possibility was found
 	 * @see CoarseNextChargingPossibilityComparatorChain
 	 */
-	@SuppressWarnings("unchecked")
 	public ChargingPossibility findClosestChargingPossibilityWithoutQueue(ChargingInterface ci, Position pos, int excluded_facility) {
-		List<ChargingPossibility> collection = getCompatibleChargingPoints(ci);
-		if (excluded_facility != 0) {
-			collection = collection.stream().filter(c -> ((Facility) c).getId() != excluded_facility).collect(Collectors.toList());
-		}
-		collection = collection.stream().filter(c -> c.getQueueSize() == 0).collect(Collectors.toList());
-		if (!collection.isEmpty()) {
-			return Collections.min(collection, new CoarseNextChargingPossibilityComparatorChain(pos));
-		} else {
-			return null;
-		}
-
+		return getChargingPossibilityIndex(ci).nearest(pos, c -> ((Facility) c).getId() != excluded_facility && c.getQueueSize() == 0);
 	}
 
 
@@ -159,19 +208,9 @@ public class FacilityList {
 	 * @return selected charging possibility or <b> null</b> if no possibility was found
 	 * @see CoarseNextChargingPossibilityComparatorChain
 	 */
-	@SuppressWarnings("unchecked")
 	public ChargingPossibility findClosestChargingFreePossibility(ChargingInterface ci, Position pos, int excluded_facility) {
-		List<ChargingPossibility> collection = getCompatibleChargingPoints(ci);
-		if (excluded_facility != 0) {
-			collection = collection.stream().filter(c -> ((Facility) c).getId() != excluded_facility).collect(Collectors.toList());
-		}
-		collection = collection.stream().filter(c -> c.hasFreeChargingPoints(ci)).collect(Collectors.toList());
-		if (!collection.isEmpty()) {
-			return Collections.min(collection, new CoarseNextChargingPossibilityComparatorChain(pos));
-		} else {
-			return null;
-		}
-
+		if (!hasFreeChargingCapacity(ci)) return null;
+		return getChargingPossibilityIndex(ci).nearest(pos, c -> ((Facility) c).getId() != excluded_facility && c.hasFreeChargingPoints(ci));
 	}
 
 
@@ -188,27 +227,14 @@ public class FacilityList {
 	 * @return selected charging possibility or <b> null</b> if no possibility was found
 	 * @see NextChargingPossibilityComparatorChain
 	 */
-	@SuppressWarnings("unchecked")
 	public ChargingPossibility findFreeChargingPossibilityInRange(ChargingInterface ci, Position pos, float range, MyGraphHopper hopper, int excluded_facility) {
-		List<ChargingPossibility> collection = getCompatibleChargingPoints(ci);
-		if (excluded_facility != 0) {
-			collection = collection.stream().filter(c -> ((Facility) c).getId() != excluded_facility).collect(Collectors.toList());
-		}
-		//Looking for free cps in coarse range
-		collection = collection.stream().filter(c -> c.hasFreeChargingPoints(ci) && ((Facility) c).getPosition().calcDist(pos) <= range).collect(Collectors.toList());
+		if (!hasFreeChargingCapacity(ci)) return null;
+		//Looking for the 3 closest free cps in coarse range
+		List<ChargingPossibility> collection = getChargingPossibilityIndex(ci).nearest(pos, 3, range,
+				c -> ((Facility) c).getId() != excluded_facility && c.hasFreeChargingPoints(ci));
 		if (!collection.isEmpty()) {
-			//sorting collection and choose just the 3 closest
-			collection.sort(new CoarseNextChargingPossibilityComparatorChain(pos));
-			if (collection.size() > 3) {
-				collection.subList(3, collection.size()).clear();
-			}
-			//filter out the ones out of exact range
-			collection = collection.stream().filter(c -> hopper.route(new GHRequest(pos.getLat(), pos.getLon(), ((Facility) c).getPosition().getLat(), ((Facility) c).getPosition().getLon())).getDistance() <= range).collect(Collectors.toList());
-			if (!collection.isEmpty()) {
-				return Collections.min(collection, new NextChargingPossibilityComparatorChain(pos, ci, range, hopper));
-			} else {
-				return null;
-			}
+			//filter out the ones out of exact range, each route is calculated only once
+			return NextChargingPossibilityComparatorChain.rankInRange(collection, pos, ci, range, hopper).min();
 		} else {
 			return null;
 		}
@@ -227,27 +253,13 @@ public class FacilityList {
 	 * @return selected charging possibility or <b> null</b> if no possibility was found
 	 * @see NextChargingPossibilityComparatorChain
 	 */
-	@SuppressWarnings("unchecked")
 	public ChargingPossibility findClosestChargingPossibilityInRange(ChargingInterface ci, Position pos, float range, MyGraphHopper hopper, int excluded_facility) {
-		List<ChargingPossibility> collection = getCompatibleChargingPoints(ci);
-		if (excluded_facility != 0) {
-			collection = collection.stream().filter(c -> ((Facility) c).getId() != excluded_facility).collect(Collectors.toList());
-		}
-		//Looking for free cps in coarse range
-		collection = collection.stream().filter(c -> ((Facility) c).getPosition().calcDist(pos) <= range).collect(Collectors.toList());
+		//Looking for the 3 closest cps in coarse range
+		List<ChargingPossibility> collection = getChargingPossibilityIndex(ci).nearest(pos, 3, range,
+				c -> ((Facility) c).getId() != excluded_facility);
 		if (!collection.isEmpty()) {
-			//sorting collection and choose just the 3 closest
-			collection.sort(new CoarseNextChargingPossibilityComparatorChain(pos));
-			if (collection.size() > 3) {
-				collection.subList(3, collection.size()).clear();
-			}
-			//filter out the ones out of exact range
-			collection = collection.stream().filter(c -> hopper.route(new GHRequest(pos.getLat(), pos.getLon(), ((Facility) c).getPosition().getLat(), ((Facility) c).getPosition().getLon())).getDistance() <= range).collect(Collectors.toList());
-			if (!collection.isEmpty()) {
-				return Collections.min(collection, new NextChargingPossibilityComparatorChain(pos, ci, range, hopper));
-			} else {
-				return null;
-			}
+			//filter out the ones out of exact range, each route is calculated only once
+			return NextChargingPossibilityComparatorChain.rankInRange(collection, pos, ci, range, hopper).min();
 		} else {
 			return null;
 		}
@@ -255,7 +267,7 @@ public class FacilityList {
 
 	/**
 	 * Looks for the <b>best compatible</b> charging possibility in a defined search radius. Selection is made on rules defined in {@link ChargingPossibilityFastestComparator}.
-	 * In a first selection process a short-list of max. 3 free and compatible charging possibilities is selected. In a second step those are compared by their reals distance to the agent by calculating the routes via GraphHopper.
+	 * All free and compatible charging possibilities in the search radius are found via the spatial index.
 	 * In addition it is possible to exclude a Facility from the search process. This is necessary if an agent is already at a facility, but wants to find an other one.
 	 *
 	 * @param ci                defines the compatible charging interface
@@ -266,13 +278,9 @@ public class FacilityList {
 	 * @see ChargingPossibilityFastestComparator
 	 */
 	public ChargingPossibility findBestChargingPossibilityInRange(ChargingInterface ci, Position pos, float range, int excluded_facility) {
-		List<ChargingPossibility> collection = getCompatibleChargingPoints(ci);
-		if (excluded_facility != 0) {
-			collection = collection.stream().filter(c -> ((Facility) c).getId() != excluded_facility).collect(Collectors.toList());
-		}
-		List<ChargingPossibility> shortRangePossibilites = collection.stream().
-				filter(c -> c.hasFreeChargingPoints(ci) &&
-						((Facility) c).getPosition().calcDist(pos) <= range).collect(Collectors.toList());
+		if (!hasFreeChargingCapacity(ci)) return null;
+		List<ChargingPossibility> shortRangePossibilites = getChargingPossibilityIndex(ci).withinRadius(pos, range,
+				c -> ((Facility) c).getId() != excluded_facility && c.hasFreeChargingPoints(ci));
 		if (!shortRangePossibilites.isEmpty()) {
 			//TODO: Add new rules to find the fastest, closest and the one with max free spots.
 			return Collections.max(shortRangePossibilites, new ChargingPossibilityFastestComparator(ci));
@@ -284,56 +292,65 @@ public class FacilityList {
 
 
 	/**
-	 * Looks for the best rank according to the selection rules defined in the given comparator.
-	 * The taxi rank with the lowest natural order will be chosen.
-	 * * In addition it is possible to exclude a Facility from the search process. This is necessary if an agent is already at a facility, but wants to find an other one.
+	 * Looks for the best rank according to the selection rules defined in {@link NextRankComparatorChain}.
+	 * In addition it is possible to exclude a Facility from the search process. This is necessary if an agent is already at a facility, but wants to find an other one.
 	 *
-	 * @param comparator        comparator with decision rules
+	 * @param pos               actual vehicle position
+	 * @param time              simulation time in ms
 	 * @param excluded_facility id of the facility which should be excluded in search process
 	 * @return selected rank or <b> null</b> if no possibility was found
+	 * @see NextRankComparatorChain
 	 */
-	public TaxiRank getBestRank(Comparator<TaxiRank> comparator, int excluded_facility) {
-		List<TaxiRank> collection = getTaxiRanks();
-		if (excluded_facility != 0) {
-			collection = collection.stream().filter(c -> c.getId() != excluded_facility).collect(Collectors.toList());
-		}
-		return Collections.min(collection, comparator);
+	public TaxiRank getBestRank(Position pos, long time, int excluded_facility) {
+		List<TaxiRank> best = rankScoreboard.getBest(time, 1, excluded_facility);
+		return best.isEmpty() ? null : best.get(0);
 	}
 
 
 	/**
-	 * Selects randomly one of 20 best taxi ranks according to {@link NextRankComparatorChain}
+	 * Selects randomly one of 20 best taxi ranks according to {@link NextRankComparatorChain}, using the seeded random stream of the scenario.
 	 *
 	 * @param pos  actual vehicle position
 	 * @param time simulation time in ms
 	 * @return a randomly chosen taxi rank
+	 * @throws RuntimeException if the scenario has no taxi ranks
 	 */
-	@SuppressWarnings("unchecked")
 	public TaxiRank getRandomRank(Position pos, long time) {
-		List<TaxiRank> collection = getTaxiRanks();
-		collection.sort(new NextRankComparatorChain(pos, time));
-		if (collection.size() > 20) {
-			collection.subList(20, collection.size()).clear();
+		List<TaxiRank> collection = rankScoreboard.getBest(time, 20, 0);
+		if (collection.isEmpty()) {
+			throw new RuntimeException("Error selecting a random taxi rank: the scenario has no taxi ranks, check the facility input file");
 		}
-		return collection.get(RandomNumber.randInt(0, 19));
+		return collection.get(random.nextInt(0, collection.size() - 1));
 	}
 
 
 	/**
-	 * This method calculates the number of cars already waiting at a taxi rank in the given area
+	 * Returns the number of cars already waiting at a taxi rank in the given area. The number is counted incrementally on check in and check out.
 	 *
 	 * @param area_id area to be checked
 	 * @return number of waiting cars in area
 	 */
 	public int getCarsAtRankByArea(int area_id) {
-		List<TaxiRank> collection = getTaxiRanks();
-		collection = collection.stream().filter(r -> r.getPosition().getArea() == area_id).collect(Collectors.toList());
-		int waiting_cars = 0;
-		for (TaxiRank r : collection) {
-			waiting_cars += r.getQueueSize();
-		}
-		return waiting_cars;
+		return rankScoreboard.getCarsByArea(area_id);
+	}
 
+	/**
+	 * Updates the waiting car counts and rank scores. Has to be called by a taxi rank whenever a car checks in or out.
+	 *
+	 * @param rank  taxi rank
+	 * @param delta change of the number of waiting cars
+	 */
+	public void onRankQueueChanged(TaxiRank rank, int delta) {
+		rankScoreboard.onQueueChanged(rank, delta);
+	}
+
+	/**
+	 * Updates the rank score. Has to be called by a taxi rank whenever the number of taxis on their way to it changes.
+	 *
+	 * @param rank taxi rank
+	 */
+	public void onRankInboundChanged(TaxiRank rank) {
+		rankScoreboard.onInboundChanged(rank);
 	}
 
 	/**
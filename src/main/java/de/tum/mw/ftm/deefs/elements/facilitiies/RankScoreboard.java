@@ -0,0 +1,174 @@
+package de.tum.mw.ftm.deefs.elements.facilitiies;
+
+import de.tum.mw.ftm.deefs.comparators.chains.NextRankComparatorChain;
+
+import java.util.*;
+
+/**
+ * Keeps all taxi ranks ordered by the selection rules of {@link NextRankComparatorChain}:
+ * <br> 1. ranks with empty space first
+ * <br> 2. higher demand weight first
+ * <br> 3. more space left first
+ * <br> Taxis on their way to a rank occupy space there, see {@link TaxiRank#hasSpace()}.
+ * <br> Ranks with equal score are ordered by their id.
+ * <p> The score of each rank is cached. It is only updated for the ranks whose score changed: the rank itself and all ranks in the same area
+ * if a car checks in or out, the rank itself if an inbound taxi is added or removed, or all ranks if the hour of the day changes. The number of waiting cars per area is counted incrementally.
+ *
+ * @see TaxiRank#getDemandWeight(long)
+ */
+public class RankScoreboard {
+
+	private final TreeSet<Score> board;                      // ranks in selection order
+	private final Map<TaxiRank, Score> scores;               // cached score of each rank
+	private final Map<Integer, List<TaxiRank>> ranksByArea;  // ranks per area id
+	private final Map<Integer, Integer> carsByArea;          // waiting cars per area id
+	private int hourOfDay = 0;                               // hour of the day the demand weights are calculated for
+
+
+	/**
+	 * New, empty scoreboard
+	 */
+	public RankScoreboard() {
+		this.board = new TreeSet<>();
+		this.scores = new HashMap<>();
+		this.ranksByArea = new HashMap<>();
+		this.carsByArea = new HashMap<>();
+	}
+
+	/**
+	 * Adds a taxi rank to the scoreboard
+	 *
+	 * @param rank taxi rank to be added
+	 */
+	public void add(TaxiRank rank) {
+		if (scores.containsKey(rank)) return;
+		int area = rank.getPosition().getArea();
+		ranksByArea.computeIfAbsent(area, a -> new ArrayList<>()).add(rank);
+		carsByArea.merge(area, rank.getQueueSize(), Integer::sum);
+		Score score = new Score(rank);
+		scores.put(rank, score);
+		board.add(score);
+		//the demand weight of all ranks in the area depends on the number of waiting cars
+		updateArea(area);
+	}
+
+	/**
+	 * Updates the scores after a car checked in or out at the given rank.
+	 *
+	 * @param rank  taxi rank
+	 * @param delta change of the number of waiting cars
+	 */
+	public void onQueueChanged(TaxiRank rank, int delta) {
+		int area = rank.getPosition().getArea();
+		carsByArea.merge(area, delta, Integer::sum);
+		updateArea(area);
+	}
+
+	/**
+	 * Updates the score of the given rank after the number of taxis on their way to it changed.
+	 * The demand weights only depend on waiting cars, so the other ranks in the area keep their scores.
+	 *
+	 * @param rank taxi rank
+	 */
+	public void onInboundChanged(TaxiRank rank) {
+		Score score = scores.get(rank);
+		if (score != null) update(score);
+	}
+
+	/**
+	 * @param area area id
+	 * @return number of cars waiting at taxi ranks in the given area
+	 */
+	public int getCarsByArea(int area) {
+		return carsByArea.getOrDefault(area, 0);
+	}
+
+	/**
+	 * Returns the best ranks in selection order.
+	 *
+	 * @param time              simulation time in ms
+	 * @param n                 max. number of returned ranks
+	 * @param excluded_facility id of the rank which should be excluded, 0 if none
+	 * @return up to n best ranks
+	 */
+	public List<TaxiRank> getBest(long time, int n, int excluded_facility) {
+		updateHour(time);
+		List<TaxiRank> best = new ArrayList<>(n);
+		for (Score score : board) {
+			if (best.size() >= n) break;
+			if (score.rank.getId() != excluded_facility) {
+				best.add(score.rank);
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Recalculates all scores if the hour of the day changed, as the demand of all ranks depends on it.
+	 *
+	 * @param time simulation time in ms
+	 */
+	private void updateHour(long time) {
+		int hour = TaxiRank.getHourOfDay(time);
+		if (hour != hourOfDay) {
+			hourOfDay = hour;
+			for (Score score : new ArrayList<>(scores.values())) {
+				update(score);
+			}
+		}
+	}
+
+	/**
+	 * Recalculates the scores of all ranks in the given area.
+	 *
+	 * @param area area id
+	 */
+	private void updateArea(int area) {
+		for (TaxiRank rank : ranksByArea.get(area)) {
+			update(scores.get(rank));
+		}
+	}
+
+	/**
+	 * Recalculates a single score. The score must be removed from the board before its values change.
+	 *
+	 * @param score score to be updated
+	 */
+	private void update(Score score) {
+		board.remove(score);
+		score.calculate();
+		board.add(score);
+	}
+
+	/**
+	 * Cached score of a single rank
+	 */
+	private class Score implements Comparable<Score> {
+		private final TaxiRank rank;
+		private boolean hasSpace;
+		private float demandWeight;
+		private int spaceLeft;
+
+		Score(TaxiRank rank) {
+			this.rank = rank;
+			calculate();
+		}
+
+		private void calculate() {
+			hasSpace = rank.hasSpace();
+			demandWeight = rank.getDemandOfHour(hourOfDay) / (getCarsByArea(rank.getPosition().getArea()) + 1);
+			spaceLeft = rank.getRemainingSpace();
+		}
+
+		@Override
+		public int compareTo(Score o) {
+			int result = Boolean.compare(o.hasSpace, hasSpace);
+			if (result != 0) return result;
+			result = Float.compare(o.demandWeight, demandWeight);
+			if (result != 0) return result;
+			result = Integer.compare(o.spaceLeft, spaceLeft);
+			if (result != 0) return result;
+			return Integer.compare(rank.getId(), o.rank.getId());
+		}
+	}
+}
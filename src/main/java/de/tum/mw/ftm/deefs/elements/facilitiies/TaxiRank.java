@@ -3,10 +3,9 @@ package de.tum.mw.ftm.deefs.elements.facilitiies;
 import de.tum.mw.ftm.deefs.Scenario;
 import de.tum.mw.ftm.deefs.elements.taxi.Taxi;
 import de.tum.mw.ftm.deefs.location.Position;
-import de.tum.mw.ftm.deefs.log.FacilityStats;
+import de.tum.mw.ftm.deefs.utils.IndexedQueue;
 
-import java.util.Calendar;
-import java.util.LinkedList;
+import java.util.TimeZone;
 
 /**
  * Represents a taxi rank  in the behavior model. To create a instance of TaxiRank use {@link FacilityFactory}.
@@ -29,15 +28,21 @@ public class TaxiRank extends Facility {
 	@Deprecated
 	public static final int PRIORITY_MOST_UNPOPULAR = -2;
 
+	private static final long HOUR = 3600000;
+	private static final long DAY = 24 * HOUR;
+	private static final TimeZone TIME_ZONE = TimeZone.getDefault();
+
 	@Deprecated
 	private final int priority;
-	private final LinkedList<Taxi> queue;
+	private final IndexedQueue<Taxi> queue;
+	private int inbound = 0;    //number of taxis on their way to this rank
 	private String description = "-";
 	private String address = "-";
 	private float demand_21_03 = 0; //Average demand per hour from 21:00:00 - 03:00:00
 	private float demand_03_09 = 0; //Average demand per hour from 03:00:00 - 09:00:00
 	private float demand_09_15 = 0; //Average demand per hour from 09:00:00 - 15:00:00
 	private float demand_15_21 = 0; //Average demand per hour from 15:00:00 - 21:00:00
+	private final float[] demandByHour = new float[24]; //Average demand per hour for each hour of the day, precomputed from the four periods
 //	private Map<Integer, CarAtFacilityLog> log;
 
 	/**
@@ -50,7 +55,7 @@ public class TaxiRank extends Facility {
 	 */
 	protected TaxiRank(int id, Position position, Scenario scenario, int capacity, int priority) {
 		super(id, scenario, position, capacity);
-		this.queue = new LinkedList<>();
+		this.queue = new IndexedQueue<>();
 		this.priority = priority;
 //		this.log = new HashMap<Integer, CarAtFacilityLog>();
 	}
@@ -74,6 +79,19 @@ public class TaxiRank extends Facility {
 		this.demand_03_09 = demand2;
 		this.demand_09_15 = demand3;
 		this.demand_15_21 = demand4;
+		for (int hour = 0; hour < 24; hour++) {
+			if (hour < 3) {
+				demandByHour[hour] = demand_21_03;
+			} else if (hour < 9) {
+				demandByHour[hour] = demand_03_09;
+			} else if (hour < 15) {
+				demandByHour[hour] = demand_09_15;
+			} else if (hour < 21) {
+				demandByHour[hour] = demand_15_21;
+			} else {
+				demandByHour[hour] = demand_21_03;
+			}
+		}
 	}
 
 	@Deprecated
@@ -101,20 +119,27 @@ public class TaxiRank extends Facility {
 	 * @return estimated customer demand for taxi ranks in this area
 	 */
 	public float getDemand(long time) {
-		Calendar calendar = Calendar.getInstance();
-		calendar.setTimeInMillis(time);
-		int hour = calendar.get(Calendar.HOUR_OF_DAY);
-		if (hour < 3) {
-			return demand_21_03;
-		} else if (hour < 9) {
-			return demand_03_09;
-		} else if (hour < 15) {
-			return demand_09_15;
-		} else if (hour < 21) {
-			return demand_15_21;
-		} else {
-			return demand_21_03;
-		}
+		return demandByHour[getHourOfDay(time)];
+	}
+
+	/**
+	 * Returns the estimated demand in the given hour of the day
+	 *
+	 * @param hourOfDay hour of the day (0-23)
+	 * @return estimated customer demand for taxi ranks in this area
+	 */
+	public float getDemandOfHour(int hourOfDay) {
+		return demandByHour[hourOfDay];
+	}
+
+	/**
+	 * Returns the hour of the day in the default time zone, like {@link java.util.Calendar#HOUR_OF_DAY}, without creating a Calendar instance.
+	 *
+	 * @param time simulation time in ms
+	 * @return hour of the day (0-23)
+	 */
+	public static int getHourOfDay(long time) {
+		return (int) (Math.floorMod(time + TIME_ZONE.getOffset(time), DAY) / HOUR);
 	}
 
 	/**
@@ -126,7 +151,25 @@ public class TaxiRank extends Facility {
 	 * @return demand weight
 	 */
 	public float getDemandWeight(long time) {
-		return getDemand(time) / (scenario.getFacilities().getCarsAtRankByArea(this.position.getArea()) + 1);
+		return getDemandWeight(time, getCarsInArea());
+	}
+
+	/**
+	 * Returns the demand weight for an already known number of cars waiting in the area of this rank. See {@link #getDemandWeight(long)} for more details.
+	 *
+	 * @param time       actual time in ms
+	 * @param carsInArea number of cars waiting at taxi ranks in the area of this rank
+	 * @return demand weight
+	 */
+	public float getDemandWeight(long time, int carsInArea) {
+		return getDemand(time) / (carsInArea + 1);
+	}
+
+	/**
+	 * @return number of cars waiting at taxi ranks in the area of this rank
+	 */
+	public int getCarsInArea() {
+		return scenario.getFacilities().getCarsAtRankByArea(this.position.getArea());
 	}
 
 	/**
@@ -154,7 +197,18 @@ public class TaxiRank extends Facility {
 	 * @return position of car o1 in the queue, -1 if the car is not in the queue
 	 */
 	public int getQueuePosition(Taxi o1) {
-		return queue.indexOf(o1);
+		return queue.getPosition(o1);
+	}
+
+	/**
+	 * Returns the queue ticket of the given car. Cars with lower tickets are in front, so tickets can be used to compare queue positions in constant time.
+	 *
+	 * @param o1 car to check
+	 * @return queue ticket of car o1, -1 if the car is not in the queue
+	 * @see IndexedQueue#getTicket(Object)
+	 */
+	public long getQueueTicket(Taxi o1) {
+		return queue.getTicket(o1);
 	}
 
 	/**
@@ -166,33 +220,79 @@ public class TaxiRank extends Facility {
 		return queue.size();
 	}
 
+	/**
+	 * Returns the number of taxis on their way to this rank
+	 *
+	 * @return the number of inbound taxis
+	 */
+	public int getInboundCount() {
+		return inbound;
+	}
+
+	/**
+	 * Registers a taxi which starts a ride to this rank, or removes it when it arrives or aborts the ride.
+	 * Inbound taxis occupy space at the rank for the rank selection, see {@link #hasSpace()}.
+	 *
+	 * @param delta change of the number of inbound taxis
+	 */
+	public void onInboundChanged(int delta) {
+		inbound += delta;
+		scenario.getFacilities().onRankInboundChanged(this);
+	}
+
+	/**
+	 * Checks if the rank has space left for an other taxi. Taxis on their way to the rank are counted as waiting, so that the space is not offered twice.
+	 *
+	 * @return <b>true</b> if waiting and inbound taxis are less than the capacity, <b>false</b> otherwise
+	 */
 	@Override
 	public boolean hasSpace() {
-		return queue.size() < getCapacity();
+		return queue.size() + inbound < getCapacity();
 	}
 
+	/**
+	 * Calculates the remaining space at this rank, counting waiting and inbound taxis.
+	 *
+	 * @return number of free spaces at this rank
+	 */
 	@Override
 	public int getRemainingSpace() {
-		return getCapacity() - queue.size();
+		return getCapacity() - queue.size() - inbound;
 	}
 
+	/**
+	 * Checks in an arriving car if there is a physical space left. The car must not be counted as inbound any more.
+	 *
+	 * @param car  car to connect
+	 * @param time check in time
+	 * @return <b>true</b> if the car was successfully connected to the rank, <b>false</b> otherwise
+	 */
 	@Override
 	public boolean checkInCar(Taxi car, long time) {
-		if (hasSpace()) {
-			scenario.getDBLog().addFacilityStats(new FacilityStats(this.id, car.getId(), time, ACTION_CHECKIN, queue.size() + 1, 0));
+		if (queue.size() < getCapacity()) {
+			scenario.getResultSink().addFacilityStats(this.id, car.getId(), time, ACTION_CHECKIN, queue.size() + 1, 0);
 //			Log.rankStats(this, String.format("%d\tLogin Car: %d\n",time, car.getId()));
-			return queue.offerLast(car);
+			queue.offer(car);
+			scenario.getFacilities().onRankQueueChanged(this, 1);
+			scenario.getKpiAccounting().checkIn(this.id, car.getId(), time);
+			return true;
 		} else {
-			scenario.getDBLog().addFacilityStats(new FacilityStats(this.id, car.getId(), time, ACTION_CHECKIN_DENIED, queue.size(), 0));
+			scenario.getResultSink().addFacilityStats(this.id, car.getId(), time, ACTION_CHECKIN_DENIED, queue.size(), 0);
+			scenario.getKpiAccounting().checkInDenied(this.id);
 			return false;
 		}
 	}
 
 	@Override
 	public boolean checkOutCar(Taxi car, long time) {
-		scenario.getDBLog().addFacilityStats(new FacilityStats(this.id, car.getId(), time, ACTION_CHECKOUT, queue.size() - 1, 0));
+		scenario.getResultSink().addFacilityStats(this.id, car.getId(), time, ACTION_CHECKOUT, queue.size() - 1, 0);
 //		Log.rankStats(this, String.format("%d\tLogout Car: %d\n",time, car.getId()));
-		return queue.remove(car);
+		if (queue.remove(car)) {
+			scenario.getFacilities().onRankQueueChanged(this, -1);
+			scenario.getKpiAccounting().checkOut(this.id, car.getId(), time);
+			return true;
+		}
+		return false;
 	}
 
 	@Override
@@ -12,13 +12,10 @@ import de.tum.mw.ftm.deefs.elements.evConcept.EVConcept;
 import de.tum.mw.ftm.deefs.elements.facilitiies.*;
 import de.tum.mw.ftm.deefs.events.CarLocationUpdateEvent;
 import de.tum.mw.ftm.deefs.events.DemandEvent;
-import de.tum.mw.ftm.deefs.events.FreeSpaceEvent;
 import de.tum.mw.ftm.deefs.graphopper.extensions.MyGraphHopper;
 import de.tum.mw.ftm.deefs.location.Position;
 import de.tum.mw.ftm.deefs.log.DeniedRide;
-import de.tum.mw.ftm.deefs.log.Trackpoint;
 
-import java.util.Observable;
 
 /**
  * Special Class of Taxi. This Class represents a electrified taxi.
@@ -42,6 +39,7 @@ public class BEVTaxi extends Taxi {
 	public final float MAX_DISTANCE_BEST_CONNECTOR = Float.parseFloat(Config.getProperty(Config.BEVTAXI_MAX_DISTANCE_BEST_CONNECTOR, "4000"));
 
 	private final EVConcept concept;
+	private ChargingPossibility reservedChargingPossibility = null;    //charging possibility the car has reserved a charging point at
 
 	/**
 	 * New instance of BEV Taxi
@@ -84,6 +82,7 @@ public class BEVTaxi extends Taxi {
 			setRoute(route, start_time);
 			updatePosition();
 		} else {
+			setInboundRank(null);
 			startRideToNextChargingPoint(start_time);
 		}
 	}
@@ -93,6 +92,7 @@ public class BEVTaxi extends Taxi {
 		TaxiRank nextFreeRank = findNextRank(time);
 		GHResponse wayToRank = findRoute(position, nextFreeRank.getPosition());
 		setTargetFacility(nextFreeRank.getId());
+		setInboundRank(nextFreeRank);
 		return wayToRank;
 	}
 
@@ -137,10 +137,45 @@ public class BEVTaxi extends Taxi {
 		setTargetFacility(((Facility) cp).getId());
 		setTrackId(getNewTrackId());
 		setStatus(STATUS_ON_WAY_TO_CHARGING_POINT);
-		setRoute(findRoute(position, ((Facility) cp).getPosition()), start_time);
+		GHResponse route = findRoute(position, ((Facility) cp).getPosition());
+		setRoute(route, start_time);
+		reserveChargingPoint(cp, route, start_time);
 		updatePosition();
 	}
 
+	/**
+	 * Reserves a charging point at the selected charging possibility for the expected arrival time. An existing reservation is cancelled before.
+	 * If no charging point can be reserved, the car drives to the charging possibility anyway.
+	 *
+	 * @param cp         selected charging possibility
+	 * @param route      route to the charging possibility
+	 * @param start_time simulation time in ms
+	 * @see ChargingPossibility#reserve(BEVTaxi, long, float)
+	 */
+	private void reserveChargingPoint(ChargingPossibility cp, GHResponse route, long start_time) {
+		cancelChargingReservation(start_time);
+		if (!route.hasErrors()) {
+			float energy = concept.getBattery().getE_bat() - concept.getNeededEnergy(route.getDistance());
+			if (cp.reserve(this, start_time + route.getTime(), energy)) {
+				reservedChargingPossibility = cp;
+			}
+		}
+	}
+
+	/**
+	 * Cancels the reservation of the car, if there is one.
+	 *
+	 * @param time simulation time in ms
+	 * @see ChargingPossibility#cancelReservation(BEVTaxi, long)
+	 */
+	private void cancelChargingReservation(long time) {
+		if (reservedChargingPossibility != null) {
+			ChargingPossibility cp = reservedChargingPossibility;
+			reservedChargingPossibility = null;
+			cp.cancelReservation(this, time);
+		}
+	}
+
 	/**
 	 * Looking for the next available ChargingPoint. Selection Process is devided into 4 Steps:
 	 * <p> 1. If remaining range is enough to search for the best connector in the specified Radius take next free one with the higest power
@@ -242,6 +277,8 @@ public class BEVTaxi extends Taxi {
 	 * This method manages the login procedure, when reaching a charging point.
 	 * If the charing station denies the login, the agent will try to reach an other charging station. In case the remaining range is not high enough, to
 	 * reach an other station, the car will check into the queue and will wait for a free space.
+	 * A reservation of the car is used or released by the charging station when the car checks in.
+	 * A car which is already waiting in the queue of the charging station keeps its place if it can't check in.
 	 *
 	 * @param time simulation time in ms
 	 * @see ChargingStation#checkInCar(Taxi, long)
@@ -253,12 +290,16 @@ public class BEVTaxi extends Taxi {
 		if (chargingPossibility instanceof ChargingStation) {
 			ChargingStation chargingStation = (ChargingStation) chargingPossibility;
 			setPosition(chargingStation.getPosition(), time);
+			if (reservedChargingPossibility != chargingStation) {
+				cancelChargingReservation(time);
+			}
+			reservedChargingPossibility = null;
 			if (chargingStation.checkInCar(this, time)) {
 				setTrackId(getNewTrackId());
 				setConnectedToFacility(chargingStation);
 				setStatus(STATUS_AT_CHARGING_POINT);
 				setPosition(chargingStation.getPosition(), time);
-			} else {
+			} else if (status != STATUS_WAIT_FOR_CHARGING || connectedToFacility() != chargingStation) {
 				//if the charging possibility denies the login look for an other free charging station
 				ChargingPossibility cp = findFreeChargingPossibilityInRange(position, getRemainingRangeNetto());
 				if (cp != null) {
@@ -370,8 +411,6 @@ public class BEVTaxi extends Taxi {
 
 	@Override
 	public void nextAction(long time) {
-
-		scenario.getDBLog().flush();
 		switch (this.status) {
 			case STATUS_ON_WAY_TO_CUSTOMER:
 				setPosition(customer_ride.getStart(), time);
@@ -389,6 +428,7 @@ public class BEVTaxi extends Taxi {
 				}
 				break;
 			case STATUS_ON_WAY_TO_RANK:
+				setInboundRank(null);
 				if (maxTimeActiveIsExceeded(time)) {
 					triggerlogOff(time);
 				} else {
@@ -429,10 +469,12 @@ public class BEVTaxi extends Taxi {
 				setStatus(STATUS_ON_WAY_TO_CHARGING_POINT);
 				ChargingPossibility nextCP = findNextChargingPoint();
 				if (nextCP == null) {
-					scenario.getDBLog().flush();
+					throw new RuntimeException(String.format("Car %d can't reach any charging possibility at %d", this.id, entry.getMillis()));
 				}
 				setTargetFacility(((Facility) nextCP).getId());
-				setRoute(hopper.route(new GHRequest(position.getLat(), position.getLon(), ((Facility) nextCP).getPosition().getLat(), ((Facility) nextCP).getPosition().getLon())), entry.getMillis());
+				GHResponse wayToCP = hopper.route(new GHRequest(position.getLat(), position.getLon(), ((Facility) nextCP).getPosition().getLat(), ((Facility) nextCP).getPosition().getLon()));
+				setRoute(wayToCP, entry.getMillis());
+				reserveChargingPoint(nextCP, wayToCP, entry.getMillis());
 			}
 		}
 		if (route.size() > 0) {
@@ -460,7 +502,7 @@ public class BEVTaxi extends Taxi {
 		if (distance > 0) {
 			updateSOC(distance);
 		}
-		logTrackpoint(new Trackpoint(this.id, getShiftCounter(), track_id, time, getStatusAsText(), position, distance, concept.getBattery().getSoc(), connectedToFacilityID()));
+		logTrackpoint(time, distance, concept.getBattery().getSoc());
 	}
 
 
@@ -476,25 +518,25 @@ public class BEVTaxi extends Taxi {
 
 
 	@Override
-	protected boolean isPossibleToServeCustomerDemand(DemandEvent e) {
-
-		if (isFree() && !maxTimeActiveIsExceeded(e.getScheduledTime())) {
+	protected boolean isPossibleToServeCustomerDemand(DemandEvent e, long time) {
+		updateCharge(time);
+		if (isFree() && !maxTimeActiveIsExceeded(time)) {
 			//Check if car is at charging point and if the car may terminate the charging process
 			if (status == STATUS_AT_CHARGING_POINT) {
-				if (!((ChargingPossibility) connectedToFacility()).mayTerminateCharging(this, e.getScheduledTime()) || getSOC() < SOC_STOP_CHARGE_MIN) {
-					scenario.getDBLog().addDeniedRide(new DeniedRide(this.id, e.getTrack_id(), e.getScheduledTime(), e.getDistance(), -1, DeniedRide.REASON_CHARGING));
+				if (!((ChargingPossibility) connectedToFacility()).mayTerminateCharging(this, time) || getSOC() < SOC_STOP_CHARGE_MIN) {
+					rejectRide(e, -1, DeniedRide.REASON_CHARGING);
 					return false;
 				}
 			}
 			if (getRemainingRangeNetto() == 0) {
-				scenario.getDBLog().addDeniedRide(new DeniedRide(this.id, e.getTrack_id(), e.getScheduledTime(), e.getDistance(), -1, DeniedRide.REASON_SOC_TOO_LOW));
+				rejectRide(e, -1, DeniedRide.REASON_SOC_TOO_LOW);
 				return false;
 			}
 
 			//check if taxi can drive track distance
 			double distance = e.getDistance();
 			if (!canDrive(distance)) {
-				scenario.getDBLog().addDeniedRide(new DeniedRide(this.id, e.getTrack_id(), e.getScheduledTime(), e.getDistance(), -1, DeniedRide.REASON_SOC_TOO_LOW));
+				rejectRide(e, -1, DeniedRide.REASON_SOC_TOO_LOW);
 				return false;
 			}
 
@@ -505,7 +547,7 @@ public class BEVTaxi extends Taxi {
 				if (!wayToCustomer.hasErrors()) {
 					distance += wayToCustomer.getDistance();
 					if (!canDrive(distance)) {
-						scenario.getDBLog().addDeniedRide(new DeniedRide(this.id, e.getTrack_id(), e.getScheduledTime(), e.getDistance(), wayToCustomer.getDistance(), DeniedRide.REASON_SOC_TOO_LOW));
+						rejectRide(e, wayToCustomer.getDistance(), DeniedRide.REASON_SOC_TOO_LOW);
 						return false;
 					}
 
@@ -517,27 +559,27 @@ public class BEVTaxi extends Taxi {
 							if (canDrive(distance)) {
 								return true;
 							} else {
-								scenario.getDBLog().addDeniedRide(new DeniedRide(this.id, e.getTrack_id(), e.getScheduledTime(), e.getDistance(), wayToCustomer.getDistance(), DeniedRide.REASON_NO_REACHABLE_CHARGING_STATION_FOUND));
+								rejectRide(e, wayToCustomer.getDistance(), DeniedRide.REASON_NO_REACHABLE_CHARGING_STATION_FOUND);
 								return false;
 							}
 						} else {
-							scenario.getDBLog().addDeniedRide(new DeniedRide(this.id, e.getTrack_id(), e.getScheduledTime(), e.getDistance(), wayToCustomer.getDistance(), DeniedRide.REASON_NO_ROUTE_FOUND));
+							rejectRide(e, wayToCustomer.getDistance(), DeniedRide.REASON_NO_ROUTE_FOUND);
 							return false;
 						}
 					} else {
-						scenario.getDBLog().addDeniedRide(new DeniedRide(this.id, e.getTrack_id(), e.getScheduledTime(), e.getDistance(), wayToCustomer.getDistance(), DeniedRide.REASON_NO_REACHABLE_CHARGING_STATION_FOUND));
+						rejectRide(e, wayToCustomer.getDistance(), DeniedRide.REASON_NO_REACHABLE_CHARGING_STATION_FOUND);
 						return false;
 					}
 				} else {
-					scenario.getDBLog().addDeniedRide(new DeniedRide(this.id, e.getTrack_id(), e.getScheduledTime(), e.getDistance(), wayToCustomer.getDistance(), DeniedRide.REASON_NO_ROUTE_FOUND));
+					rejectRide(e, wayToCustomer.getDistance(), DeniedRide.REASON_NO_ROUTE_FOUND);
 					return false;
 				}
 			} else {
-				scenario.getDBLog().addDeniedRide(new DeniedRide(this.id, e.getTrack_id(), e.getScheduledTime(), e.getDistance(), -1, DeniedRide.REASON_NO_ROUTE_FOUND));
+				rejectRide(e, -1, DeniedRide.REASON_NO_ROUTE_FOUND);
 				return false;
 			}
 		}
-		scenario.getDBLog().addDeniedRide(new DeniedRide(this.id, e.getTrack_id(), e.getScheduledTime(), e.getDistance(), -1, DeniedRide.REASON_BUSY));
+		rejectRide(e, -1, DeniedRide.REASON_BUSY);
 		return false;
 	}
 
@@ -584,15 +626,43 @@ public class BEVTaxi extends Taxi {
 
 
 	/**
-	 * Returns the actual SOC.
+	 * Returns the actual SOC. The charge of a connected car is projected up to the actual simulation time without charging the battery,
+	 * so reading the SOC, e.g. while sorting or logging, never changes the results.
 	 *
 	 * @return the actual SOC in %
 	 * @see Battery#getSoc()
+	 * @see ChargingStation#getProjectedSoc(BEVTaxi, long)
 	 */
 	public float getSOC() {
+		return getSOC(scenario.getTime());
+	}
+
+	/**
+	 * Returns the SOC at the given time, without charging the battery. See {@link #getSOC()}.
+	 *
+	 * @param time simulation time in ms, not before the last event of the car
+	 * @return the SOC in %
+	 */
+	public float getSOC(long time) {
+		if (status == STATUS_AT_CHARGING_POINT && connectedToFacility() instanceof ChargingStation) {
+			return ((ChargingStation) connectedToFacility()).getProjectedSoc(this, time);
+		}
 		return concept.getBattery().getSoc();
 	}
 
+	/**
+	 * Calculates the charge up to the given time, if the car is connected to a charging station. The charge of a connected car is only calculated on demand,
+	 * so this method has to be called before the battery's state is used.
+	 *
+	 * @param time simulation time in ms
+	 * @see ChargingStation#updateCharge(BEVTaxi, long)
+	 */
+	private void updateCharge(long time) {
+		if (status == STATUS_AT_CHARGING_POINT && connectedToFacility() instanceof ChargingStation) {
+			((ChargingStation) connectedToFacility()).updateCharge(this, time);
+		}
+	}
+
 	/**
 	 * Returns the vehicle's ChargingInterface
 	 *
@@ -621,11 +691,7 @@ public class BEVTaxi extends Taxi {
 	 */
 	public void chargeCar(long time, float energy) {
 		concept.getBattery().charge(energy);
-		if (!logOffTriggered && maxTimeActiveIsExceeded(time)) {
-			triggerlogOff(time);
-		}
-
-		logTrackpoint(new Trackpoint(this.id, getShiftCounter(), track_id, time, getStatusAsText(), position, 0, concept.getBattery().getSoc(), connectedToFacilityID()));
+		logTrackpoint(time, 0, concept.getBattery().getSoc());
 	}
 
 
@@ -647,6 +713,7 @@ public class BEVTaxi extends Taxi {
 
 	@Override
 	public boolean triggerlogOff(long logOffTime) {
+		updateCharge(logOffTime);
 		if ((logOffTime - last_login) > min_time_active) {
 			switch (this.status) {
 				case STATUS_AT_RANK:
@@ -693,18 +760,13 @@ public class BEVTaxi extends Taxi {
 		return false;
 	}
 
-	/* (non-Javadoc)
-	 * @see java.util.Observer#update(java.util.Observable, java.lang.Object)
-	 * Waiting car gets notified by ChargingStation if there is a free space. Login procedure is started when notified.
+	/**
+	 * Waiting car gets notified by the ChargingStation it waits at if it can connect to a charging point. Login procedure is started when notified.
+	 *
+	 * @param time simulation time in ms
 	 */
-	@Override
-	public void update(Observable o, Object arg) {
-		if (o instanceof ChargingStation) {
-			if (arg instanceof FreeSpaceEvent) {
-				logInAtChargingPoint(((FreeSpaceEvent) arg).getScheduledTime());
-			}
-		}
-
+	public void onFreeChargingSpace(long time) {
+		logInAtChargingPoint(time);
 	}
 
 	@Override
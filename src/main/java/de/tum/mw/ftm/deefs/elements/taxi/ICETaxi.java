@@ -9,7 +9,6 @@ import de.tum.mw.ftm.deefs.graphopper.extensions.MyGraphHopper;
 import de.tum.mw.ftm.deefs.location.Position;
 import de.tum.mw.ftm.deefs.log.DeniedRide;
 
-import java.util.Observable;
 
 
 /**
@@ -71,6 +70,7 @@ public class ICETaxi extends Taxi {
 	protected GHResponse findRouteToNextTaxiRank(long time) {
 		TaxiRank nextFreeRank = findNextRank(time);
 		setTargetFacility(nextFreeRank.getId());
+		setInboundRank(nextFreeRank);
 		return findRoute(position, nextFreeRank.getPosition());
 	}
 
@@ -135,6 +135,7 @@ public class ICETaxi extends Taxi {
 				}
 				break;
 			case STATUS_ON_WAY_TO_RANK:
+				setInboundRank(null);
 				if (maxTimeActiveIsExceeded(time)) {
 					triggerlogOff(time);
 				} else {
@@ -157,16 +158,16 @@ public class ICETaxi extends Taxi {
 	 * @return <b>true</b> if car is able, <b>false</b> otherwise
 	 */
 	@Override
-	protected boolean isPossibleToServeCustomerDemand(DemandEvent e) {
+	protected boolean isPossibleToServeCustomerDemand(DemandEvent e, long time) {
 		if (isFree()) {
 			if (!findRoute(e.getStart(), e.getTarget()).hasErrors()) {
 				return true;
 			} else {
-				scenario.getDBLog().addDeniedRide(new DeniedRide(this.id, e.getTrack_id(), e.getScheduledTime(), e.getDistance(), -1, DeniedRide.REASON_NO_ROUTE_FOUND));
+				rejectRide(e, -1, DeniedRide.REASON_NO_ROUTE_FOUND);
 				return false;
 			}
 		} else {
-			scenario.getDBLog().addDeniedRide(new DeniedRide(this.id, e.getTrack_id(), e.getScheduledTime(), e.getDistance(), -1, DeniedRide.REASON_BUSY));
+			rejectRide(e, -1, DeniedRide.REASON_BUSY);
 			return false;
 		}
 	}
@@ -186,11 +187,4 @@ public class ICETaxi extends Taxi {
 	}
 
 
-	@Override
-	public void update(Observable o, Object arg) {
-		// TODO Auto-generated method stub
-
-	}
-
-
 }
@@ -14,14 +14,14 @@ import de.tum.mw.ftm.deefs.elements.facilitiies.TaxiRank;
 import de.tum.mw.ftm.deefs.events.CarLocationUpdateEvent;
 import de.tum.mw.ftm.deefs.events.DemandEvent;
 import de.tum.mw.ftm.deefs.events.Event;
-import de.tum.mw.ftm.deefs.events.TaxiControlEvent;
 import de.tum.mw.ftm.deefs.graphopper.extensions.GHUtils;
 import de.tum.mw.ftm.deefs.graphopper.extensions.MyGraphHopper;
 import de.tum.mw.ftm.deefs.location.Position;
-import de.tum.mw.ftm.deefs.log.Trackpoint;
+import de.tum.mw.ftm.deefs.log.RejectionAccounting;
+import de.tum.mw.ftm.deefs.log.TrackpointPolicy;
+import de.tum.mw.ftm.deefs.log.TrackpointSampler;
 
 import java.util.List;
-import java.util.Observer;
 import java.util.PriorityQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -32,7 +32,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  *
  * @author Michael Wittmann
  */
-public abstract class Taxi extends PhysicalElement implements Observer {
+public abstract class Taxi extends PhysicalElement {
 
 
 	// Possible vehicle states
@@ -68,6 +68,9 @@ public abstract class Taxi extends PhysicalElement implements Observer {
 	private Event nextPlannedEvent;                //buffer for next planned event
 	private Facility connectedToFacility = null;//connected facility
 	private Integer targetFacility = 0;            //id of target facility at the end of the current ride
+	private TaxiRank inboundRank = null;           //taxi rank the car is on its way to, counted as inbound there
+	private final TrackpointSampler trackpointSampler; //filters the trackpoints according to the trackpoint policy
+	private long statusSince = 0;                  //time the actual vehicle state was entered in ms
 
 
 	/**
@@ -90,6 +93,7 @@ public abstract class Taxi extends PhysicalElement implements Observer {
 		this.track_counter = new AtomicInteger();
 		this.shift_counter = new AtomicInteger();
 		this.track_id = 0;
+		this.trackpointSampler = new TrackpointSampler(scenario.getTrackpointPolicy(), scenario.getResultSink());
 	}
 
 	/**
@@ -177,10 +181,11 @@ public abstract class Taxi extends PhysicalElement implements Observer {
 	 */
 	protected void logOff(long logOffTime) {
 		logOffTriggered = false;
+		//last_logoff is the key of the agency's log off index, so it has to be set before the status changes
+		this.last_logoff = logOffTime;
 		setStatus(STATUS_LOGGED_OFF);
 		setPosition(position, logOffTime);
-		this.last_logoff = logOffTime;
-		scenario.addEvent(new TaxiControlEvent(logOffTime));
+		scenario.getController().requestControl(logOffTime);
 	}
 
 	/**
@@ -196,7 +201,20 @@ public abstract class Taxi extends PhysicalElement implements Observer {
 	 * @param status vehicle state
 	 */
 	protected void setStatus(int status) {
+		int oldStatus = this.status;
 		this.status = status;
+		if (oldStatus != status) {
+			scenario.getKpiAccounting().status(oldStatus, statusSince, scenario.getTime());
+			statusSince = scenario.getTime();
+			scenario.getAgency().onStatusChanged(this, oldStatus);
+		}
+	}
+
+	/**
+	 * @return time the actual vehicle state was entered in ms
+	 */
+	public long getStatusSince() {
+		return statusSince;
 	}
 
 	/**
@@ -232,6 +250,19 @@ public abstract class Taxi extends PhysicalElement implements Observer {
 		this.targetFacility = targetFacility;
 	}
 
+	/**
+	 * Sets the taxi rank the car is on its way to. The car is counted as inbound at this rank and no longer at the previous one.
+	 *
+	 * @param rank taxi rank the car is on its way to, <b>null</b> if the car arrived or aborted the ride
+	 * @see TaxiRank#onInboundChanged(int)
+	 */
+	protected void setInboundRank(TaxiRank rank) {
+		if (rank == inboundRank) return;
+		if (inboundRank != null) inboundRank.onInboundChanged(-1);
+		inboundRank = rank;
+		if (inboundRank != null) inboundRank.onInboundChanged(1);
+	}
+
 	/**
 	 * @return ID of connected facility, 0 if no facility is connected
 	 */
@@ -264,16 +295,27 @@ public abstract class Taxi extends PhysicalElement implements Observer {
 		}
 		super.setPosition(position);
 		//write log 
-		logTrackpoint(new Trackpoint(this.id, getShiftCounter(), track_id, time, getStatusAsText(), position, distance, 0, connectedToFacilityID()));
+		logTrackpoint(time, distance, 0);
 	}
 
 	/**
-	 * Pushes a trackpoint to the data logger
+	 * Pushes a trackpoint of the actual position and status to the data logger. The trackpoint may be skipped, see {@link TrackpointPolicy}.
 	 *
-	 * @param tp trackpoint to be logged
+	 * @param time     time the position was reached
+	 * @param distance driven distance since last trackpoint in m
+	 * @param soc      actual vehicle soc
+	 */
+	protected void logTrackpoint(long time, float distance, float soc) {
+		scenario.getKpiAccounting().drive(status, time, distance);
+		trackpointSampler.add(this.id, getShiftCounter(), track_id, time, getStatusAsText(), position.getLat(), position.getLon(),
+				distance, soc, connectedToFacilityID());
+	}
+
+	/**
+	 * Writes a trackpoint kept back by the trackpoint policy. Called at the end of the simulation.
 	 */
-	protected void logTrackpoint(Trackpoint tp) {
-		scenario.getDBLog().addTrackpoint(tp);
+	public void flushTrackpoints() {
+		trackpointSampler.flush();
 	}
 
 	/**
@@ -365,6 +407,7 @@ public abstract class Taxi extends PhysicalElement implements Observer {
 	 */
 	protected void startRideToRank(TaxiRank rank, long start_time) {
 		setTargetFacility(rank.getId());
+		setInboundRank(rank);
 		setTrackId(getNewTrackId());
 		setStatus(STATUS_ON_WAY_TO_RANK);
 		setRoute(findRoute(position, rank.getPosition()), start_time);
@@ -373,11 +416,13 @@ public abstract class Taxi extends PhysicalElement implements Observer {
 
 	/**
 	 * Starting a new ride to a customer
+	 *
+	 * @param start_time simulation time in ms
 	 */
-	protected void startRideToCustomer() {
+	protected void startRideToCustomer(long start_time) {
 		setTrackId(getNewTrackId());
 		setStatus(STATUS_ON_WAY_TO_CUSTOMER);
-		setRoute(findRoute(position, getCustomerRide().getStart()), getCustomerRide().getScheduledTime());
+		setRoute(findRoute(position, getCustomerRide().getStart()), start_time);
 		updatePosition();
 	}
 
@@ -419,9 +464,8 @@ public abstract class Taxi extends PhysicalElement implements Observer {
 	 * @return selected taxi rank
 	 * @see NextRankComparatorChain
 	 */
-	@SuppressWarnings("unchecked")
 	protected TaxiRank findNextRank(long time) {
-		return scenario.getFacilities().getBestRank(new NextRankComparatorChain(position, time), getTargetFacility());
+		return scenario.getFacilities().getBestRank(position, time, getTargetFacility());
 	}
 
 
@@ -525,12 +569,13 @@ public abstract class Taxi extends PhysicalElement implements Observer {
 	/**
 	 * Try to place assignment to the car. The car can deny the job, if for instance the SOC is two low or no route can be found to the target.
 	 *
-	 * @param e Demand Event with customer request
+	 * @param e    Demand Event with customer request
+	 * @param time simulation time the request is dispatched in ms, may be later than the request time in batch dispatch
 	 * @return <b>true</b> if ride was assigned to the car <b>false</b> otherwise
 	 */
-	public boolean tryToPlaceAssignment(DemandEvent e) {
-		if (isPossibleToServeCustomerDemand(e)) {
-			placeAssignment(e);
+	public boolean tryToPlaceAssignment(DemandEvent e, long time) {
+		if (isPossibleToServeCustomerDemand(e, time)) {
+			placeAssignment(e, time);
 			return true;
 		} else {
 			return false;
@@ -541,24 +586,39 @@ public abstract class Taxi extends PhysicalElement implements Observer {
 	/**
 	 * Checks if Car is able to serve the customer demand. Also checks if a route from the actual position to the customer pickup_loc can be found.
 	 *
+	 * @param e    Customer request
+	 * @param time simulation time the request is dispatched in ms
 	 * @return <b>true</b> if car is able, <b>false</b> otherwise
 	 */
-	protected abstract boolean isPossibleToServeCustomerDemand(DemandEvent e);
+	protected abstract boolean isPossibleToServeCustomerDemand(DemandEvent e, long time);
+
+	/**
+	 * Reports that this car declines the given customer request to the scenario's rejection accounting.
+	 *
+	 * @param e                    declined customer request
+	 * @param distance_to_customer distance from car to customer in m if calculated, -1 otherwise
+	 * @param reason               reason the ride was denied (use static variables of DeniedRide)
+	 * @see RejectionAccounting
+	 */
+	protected void rejectRide(DemandEvent e, double distance_to_customer, String reason) {
+		scenario.getRejectionAccounting().reject(this, e, distance_to_customer, reason);
+	}
 
 	/**
 	 * Places the customer assignment to the car.
 	 *
-	 * @param e Customer request
+	 * @param e    Customer request
+	 * @param time simulation time the request is dispatched in ms
 	 */
-	protected void placeAssignment(DemandEvent e) {
+	protected void placeAssignment(DemandEvent e, long time) {
 		setCustomerRide(e);
-		if (!quitCurrentTask(e.getScheduledTime())) {
+		if (!quitCurrentTask(time)) {
 			throw new RuntimeException("Error placing Assignment previous tast could't be stopped.");
 		}
 		if (this.position.equals(e.getStart())) {
-			startCustomerRide(e.getScheduledTime());
+			startCustomerRide(time);
 		} else {
-			startRideToCustomer();
+			startRideToCustomer(time);
 		}
 	}
 
@@ -584,6 +644,7 @@ public abstract class Taxi extends PhysicalElement implements Observer {
 		}
 		setPosition(position, time);
 		targetFacility = 0;
+		setInboundRank(null);
 		if (route.size() > 0) route.clear();
 		return true;
 	}
@@ -598,6 +659,15 @@ public abstract class Taxi extends PhysicalElement implements Observer {
 		return (time - last_login) > max_time_active;
 	}
 
+	/**
+	 * Returns the first time at which the maximum time active is exceeded, see {@link #maxTimeActiveIsExceeded(long)}.
+	 *
+	 * @return time in ms
+	 */
+	public long getMaxTimeActiveEnd() {
+		return last_login + max_time_active + 1;
+	}
+
 	@Override
 	public String toString() {
 
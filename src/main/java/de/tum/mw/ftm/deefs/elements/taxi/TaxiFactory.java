@@ -20,7 +20,9 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 
@@ -37,6 +39,7 @@ public class TaxiFactory {
 	private final AtomicInteger car_id;  //unique car id
 	private final Scenario scenario;       //scenario the cars operate in
 	private final TaxiAgency agency;       //taxi agency the car belongs to
+	private final Map<String, ChargingInterface> chargingInterfaces;    //shared charging interfaces by their connectors
 
 
 	/**
@@ -50,6 +53,7 @@ public class TaxiFactory {
 		this.agency = agency;
 		hopper = new MyGraphHopper();
 		car_id = new AtomicInteger(1);
+		chargingInterfaces = new HashMap<>();
 	}
 
 	/**
@@ -171,12 +175,21 @@ public class TaxiFactory {
 		Element e = XMLParser.getElement(e1, XMLParser.TAG_CHARGINGINTERFACE);
 		NodeList nl = e.getElementsByTagName(XMLParser.TAG_CONNECTOR);
 		if (nl != null && nl.getLength() > 0) {
-			ChargingInterface chargingInterface = new ChargingInterface();
+			List<Connector> connectors = new ArrayList<>();
+			StringBuilder key = new StringBuilder();
 			for (int i = 0; i < nl.getLength(); i++) {
 				Connector connector = getConnector((Element) nl.item(i));
-				chargingInterface.addConnector(connector);
+				connectors.add(connector);
+				key.append(connector.getType()).append(':').append(connector.getPMax()).append(';');
 			}
-			return chargingInterface;
+			//charging interfaces are not changed after creation, so cars with equal connectors share one instance
+			return chargingInterfaces.computeIfAbsent(key.toString(), k -> {
+				ChargingInterface chargingInterface = new ChargingInterface();
+				for (Connector connector : connectors) {
+					chargingInterface.addConnector(connector);
+				}
+				return chargingInterface;
+			});
 		} else {
 			throw new RuntimeException("Error parsing fleet xml. Can't build a charging interface without connectors");
 		}
@@ -0,0 +1,17 @@
+package de.tum.mw.ftm.deefs.events;
+
+import de.tum.mw.ftm.deefs.elements.TaxiAgency;
+
+/**
+ * Special Event, used to close the current batch window of the TaxiAgency.
+ * All customer requests buffered since the window was opened are assigned to cars in one go.
+ *
+ * @see Event
+ * @see TaxiAgency
+ */
+public class DispatchBatchEvent extends Event {
+
+	public DispatchBatchEvent(long scheduledTime) {
+		super(scheduledTime);
+	}
+}
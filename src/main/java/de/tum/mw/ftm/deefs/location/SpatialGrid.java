@@ -0,0 +1,269 @@
+package de.tum.mw.ftm.deefs.location;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Static spatial index over a set of elements with fixed positions, based on a uniform grid of lat/lon cells.
+ * <p> Elements are packed cell by cell into one array when the index is built, the index can not be changed afterwards.
+ * Queries only visit the cells around the reference position and calculate the exact distance ({@link Position#calcDist(Position)})
+ * for the elements in those cells:
+ * <br>- radius queries: all elements within a given distance
+ * <br>- incremental k-nearest queries: elements in ascending distance, cells are expanded ring by ring until no closer element can follow
+ * <p> All queries accept a filter, elements that don't pass the filter are skipped.
+ *
+ * @param <T> type of the indexed elements
+ */
+public class SpatialGrid<T> {
+
+	private static final double METERS_PER_DEGREE = 6371000 * Math.PI / 180;    // length of one degree latitude in m
+	private static final double SAFETY_FACTOR = 0.99;                            // keeps the distance bound of a cell ring conservative
+
+	private final Function<? super T, Position> positionOf;
+	private final double cellLat;         // cell height in degrees
+	private final double cellLon;         // cell width in degrees
+	private final double minLat;          // south border of the grid
+	private final double minLon;          // west border of the grid
+	private final double maxAbsLat;       // highest absolute latitude in the grid
+	private final int rows;
+	private final int cols;
+	private final int[] cellStart;        // first element index of each cell, cell i contains elements [cellStart[i], cellStart[i+1])
+	private final Object[] elements;      // elements packed cell by cell
+
+
+	/**
+	 * Builds a new index
+	 *
+	 * @param items      elements to be indexed
+	 * @param positionOf function which returns the position of an element
+	 * @param cellSize   edge length of a grid cell in m
+	 */
+	public SpatialGrid(Collection<? extends T> items, Function<? super T, Position> positionOf, double cellSize) {
+		this.positionOf = positionOf;
+		double south = Double.POSITIVE_INFINITY, north = Double.NEGATIVE_INFINITY;
+		double west = Double.POSITIVE_INFINITY, east = Double.NEGATIVE_INFINITY;
+		for (T item : items) {
+			Position p = positionOf.apply(item);
+			south = Math.min(south, p.getLat());
+			north = Math.max(north, p.getLat());
+			west = Math.min(west, p.getLon());
+			east = Math.max(east, p.getLon());
+		}
+		if (items.isEmpty()) {
+			south = north = west = east = 0;
+		}
+		this.minLat = south;
+		this.minLon = west;
+		this.maxAbsLat = Math.max(Math.abs(south), Math.abs(north));
+		this.cellLat = cellSize / METERS_PER_DEGREE;
+		this.cellLon = cellSize / (METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians((south + north) / 2)), 0.01));
+		this.rows = (int) Math.floor((north - south) / cellLat) + 1;
+		this.cols = (int) Math.floor((east - west) / cellLon) + 1;
+
+		//counting sort of the elements by cell
+		int[] cellOf = new int[items.size()];
+		this.cellStart = new int[rows * cols + 1];
+		int i = 0;
+		for (T item : items) {
+			Position p = positionOf.apply(item);
+			cellOf[i] = cell(row(p.getLat()), col(p.getLon()));
+			cellStart[cellOf[i] + 1]++;
+			i++;
+		}
+		for (int c = 0; c < rows * cols; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		this.elements = new Object[items.size()];
+		int[] fill = Arrays.copyOf(cellStart, rows * cols);
+		i = 0;
+		for (T item : items) {
+			elements[fill[cellOf[i]]++] = item;
+			i++;
+		}
+	}
+
+	/**
+	 * @return number of indexed elements
+	 */
+	public int size() {
+		return elements.length;
+	}
+
+	/**
+	 * Returns all elements within the given distance to the reference position.
+	 *
+	 * @param pos    reference position
+	 * @param radius max. distance in m
+	 * @param filter elements must pass this filter
+	 * @return elements within the radius, in cell order
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> withinRadius(Position pos, double radius, Predicate<? super T> filter) {
+		List<T> result = new ArrayList<>();
+		int rowFrom = clampRow(row(pos.getLat() - radius / METERS_PER_DEGREE));
+		int rowTo = clampRow(row(pos.getLat() + radius / METERS_PER_DEGREE));
+		double lonRadius = radius / (METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(Math.max(maxAbsLat, Math.abs(pos.getLat())))), 0.01));
+		int colFrom = clampCol(col(pos.getLon() - lonRadius));
+		int colTo = clampCol(col(pos.getLon() + lonRadius));
+		for (int r = rowFrom; r <= rowTo; r++) {
+			for (int c = colFrom; c <= colTo; c++) {
+				int cell = cell(r, c);
+				for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+					T item = (T) elements[k];
+					if (positionOf.apply(item).calcDist(pos) <= radius && filter.test(item)) {
+						result.add(item);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the closest element which passes the filter.
+	 *
+	 * @param pos    reference position
+	 * @param filter elements must pass this filter
+	 * @return closest element or <b>null</b> if no element passes the filter
+	 */
+	public T nearest(Position pos, Predicate<? super T> filter) {
+		Iterator<T> it = nearestIterator(pos, filter);
+		return it.hasNext() ? it.next() : null;
+	}
+
+	/**
+	 * Returns the k closest elements which pass the filter and are within the given distance.
+	 *
+	 * @param pos         reference position
+	 * @param k           max. number of elements
+	 * @param maxDistance max. distance in m
+	 * @param filter      elements must pass this filter
+	 * @return up to k elements in ascending distance
+	 */
+	public List<T> nearest(Position pos, int k, double maxDistance, Predicate<? super T> filter) {
+		List<T> result = new ArrayList<>(k);
+		Iterator<T> it = nearestIterator(pos, filter);
+		while (result.size() < k && it.hasNext()) {
+			T item = it.next();
+			if (positionOf.apply(item).calcDist(pos) > maxDistance) break;
+			result.add(item);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns an iterator over all elements which pass the filter in ascending distance to the reference position.
+	 * The cells are expanded lazily, so taking only the first elements visits only the cells around the reference position.
+	 *
+	 * @param pos    reference position
+	 * @param filter elements must pass this filter
+	 * @return iterator in ascending distance
+	 */
+	public Iterator<T> nearestIterator(Position pos, Predicate<? super T> filter) {
+		return new NearestIterator(pos, filter);
+	}
+
+	private int row(double lat) {
+		return (int) Math.floor((lat - minLat) / cellLat);
+	}
+
+	private int col(double lon) {
+		return (int) Math.floor((lon - minLon) / cellLon);
+	}
+
+	private int clampRow(int row) {
+		return Math.max(0, Math.min(rows - 1, row));
+	}
+
+	private int clampCol(int col) {
+		return Math.max(0, Math.min(cols - 1, col));
+	}
+
+	private int cell(int row, int col) {
+		return row * cols + col;
+	}
+
+	/**
+	 * Incremental nearest neighbour search. Cells are scanned in rings (Chebyshev distance in cells) around the cell of the reference position.
+	 * An element found so far is returned as soon as its distance is not greater than the lower distance bound of the next unscanned ring.
+	 */
+	private class NearestIterator implements Iterator<T> {
+
+		private final Position pos;
+		private final Predicate<? super T> filter;
+		private final PriorityQueue<Candidate> found;
+		private final int centerRow;
+		private final int centerCol;
+		private final int lastRing;          // last ring which still intersects the grid
+		private final double ringDistance;   // lower distance bound per ring in m
+		private int ring;                    // next ring to be scanned
+		private long sequence = 0;           // keeps the order of equally distant elements stable
+
+		NearestIterator(Position pos, Predicate<? super T> filter) {
+			this.pos = pos;
+			this.filter = filter;
+			this.found = new PriorityQueue<>();
+			this.centerRow = row(pos.getLat());
+			this.centerCol = col(pos.getLon());
+			int firstRing = Math.max(Math.max(-centerRow, centerRow - (rows - 1)), Math.max(-centerCol, centerCol - (cols - 1)));
+			this.ring = Math.max(0, firstRing);
+			this.lastRing = Math.max(Math.max(centerRow, rows - 1 - centerRow), Math.max(centerCol, cols - 1 - centerCol));
+			double cosLat = Math.cos(Math.toRadians(Math.max(maxAbsLat, Math.abs(pos.getLat()))));
+			this.ringDistance = Math.min(cellLat, cellLon * cosLat) * METERS_PER_DEGREE * SAFETY_FACTOR;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (ring <= lastRing && (found.isEmpty() || found.peek().distance > (ring - 1) * ringDistance)) {
+				scanRing(ring++);
+			}
+			return !found.isEmpty();
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			return found.poll().item;
+		}
+
+		@SuppressWarnings("unchecked")
+		private void scanRing(int r) {
+			for (int row = Math.max(0, centerRow - r); row <= Math.min(rows - 1, centerRow + r); row++) {
+				boolean edge = Math.abs(row - centerRow) == r;
+				for (int col = Math.max(0, centerCol - r); col <= Math.min(cols - 1, centerCol + r); col++) {
+					if (!edge && Math.abs(col - centerCol) != r) {
+						//jump to the right edge of the ring
+						col = Math.max(col, centerCol + r - 1);
+						continue;
+					}
+					int cell = cell(row, col);
+					for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+						T item = (T) elements[k];
+						if (filter.test(item)) {
+							found.add(new Candidate(item, positionOf.apply(item).calcDist(pos), sequence++));
+						}
+					}
+				}
+			}
+		}
+
+		private class Candidate implements Comparable<Candidate> {
+			private final T item;
+			private final double distance;
+			private final long sequence;
+
+			Candidate(T item, double distance, long sequence) {
+				this.item = item;
+				this.distance = distance;
+				this.sequence = sequence;
+			}
+
+			@Override
+			public int compareTo(Candidate o) {
+				int result = Double.compare(distance, o.distance);
+				return result != 0 ? result : Long.compare(sequence, o.sequence);
+			}
+		}
+	}
+}
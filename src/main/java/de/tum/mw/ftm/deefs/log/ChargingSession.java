@@ -0,0 +1,119 @@
+package de.tum.mw.ftm.deefs.log;
+
+/**
+ * Log class to store one summary per charging session, from connecting a car to a charging point until disconnecting it.
+ *
+ * @see EnergyAccounting
+ */
+public class ChargingSession {
+	private final int facility_id;    // unique facility id
+	private final int car_id;         // id of the car connected to the facility
+	private final long start;         // time the car was connected in ms
+	private final String connector;   // used Connector
+	private final float p_max;        // max. supported power for charging process in W
+	private long end;                 // time the car was disconnected in ms
+	private double energy = 0;        // charged energy in J
+	private float peak_power = 0;     // highest charging power in W
+
+
+	/**
+	 * Create a new log entry for a charging session
+	 *
+	 * @param facility_id id of the regarding facility
+	 * @param car_id      id of the car charging at facility
+	 * @param start       time the car was connected in ms
+	 * @param connector   used connector
+	 * @param p_max       max. supported power for charging process in W
+	 */
+	public ChargingSession(int facility_id, int car_id, long start, String connector, float p_max) {
+		this.facility_id = facility_id;
+		this.car_id = car_id;
+		this.start = start;
+		this.end = start;
+		this.connector = connector;
+		this.p_max = p_max;
+	}
+
+	/**
+	 * Adds the energy charged in an interval of the session.
+	 *
+	 * @param end        end of the interval in ms
+	 * @param energy     charged energy in J
+	 * @param peak_power highest charging power within the interval in W
+	 */
+	public void add(long end, float energy, float peak_power) {
+		this.end = Math.max(this.end, end);
+		this.energy += energy;
+		this.peak_power = Math.max(this.peak_power, peak_power);
+	}
+
+	/**
+	 * @param end time the car was disconnected in ms
+	 */
+	public void setEnd(long end) {
+		this.end = Math.max(this.end, end);
+	}
+
+	/**
+	 * @return id of the regarding facility
+	 */
+	public int getFacilityID() {
+		return facility_id;
+	}
+
+	/**
+	 * @return id of the car charging at facility
+	 */
+	public int getCarID() {
+		return car_id;
+	}
+
+	/**
+	 * @return time the car was connected in ms
+	 */
+	public long getStart() {
+		return start;
+	}
+
+	/**
+	 * @return time the car was disconnected in ms
+	 */
+	public long getEnd() {
+		return end;
+	}
+
+	/**
+	 * @return charged energy in J
+	 */
+	public float getEnergy() {
+		return (float) energy;
+	}
+
+	/**
+	 * @return average charging power over the whole session (including plug in time) in W
+	 */
+	public float getAveragePower() {
+		return end > start ? (float) (energy / (end - start) * 1000) : 0;
+	}
+
+	/**
+	 * @return highest charging power in W
+	 */
+	public float getPeakPower() {
+		return peak_power;
+	}
+
+	/**
+	 * @return used connector
+	 */
+	public String getConnector() {
+		return connector;
+	}
+
+	/**
+	 * @return max. supported power for charging process in W
+	 */
+	public float getPMax() {
+		return p_max;
+	}
+}
@@ -0,0 +1,111 @@
+package de.tum.mw.ftm.deefs.log;
+
+/**
+ * Log class to store one summary per customer request that was declined by at least one car.
+ * Instead of one row per declining car, the number of declines per reason and the closest declining car are kept.
+ *
+ * @see DeniedRide
+ * @see RejectionAccounting
+ */
+public class DeniedRideSummary {
+	private final int track_id;            // id of the requested track
+	private final long time;                // scheduled time of the track
+	private final double track_distance;    // original track distance in m
+	private final boolean served;            // true if a car finally accepted the request
+	private final int candidates;            // number of cars which declined the request
+	private final int[] reasonCounts;        // number of declines per reason, indexed by DeniedRide.REASONS
+	private final int closest_car_id;        // id of the closest declining car (coarse distance)
+	private final float closest_car_distance; // coarse distance from the closest declining car to the customer in m
+	private final String closest_car_reason; // reason of the closest declining car
+
+
+	/**
+	 * Create a new log entry for a declined customer request
+	 *
+	 * @param track_id             ID of the requested track
+	 * @param time                 scheduled time of the track
+	 * @param track_distance       original track distance in m
+	 * @param served               <b>true</b> if a car finally accepted the request
+	 * @param candidates           number of cars which declined the request
+	 * @param reasonCounts         number of declines per reason, indexed by {@link DeniedRide#REASONS}
+	 * @param closest_car_id       id of the closest declining car
+	 * @param closest_car_distance coarse distance from the closest declining car to the customer in m
+	 * @param closest_car_reason   reason of the closest declining car
+	 */
+	public DeniedRideSummary(int track_id, long time, double track_distance, boolean served, int candidates, int[] reasonCounts,
+							 int closest_car_id, float closest_car_distance, String closest_car_reason) {
+		this.track_id = track_id;
+		this.time = time;
+		this.track_distance = track_distance;
+		this.served = served;
+		this.candidates = candidates;
+		this.reasonCounts = reasonCounts;
+		this.closest_car_id = closest_car_id;
+		this.closest_car_distance = closest_car_distance;
+		this.closest_car_reason = closest_car_reason;
+	}
+
+	/**
+	 * @return id of the requested track
+	 */
+	public int getTrack_id() {
+		return track_id;
+	}
+
+	/**
+	 * @return scheduled time of the track in ms
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return original track distance in m
+	 */
+	public double getTrack_distance() {
+		return track_distance;
+	}
+
+	/**
+	 * @return <b>true</b> if a car finally accepted the request, <b>false</b> otherwise
+	 */
+	public boolean isServed() {
+		return served;
+	}
+
+	/**
+	 * @return number of cars which declined the request
+	 */
+	public int getCandidates() {
+		return candidates;
+	}
+
+	/**
+	 * @param reasonCode reason code, see {@link DeniedRide#getReasonCode(String)}
+	 * @return number of declines for the given reason
+	 */
+	public int getReasonCount(int reasonCode) {
+		return reasonCounts[reasonCode];
+	}
+
+	/**
+	 * @return id of the closest declining car
+	 */
+	public int getClosest_car_id() {
+		return closest_car_id;
+	}
+
+	/**
+	 * @return coarse distance from the closest declining car to the customer in m
+	 */
+	public float getClosest_car_distance() {
+		return closest_car_distance;
+	}
+
+	/**
+	 * @return reason of the closest declining car
+	 */
+	public String getClosest_car_reason() {
+		return closest_car_reason;
+	}
+}
@@ -0,0 +1,158 @@
+package de.tum.mw.ftm.deefs.log;
+
+import de.tum.mw.ftm.deefs.Config;
+import de.tum.mw.ftm.deefs.elements.eMobilityComponents.ChargingPoint;
+import de.tum.mw.ftm.deefs.elements.eMobilityComponents.Connector;
+import de.tum.mw.ftm.deefs.elements.facilitiies.ChargingStation;
+import de.tum.mw.ftm.deefs.elements.taxi.BEVTaxi;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Collects the energy charged at charging points.
+ * <p> Instead of writing one energy stats row per calculation step, the charged energy is aggregated per charging session,
+ * and the grid load curves of the stations are accumulated in a {@link LoadCurve} (config keys load_curve_bucket_size and load_curve_horizon).
+ * Charging points report every charged interval by {@link #charge(BEVTaxi, long, long, float, float)}, intervals never cross a boundary returned by
+ * {@link #getNextBoundary(long, long)}.
+ * <p> Log levels (config key energy_log_level):
+ * <br>SESSION: one {@link ChargingSession} per charging session and the load curves (default)
+ * <br>FULL: in addition one energy stats row per calculation step of chargingpoint_charging_curve_delta_t (debugging)
+ *
+ * @see ChargingSession
+ * @see LoadCurve
+ */
+public class EnergyAccounting {
+
+	public static final String LEVEL_SESSION = "SESSION";
+	public static final String LEVEL_FULL = "FULL";
+
+	private final ResultSink resultSink;
+	private final boolean fullTrail;                             // true if every calculation step is logged
+	private final long step;                                     // length of a calculation step in ms
+	private final Map<BEVTaxi, OpenSession> openSessions;        // sessions of the connected cars
+	private final LoadCurve loadCurve;                           // load curves of the stations
+
+
+	/**
+	 * New instance of EnergyAccounting
+	 *
+	 * @param resultSink ResultSink the results are written to
+	 */
+	public EnergyAccounting(ResultSink resultSink) {
+		this.resultSink = resultSink;
+		this.fullTrail = LEVEL_FULL.equalsIgnoreCase(Config.getProperty(Config.ENERGY_LOG_LEVEL, LEVEL_SESSION));
+		this.step = Long.parseLong(Config.getProperty(Config.CHARGINGPOINT_CHARGING_CURVE_DELTA_T, "60000"));
+		this.openSessions = new IdentityHashMap<>();
+		this.loadCurve = new LoadCurve(Long.parseLong(Config.getProperty(Config.LOAD_CURVE_BUCKET_SIZE, "900000")),
+				Long.parseLong(Config.getProperty(Config.LOAD_CURVE_HORIZON, "86400000")));
+	}
+
+	/**
+	 * Adds a charging station to the load curves, so its installed power is known and it is listed even if it is never used.
+	 *
+	 * @param station charging station
+	 */
+	public void addStation(ChargingStation station) {
+		loadCurve.addStation(station.getId(), station.getInstalledPower());
+	}
+
+	/**
+	 * Opens a new charging session.
+	 *
+	 * @param chargingPoint charging point the car is connected to
+	 * @param facility_id   id of the charging station
+	 * @param car           connected car
+	 * @param time          time the car was connected in ms
+	 * @param connector     used connector
+	 */
+	public void beginSession(ChargingPoint chargingPoint, int facility_id, BEVTaxi car, long time, Connector connector) {
+		openSessions.put(car, new OpenSession(new ChargingSession(facility_id, car.getId(), time, connector.getTypeAsString(), connector.getPMax()),
+				connector.getType(), chargingPoint));
+		if (fullTrail) {
+			resultSink.addEnergyStats(facility_id, car.getId(), time, 0, 0, connector.getTypeAsString(), connector.getPMax());
+		}
+	}
+
+	/**
+	 * Returns the end of the interval a charging point may report at once, starting at the given time.
+	 *
+	 * @param from  start of the interval in ms
+	 * @param start start of the charging process in ms, the calculation steps are counted from here
+	 * @return next boundary in ms
+	 */
+	public long getNextBoundary(long from, long start) {
+		long next = loadCurve.getNextBoundary(from);
+		if (fullTrail) {
+			next = Math.min(next, start + (Math.floorDiv(from - start, step) + 1) * step);
+		}
+		return next;
+	}
+
+	/**
+	 * Counts the energy charged by a car in the given interval.
+	 *
+	 * @param car        charging car
+	 * @param from       start of the interval in ms
+	 * @param to         end of the interval in ms
+	 * @param energy     charged energy in J
+	 * @param peak_power highest charging power within the interval in W
+	 */
+	public void charge(BEVTaxi car, long from, long to, float energy, float peak_power) {
+		OpenSession open = openSessions.get(car);
+		if (open == null) return;
+		ChargingSession session = open.session;
+		session.add(to, energy, peak_power);
+		loadCurve.add(session.getFacilityID(), open.connectorType, from, energy);
+		if (fullTrail) {
+			resultSink.addEnergyStats(session.getFacilityID(), car.getId(), to, energy / (to - from) * 1000, energy, session.getConnector(), session.getPMax());
+		}
+	}
+
+	/**
+	 * Closes the charging session of a car and writes it.
+	 *
+	 * @param car  disconnected car
+	 * @param time time the car was disconnected in ms
+	 */
+	public void endSession(BEVTaxi car, long time) {
+		OpenSession open = openSessions.remove(car);
+		if (open != null) {
+			open.session.setEnd(time);
+			resultSink.addChargingSession(open.session);
+		}
+	}
+
+	/**
+	 * Writes the sessions which are still open and the load curves. The charge of the cars still connected is calculated up to the end
+	 * of the simulation first, so the sessions and the load curves include it. Call this method once at the end of the simulation.
+	 *
+	 * @param time end of the simulation in ms
+	 */
+	public void flush(long time) {
+		for (OpenSession open : new ArrayList<>(openSessions.values())) {
+			open.chargingPoint.evaluateCharge(time);
+		}
+		for (OpenSession open : openSessions.values()) {
+			resultSink.addChargingSession(open.session);
+		}
+		openSessions.clear();
+		resultSink.addLoadCurve(loadCurve);
+	}
+
+	/**
+	 * Charging session of a connected car
+	 */
+	private static class OpenSession {
+		private final ChargingSession session;
+		private final int connectorType;
+		private final ChargingPoint chargingPoint;
+
+		OpenSession(ChargingSession session, int connectorType, ChargingPoint chargingPoint) {
+			this.session = session;
+			this.connectorType = connectorType;
+			this.chargingPoint = chargingPoint;
+		}
+	}
+}
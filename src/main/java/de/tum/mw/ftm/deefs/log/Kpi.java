@@ -0,0 +1,55 @@
+package de.tum.mw.ftm.deefs.log;
+
+/**
+ * Log class to store one key performance indicator, see {@link KpiAccounting}
+ */
+public class Kpi {
+	private final int hour;           // hour of simulation time, KpiAccounting.HOUR_TOTAL for the whole run
+	private final int facility_id;    // facility id, KpiAccounting.FLEET for the whole fleet
+	private final String name;        // name of the KPI
+	private final double value;       // value of the KPI
+
+
+	/**
+	 * Create a new log entry for a KPI
+	 *
+	 * @param hour        hour of simulation time, {@link KpiAccounting#HOUR_TOTAL} for the whole run
+	 * @param facility_id facility id, {@link KpiAccounting#FLEET} for the whole fleet
+	 * @param name        name of the KPI
+	 * @param value       value of the KPI
+	 */
+	public Kpi(int hour, int facility_id, String name, double value) {
+		this.hour = hour;
+		this.facility_id = facility_id;
+		this.name = name;
+		this.value = value;
+	}
+
+	/**
+	 * @return hour of simulation time, {@link KpiAccounting#HOUR_TOTAL} for the whole run
+	 */
+	public int getHour() {
+		return hour;
+	}
+
+	/**
+	 * @return facility id, {@link KpiAccounting#FLEET} for the whole fleet
+	 */
+	public int getFacilityID() {
+		return facility_id;
+	}
+
+	/**
+	 * @return name of the KPI
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return value of the KPI
+	 */
+	public double getValue() {
+		return value;
+	}
+}
@@ -0,0 +1,318 @@
+package de.tum.mw.ftm.deefs.log;
+
+import de.tum.mw.ftm.deefs.elements.taxi.BEVTaxi;
+import de.tum.mw.ftm.deefs.elements.taxi.Taxi;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes the key performance indicators of a simulation run while it is running, so they are available with every ResultSink
+ * (including {@link NullSink}) and don't have to be queried from the trackpoints afterwards.
+ * <p> All values are collected in primitive arrays per hour of simulation time, per facility and per car, which grow if necessary.
+ * At the end of the simulation one row per hour and KPI, and one row per KPI for the whole run is written to the table kpi.
+ * <p> KPIs per hour and for the whole run:
+ * <br>served_rides, denied_rides: customer requests by their scheduled time
+ * <br>distance_empty_km, distance_occupied_km: driven distance without and with customer
+ * <br>time_[status]_h: vehicle hours per vehicle status, see {@link Taxi#STATUS_NAMES}
+ * <br>soc_[from]_[to]: number of logged in BEVs within the soc range, sampled at the beginning of every hour
+ * <p> KPIs per facility for the whole run:
+ * <br>checkins, denied_checkins: successful and denied check ins
+ * <br>connected_time_h: vehicle hours connected to the facility (charging at charging stations, waiting at taxi ranks)
+ * <br>queued, queue_time_h: cars and vehicle hours in the queue of a charging station
+ */
+public class KpiAccounting {
+
+	public static final int HOUR_TOTAL = -1;    // hour of the rows for the whole run
+	public static final int FLEET = 0;          // facility id of the rows for the whole fleet
+
+	private static final long HOUR = 3600000;
+	private static final int SOC_BINS = 10;
+
+	private final ResultSink resultSink;
+
+	// per hour
+	private int usedHours = 0;                  // number of hours with values
+	private int[] servedRides;
+	private int[] deniedRides;
+	private double[] distanceEmpty;             // in m
+	private double[] distanceOccupied;          // in m
+	private double[][] statusTime;              // [status][hour] in ms
+	private int[][] socHistogram;               // [bin][hour]
+	private long nextSocSample = 0;             // time of the next soc sample in ms
+
+	// per facility, index = facility id
+	private int[] checkins = new int[0];
+	private int[] deniedCheckins = new int[0];
+	private int[] queued = new int[0];
+	private double[] connectedTime = new double[0];    // in ms
+	private double[] queueTime = new double[0];        // in ms
+
+	// per car, index = car id
+	private long[] connectedSince = new long[0];       // check in time, -1 if not connected
+	private long[] queuedSince = new long[0];          // time the car entered a queue, -1 if not queued
+	private int[] facilityOf = new int[0];             // facility the car is connected to or queued at
+
+
+	/**
+	 * New instance of KpiAccounting
+	 *
+	 * @param resultSink ResultSink the KPIs are written to
+	 */
+	public KpiAccounting(ResultSink resultSink) {
+		this.resultSink = resultSink;
+		int hours = 24;
+		servedRides = new int[hours];
+		deniedRides = new int[hours];
+		distanceEmpty = new double[hours];
+		distanceOccupied = new double[hours];
+		statusTime = new double[Taxi.STATUS_NAMES.length][hours];
+		socHistogram = new int[SOC_BINS][hours];
+	}
+
+	/**
+	 * Counts a finished customer request
+	 *
+	 * @param time   scheduled time of the request in ms
+	 * @param served <b>true</b> if a car accepted the request, <b>false</b> otherwise
+	 */
+	public void request(long time, boolean served) {
+		int hour = hour(time);
+		if (served) {
+			servedRides[hour]++;
+		} else {
+			deniedRides[hour]++;
+		}
+	}
+
+	/**
+	 * Counts a driven distance
+	 *
+	 * @param status   vehicle status while driving
+	 * @param time     time the distance was driven in ms
+	 * @param distance driven distance in m
+	 */
+	public void drive(int status, long time, float distance) {
+		if (distance <= 0) return;
+		int hour = hour(time);
+		if (status == Taxi.STATUS_OCCUPIED) {
+			distanceOccupied[hour] += distance;
+		} else {
+			distanceEmpty[hour] += distance;
+		}
+	}
+
+	/**
+	 * Counts the time a vehicle spent in a status, distributed to the hours of the interval
+	 *
+	 * @param status vehicle status
+	 * @param from   time the vehicle entered the status in ms
+	 * @param to     time the vehicle left the status in ms
+	 */
+	public void status(int status, long from, long to) {
+		long t = from;
+		while (t < to) {
+			int hour = hour(t);
+			long end = Math.min(to, (hour + 1) * HOUR);
+			statusTime[status][hour] += end - t;
+			t = end;
+		}
+	}
+
+	/**
+	 * Counts a successful check in at a facility. A car waiting in the queue of the facility leaves the queue.
+	 *
+	 * @param facility_id facility id
+	 * @param car_id      car id
+	 * @param time        check in time in ms
+	 */
+	public void checkIn(int facility_id, int car_id, long time) {
+		leaveQueue(facility_id, car_id, time);
+		ensureFacility(facility_id);
+		ensureCar(car_id);
+		checkins[facility_id]++;
+		connectedSince[car_id] = time;
+		facilityOf[car_id] = facility_id;
+	}
+
+	/**
+	 * Counts a check out from a facility
+	 *
+	 * @param facility_id facility id
+	 * @param car_id      car id
+	 * @param time        check out time in ms
+	 */
+	public void checkOut(int facility_id, int car_id, long time) {
+		ensureFacility(facility_id);
+		ensureCar(car_id);
+		if (connectedSince[car_id] >= 0) {
+			connectedTime[facility_id] += time - connectedSince[car_id];
+			connectedSince[car_id] = -1;
+		}
+	}
+
+	/**
+	 * Counts a denied check in at a facility
+	 *
+	 * @param facility_id facility id
+	 */
+	public void checkInDenied(int facility_id) {
+		ensureFacility(facility_id);
+		deniedCheckins[facility_id]++;
+	}
+
+	/**
+	 * Counts a car entering the queue of a facility
+	 *
+	 * @param facility_id facility id
+	 * @param car_id      car id
+	 * @param time        time the car entered the queue in ms
+	 */
+	public void enterQueue(int facility_id, int car_id, long time) {
+		ensureFacility(facility_id);
+		ensureCar(car_id);
+		queued[facility_id]++;
+		queuedSince[car_id] = time;
+		facilityOf[car_id] = facility_id;
+	}
+
+	/**
+	 * Counts a car leaving the queue of a facility. Has no effect if the car is not in a queue.
+	 *
+	 * @param facility_id facility id
+	 * @param car_id      car id
+	 * @param time        time the car left the queue in ms
+	 */
+	public void leaveQueue(int facility_id, int car_id, long time) {
+		if (car_id < queuedSince.length && queuedSince[car_id] >= 0) {
+			ensureFacility(facility_id);
+			queueTime[facility_id] += time - queuedSince[car_id];
+			queuedSince[car_id] = -1;
+		}
+	}
+
+	/**
+	 * Samples the soc of the fleet at the beginning of every hour. Call it before an event is handled.
+	 *
+	 * @param time  scheduled time of the next event in ms
+	 * @param fleet vehicle fleet
+	 */
+	public void advance(long time, List<Taxi> fleet) {
+		while (time >= nextSocSample) {
+			int hour = hour(nextSocSample);
+			for (Taxi taxi : fleet) {
+				if (taxi instanceof BEVTaxi && taxi.getStatus() != Taxi.STATUS_LOGGED_OFF) {
+					//the soc of charging cars is projected to the sample time, reading it must not charge the car
+					float soc = ((BEVTaxi) taxi).getSOC(nextSocSample);
+					int bin = Math.max(0, Math.min(SOC_BINS - 1, (int) (soc / 100f * SOC_BINS)));
+					socHistogram[bin][hour]++;
+				}
+			}
+			nextSocSample += HOUR;
+		}
+	}
+
+	/**
+	 * Closes the status times and facility times which are still open and writes all KPIs to the ResultSink.
+	 *
+	 * @param time  end of the simulation in ms
+	 * @param fleet vehicle fleet
+	 */
+	public void flush(long time, List<Taxi> fleet) {
+		for (Taxi taxi : fleet) {
+			status(taxi.getStatus(), taxi.getStatusSince(), time);
+		}
+		for (int car = 0; car < connectedSince.length; car++) {
+			if (connectedSince[car] >= 0) connectedTime[facilityOf[car]] += time - connectedSince[car];
+			if (queuedSince[car] >= 0) queueTime[facilityOf[car]] += time - queuedSince[car];
+		}
+		for (int hour = 0; hour < usedHours; hour++) {
+			writeHour(hour);
+		}
+		writeHour(HOUR_TOTAL);
+		for (int facility = 0; facility < checkins.length; facility++) {
+			if (checkins[facility] == 0 && deniedCheckins[facility] == 0 && queued[facility] == 0) continue;
+			resultSink.addKpi(new Kpi(HOUR_TOTAL, facility, "checkins", checkins[facility]));
+			resultSink.addKpi(new Kpi(HOUR_TOTAL, facility, "denied_checkins", deniedCheckins[facility]));
+			resultSink.addKpi(new Kpi(HOUR_TOTAL, facility, "connected_time_h", connectedTime[facility] / HOUR));
+			resultSink.addKpi(new Kpi(HOUR_TOTAL, facility, "queued", queued[facility]));
+			resultSink.addKpi(new Kpi(HOUR_TOTAL, facility, "queue_time_h", queueTime[facility] / HOUR));
+		}
+	}
+
+	/**
+	 * Writes the fleet KPIs of an hour, or the sums of all hours
+	 *
+	 * @param hour hour or {@link #HOUR_TOTAL}
+	 */
+	private void writeHour(int hour) {
+		int from = hour == HOUR_TOTAL ? 0 : hour;
+		int to = hour == HOUR_TOTAL ? usedHours : hour + 1;
+		resultSink.addKpi(new Kpi(hour, FLEET, "served_rides", sum(servedRides, from, to)));
+		resultSink.addKpi(new Kpi(hour, FLEET, "denied_rides", sum(deniedRides, from, to)));
+		resultSink.addKpi(new Kpi(hour, FLEET, "distance_empty_km", sum(distanceEmpty, from, to) / 1000));
+		resultSink.addKpi(new Kpi(hour, FLEET, "distance_occupied_km", sum(distanceOccupied, from, to) / 1000));
+		for (int status = 0; status < statusTime.length; status++) {
+			resultSink.addKpi(new Kpi(hour, FLEET, "time_" + Taxi.STATUS_NAMES[status] + "_h", sum(statusTime[status], from, to) / HOUR));
+		}
+		if (hour != HOUR_TOTAL) {
+			for (int bin = 0; bin < SOC_BINS; bin++) {
+				resultSink.addKpi(new Kpi(hour, FLEET, String.format("soc_%d_%d", bin * 100 / SOC_BINS, (bin + 1) * 100 / SOC_BINS), socHistogram[bin][hour]));
+			}
+		}
+	}
+
+	private static double sum(double[] values, int from, int to) {
+		double sum = 0;
+		for (int i = from; i < to; i++) sum += values[i];
+		return sum;
+	}
+
+	private static double sum(int[] values, int from, int to) {
+		double sum = 0;
+		for (int i = from; i < to; i++) sum += values[i];
+		return sum;
+	}
+
+	/**
+	 * @param time time in ms
+	 * @return index of the hour, the hourly arrays are extended if necessary
+	 */
+	private int hour(long time) {
+		int hour = (int) (Math.max(0, time) / HOUR);
+		if (hour >= servedRides.length) {
+			int hours = Math.max(hour + 1, 2 * servedRides.length);
+			servedRides = Arrays.copyOf(servedRides, hours);
+			deniedRides = Arrays.copyOf(deniedRides, hours);
+			distanceEmpty = Arrays.copyOf(distanceEmpty, hours);
+			distanceOccupied = Arrays.copyOf(distanceOccupied, hours);
+			for (int i = 0; i < statusTime.length; i++) statusTime[i] = Arrays.copyOf(statusTime[i], hours);
+			for (int i = 0; i < SOC_BINS; i++) socHistogram[i] = Arrays.copyOf(socHistogram[i], hours);
+		}
+		usedHours = Math.max(usedHours, hour + 1);
+		return hour;
+	}
+
+	private void ensureFacility(int facility_id) {
+		if (facility_id >= checkins.length) {
+			int size = Math.max(facility_id + 1, 2 * checkins.length);
+			checkins = Arrays.copyOf(checkins, size);
+			deniedCheckins = Arrays.copyOf(deniedCheckins, size);
+			queued = Arrays.copyOf(queued, size);
+			connectedTime = Arrays.copyOf(connectedTime, size);
+			queueTime = Arrays.copyOf(queueTime, size);
+		}
+	}
+
+	private void ensureCar(int car_id) {
+		if (car_id >= connectedSince.length) {
+			int size = Math.max(car_id + 1, 2 * connectedSince.length);
+			int old = connectedSince.length;
+			connectedSince = Arrays.copyOf(connectedSince, size);
+			queuedSince = Arrays.copyOf(queuedSince, size);
+			facilityOf = Arrays.copyOf(facilityOf, size);
+			Arrays.fill(connectedSince, old, size, -1);
+			Arrays.fill(queuedSince, old, size, -1);
+		}
+	}
+}
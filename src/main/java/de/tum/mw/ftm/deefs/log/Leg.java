@@ -0,0 +1,150 @@
+package de.tum.mw.ftm.deefs.log;
+
+/**
+ * Log class to store one driven leg of a vehicle: all trackpoints with the same status, facility, track and shift.
+ * The geometry is stored as encoded polyline with relative timestamps, see {@link PolylineCodec}.
+ *
+ * @see TrackpointSampler
+ * @see de.tum.mw.ftm.deefs.log.sqlite.LegExporter
+ */
+public class Leg {
+	private final int car_id;         // unique car id
+	private final int shift_count;    // vehicles shift count
+	private final int track_id;       // vehicles track id
+	private final String status;      // internal vehicle status
+	private final int facility_id;    // id of connected facility (if connected)
+	private final long start;         // time of the first trackpoint in ms
+	private final long end;           // time of the last trackpoint in ms
+	private final float start_soc;    // soc at the first trackpoint
+	private final float end_soc;      // soc at the last trackpoint
+	private final float distance;     // driven distance of all trackpoints of the leg in m
+	private final int points;         // number of trackpoints
+	private final String polyline;    // encoded positions of the trackpoints
+	private final String times;       // encoded times of the trackpoints, relative to start
+
+
+	/**
+	 * Create a new log entry for a leg
+	 *
+	 * @param car_id      unique car id
+	 * @param shift_count vehicles shift count
+	 * @param track_id    vehicles track id
+	 * @param status      internal vehicle status
+	 * @param facility_id id of connected facility (if connected)
+	 * @param start       time of the first trackpoint in ms
+	 * @param end         time of the last trackpoint in ms
+	 * @param start_soc   soc at the first trackpoint
+	 * @param end_soc     soc at the last trackpoint
+	 * @param distance    driven distance of all trackpoints of the leg in m
+	 * @param points      number of trackpoints
+	 * @param polyline    encoded positions of the trackpoints
+	 * @param times       encoded times of the trackpoints, relative to start
+	 */
+	public Leg(int car_id, int shift_count, int track_id, String status, int facility_id, long start, long end,
+			   float start_soc, float end_soc, float distance, int points, String polyline, String times) {
+		this.car_id = car_id;
+		this.shift_count = shift_count;
+		this.track_id = track_id;
+		this.status = status;
+		this.facility_id = facility_id;
+		this.start = start;
+		this.end = end;
+		this.start_soc = start_soc;
+		this.end_soc = end_soc;
+		this.distance = distance;
+		this.points = points;
+		this.polyline = polyline;
+		this.times = times;
+	}
+
+	/**
+	 * @return unique car id
+	 */
+	public int getCarID() {
+		return car_id;
+	}
+
+	/**
+	 * @return vehicles shift count
+	 */
+	public int getShiftCount() {
+		return shift_count;
+	}
+
+	/**
+	 * @return vehicles track id
+	 */
+	public int getTrackID() {
+		return track_id;
+	}
+
+	/**
+	 * @return internal vehicle status
+	 */
+	public String getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return id of connected facility (if connected)
+	 */
+	public int getFacilityID() {
+		return facility_id;
+	}
+
+	/**
+	 * @return time of the first trackpoint in ms
+	 */
+	public long getStart() {
+		return start;
+	}
+
+	/**
+	 * @return time of the last trackpoint in ms
+	 */
+	public long getEnd() {
+		return end;
+	}
+
+	/**
+	 * @return soc at the first trackpoint
+	 */
+	public float getStartSoc() {
+		return start_soc;
+	}
+
+	/**
+	 * @return soc at the last trackpoint
+	 */
+	public float getEndSoc() {
+		return end_soc;
+	}
+
+	/**
+	 * @return driven distance of all trackpoints of the leg in m
+	 */
+	public float getDistance() {
+		return distance;
+	}
+
+	/**
+	 * @return number of trackpoints
+	 */
+	public int getPoints() {
+		return points;
+	}
+
+	/**
+	 * @return encoded positions of the trackpoints
+	 */
+	public String getPolyline() {
+		return polyline;
+	}
+
+	/**
+	 * @return encoded times of the trackpoints, relative to start
+	 */
+	public String getTimes() {
+		return times;
+	}
+}
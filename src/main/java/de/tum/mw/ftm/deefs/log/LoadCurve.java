@@ -0,0 +1,248 @@
+package de.tum.mw.ftm.deefs.log;
+
+import de.tum.mw.ftm.deefs.elements.eMobilityComponents.Connector;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Grid load curves of the charging stations, accumulated while the simulation runs.
+ * <p> The charged energy is summed up in fixed time buckets per charging station, per connector type and for the whole system.
+ * All curves are kept in primitive arrays, which are allocated for the expected horizon and grow if the simulation runs longer.
+ * Charged intervals must not cross a bucket boundary, see {@link #getNextBoundary(long)}.
+ * <p> Besides the curves the peak power of every station and of the whole system is tracked. The coincidence factor of a station is
+ * its peak power related to its installed power, the coincidence factor of the system is the system's peak related to the sum of the station peaks.
+ *
+ * @see EnergyAccounting
+ */
+public class LoadCurve {
+
+	private final long bucketSize;                  // length of a time bucket in ms
+	private final Map<Integer, Integer> rowById;    // row of each charging station by facility id
+	private int[] stationIds;                       // facility id of each row
+	private float[] installedPower;                 // installed power of each row in W
+	private double[][] byStation;                   // charged energy in J [row][bucket]
+	private final double[][] byConnector;           // charged energy in J [connector type][bucket]
+	private double[] system;                        // charged energy in J [bucket]
+	private int stations = 0;                       // number of used rows
+	private int lastBucket = -1;                    // last bucket with charged energy
+
+
+	/**
+	 * New, empty load curve
+	 *
+	 * @param bucketSize length of a time bucket in ms
+	 * @param horizon    expected simulation horizon in ms, used to allocate the curves
+	 */
+	public LoadCurve(long bucketSize, long horizon) {
+		if (bucketSize <= 0) {
+			throw new RuntimeException("Error while creating LoadCurve: bucket size must be positive!");
+		}
+		this.bucketSize = bucketSize;
+		int buckets = (int) Math.max(1, (horizon + bucketSize - 1) / bucketSize);
+		this.rowById = new HashMap<>();
+		this.stationIds = new int[16];
+		this.installedPower = new float[16];
+		this.byStation = new double[16][];
+		this.byConnector = new double[Connector.TYPE_SUPERCHARGER + 1][buckets];
+		this.system = new double[buckets];
+	}
+
+	/**
+	 * Adds a charging station and allocates its curve. Adding a station twice updates its installed power.
+	 *
+	 * @param facility_id    id of the charging station
+	 * @param installedPower installed charging power in W
+	 */
+	public void addStation(int facility_id, float installedPower) {
+		this.installedPower[getRow(facility_id)] = installedPower;
+	}
+
+	/**
+	 * Returns the end of the bucket the given time belongs to.
+	 *
+	 * @param from time in ms
+	 * @return start of the next bucket in ms
+	 */
+	public long getNextBoundary(long from) {
+		return (Math.floorDiv(from, bucketSize) + 1) * bucketSize;
+	}
+
+	/**
+	 * Adds the energy charged in the given interval. The interval has to lie within one bucket.
+	 *
+	 * @param facility_id   id of the charging station
+	 * @param connectorType type of the used connector
+	 * @param from          start of the interval in ms
+	 * @param energy        charged energy in J
+	 */
+	public void add(int facility_id, int connectorType, long from, float energy) {
+		if (energy <= 0 || from < 0) return;
+		int bucket = (int) (from / bucketSize);
+		ensureCapacity(bucket);
+		byStation[getRow(facility_id)][bucket] += energy;
+		byConnector[connectorType][bucket] += energy;
+		system[bucket] += energy;
+		lastBucket = Math.max(lastBucket, bucket);
+	}
+
+	/**
+	 * @return length of a time bucket in ms
+	 */
+	public long getBucketSize() {
+		return bucketSize;
+	}
+
+	/**
+	 * @return number of buckets up to the last one with charged energy
+	 */
+	public int getBucketCount() {
+		return lastBucket + 1;
+	}
+
+	/**
+	 * @return number of charging stations
+	 */
+	public int getStationCount() {
+		return stations;
+	}
+
+	/**
+	 * @param row row of the charging station, in [0;getStationCount()[
+	 * @return facility id of the charging station
+	 */
+	public int getStationId(int row) {
+		return stationIds[row];
+	}
+
+	/**
+	 * @param row row of the charging station, in [0;getStationCount()[
+	 * @return installed charging power in W
+	 */
+	public float getInstalledPower(int row) {
+		return installedPower[row];
+	}
+
+	/**
+	 * @param row    row of the charging station, in [0;getStationCount()[
+	 * @param bucket time bucket
+	 * @return mean charging power of the station within the bucket in W
+	 */
+	public float getStationPower(int row, int bucket) {
+		return toPower(byStation[row][bucket]);
+	}
+
+	/**
+	 * @param connectorType connector type
+	 * @param bucket        time bucket
+	 * @return mean charging power of all connectors of the given type within the bucket in W
+	 */
+	public float getConnectorPower(int connectorType, int bucket) {
+		return toPower(byConnector[connectorType][bucket]);
+	}
+
+	/**
+	 * @param bucket time bucket
+	 * @return mean charging power of the whole system within the bucket in W
+	 */
+	public float getSystemPower(int bucket) {
+		return toPower(system[bucket]);
+	}
+
+	/**
+	 * @param row row of the charging station, in [0;getStationCount()[
+	 * @return bucket with the highest power of the station, -1 if the station was never used
+	 */
+	public int getStationPeakBucket(int row) {
+		return getPeakBucket(byStation[row]);
+	}
+
+	/**
+	 * @return bucket with the highest power of the whole system, -1 if no energy was charged at all
+	 */
+	public int getSystemPeakBucket() {
+		return getPeakBucket(system);
+	}
+
+	/**
+	 * @param row row of the charging station, in [0;getStationCount()[
+	 * @return peak power related to the installed power, 0 if nothing is installed
+	 */
+	public float getStationCoincidenceFactor(int row) {
+		int peak = getStationPeakBucket(row);
+		if (peak < 0 || installedPower[row] <= 0) return 0;
+		return getStationPower(row, peak) / installedPower[row];
+	}
+
+	/**
+	 * @return peak power of the system related to the sum of the station peaks, 0 if no energy was charged at all
+	 */
+	public float getSystemCoincidenceFactor() {
+		int peak = getSystemPeakBucket();
+		if (peak < 0) return 0;
+		double sum = 0;
+		for (int row = 0; row < stations; row++) {
+			int stationPeak = getStationPeakBucket(row);
+			if (stationPeak >= 0) sum += byStation[row][stationPeak];
+		}
+		return sum > 0 ? (float) (system[peak] / sum) : 0;
+	}
+
+	/**
+	 * @param energy energy charged within one bucket in J
+	 * @return mean power within the bucket in W
+	 */
+	private float toPower(double energy) {
+		return (float) (energy / bucketSize * 1000);
+	}
+
+	/**
+	 * @param curve energy per bucket
+	 * @return first bucket with the highest energy up to the last used bucket, -1 if all are empty
+	 */
+	private int getPeakBucket(double[] curve) {
+		int peak = -1;
+		for (int bucket = 0; bucket <= lastBucket; bucket++) {
+			if (curve[bucket] > 0 && (peak < 0 || curve[bucket] > curve[peak])) peak = bucket;
+		}
+		return peak;
+	}
+
+	/**
+	 * Returns the row of the given charging station, a new row is allocated for unknown stations.
+	 *
+	 * @param facility_id id of the charging station
+	 * @return row of the station
+	 */
+	private int getRow(int facility_id) {
+		Integer row = rowById.get(facility_id);
+		if (row != null) return row;
+		if (stations == stationIds.length) {
+			stationIds = Arrays.copyOf(stationIds, stations * 2);
+			installedPower = Arrays.copyOf(installedPower, stations * 2);
+			byStation = Arrays.copyOf(byStation, stations * 2);
+		}
+		stationIds[stations] = facility_id;
+		byStation[stations] = new double[system.length];
+		rowById.put(facility_id, stations);
+		return stations++;
+	}
+
+	/**
+	 * Grows all curves, if the given bucket exceeds the allocated horizon.
+	 *
+	 * @param bucket time bucket to be written
+	 */
+	private void ensureCapacity(int bucket) {
+		if (bucket < system.length) return;
+		int length = Math.max(bucket + 1, system.length * 2);
+		system = Arrays.copyOf(system, length);
+		for (int type = 0; type < byConnector.length; type++) {
+			byConnector[type] = Arrays.copyOf(byConnector[type], length);
+		}
+		for (int row = 0; row < stations; row++) {
+			byStation[row] = Arrays.copyOf(byStation[row], length);
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package de.tum.mw.ftm.deefs.log;
+
+import de.tum.mw.ftm.deefs.Config;
+import de.tum.mw.ftm.deefs.elements.facilitiies.Facility;
+import de.tum.mw.ftm.deefs.elements.taxi.Taxi;
+import de.tum.mw.ftm.deefs.utils.StringUtils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * ResultSink which discards all results and only counts them. Use it for benchmarks and parameter sweeps where only KPIs matter.
+ * <p> The KPIs are kept: when the sink is closed, the whole kpi table (every hour, facility and the whole run) is written to the CSV file
+ * [output_folder][db_name]_[date]_kpi.csv with the columns hour, facility_id, name and value. The counts and the KPIs of the whole run are printed.
+ */
+public class NullSink implements ResultSink {
+
+	private long trackpoints = 0;
+	private long legs = 0;
+	private long facilityStats = 0;
+	private long energyStats = 0;
+	private long chargingSessions = 0;
+	private long deniedRides = 0;
+	private long deniedRideSummaries = 0;
+	private long controllerStats = 0;
+	private final List<Kpi> kpis = new ArrayList<>();   // all KPIs, written when the sink is closed
+
+
+	@Override
+	public void addFacilities(List<Facility> facilities) {
+	}
+
+	@Override
+	public void addFleet(List<Taxi> fleet) {
+	}
+
+	@Override
+	public void addTrackpoint(int car_id, int shift_count, int track_id, long time, String status, double lat, double lon,
+							  float distance, float soc, int facility_id) {
+		trackpoints++;
+	}
+
+	@Override
+	public void addFacilityStats(int facility_id, int car_id, long time, String action, int connected_cars, int waiting_cars) {
+		this.facilityStats++;
+	}
+
+	@Override
+	public void addEnergyStats(int facility_id, int car_id, long time, float power, float energy, String connector, float p_max) {
+		this.energyStats++;
+	}
+
+	@Override
+	public void addLeg(Leg leg) {
+		legs++;
+	}
+
+	@Override
+	public void addChargingSession(ChargingSession chargingSession) {
+		chargingSessions++;
+	}
+
+	@Override
+	public void addLoadCurve(LoadCurve loadCurve) {
+	}
+
+	@Override
+	public void addDeniedRide(int car_id, int track_id, long time, double track_distance, double distance_to_customer, String reason) {
+		deniedRides++;
+	}
+
+	@Override
+	public void addDeniedRideSummary(DeniedRideSummary summary) {
+		deniedRideSummaries++;
+	}
+
+	@Override
+	public void addDeniedRidesHourly(int[][] hourly) {
+	}
+
+	@Override
+	public void addControllerStats(ControllerStats controllerStats) {
+		this.controllerStats++;
+	}
+
+	@Override
+	public void addKpi(Kpi kpi) {
+		kpis.add(kpi);
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+		System.out.println(String.format("Discarded results: %d trackpoints, %d legs, %d facility stats, %d energy stats, %d charging sessions, "
+						+ "%d denied rides, %d denied ride summaries, %d controller stats",
+				trackpoints, legs, facilityStats, energyStats, chargingSessions, deniedRides, deniedRideSummaries, controllerStats));
+		writeKpis();
+		for (Kpi kpi : kpis) {
+			if (kpi.getHour() != KpiAccounting.HOUR_TOTAL) continue;
+			if (kpi.getFacilityID() == KpiAccounting.FLEET) {
+				System.out.println(String.format("%s: %.3f", kpi.getName(), kpi.getValue()));
+			} else {
+				System.out.println(String.format("facility %d %s: %.3f", kpi.getFacilityID(), kpi.getName(), kpi.getValue()));
+			}
+		}
+	}
+
+	/**
+	 * Writes all KPIs to a CSV file in the output folder
+	 */
+	private void writeKpis() {
+		File folder = new File(Config.getProperty(Config.OUTPUT_FOLDER, "output/"));
+		if (!folder.exists() && !folder.mkdirs()) {
+			System.err.println("Error while creating output folder " + folder);
+			return;
+		}
+		File file = new File(String.format("%s%s_%s_kpi.csv",
+				Config.getProperty(Config.OUTPUT_FOLDER, "output/"),
+				Config.getProperty(Config.DB_NAME, "result"),
+				StringUtils.dateToStringFormatYYYYMMDD_HHMMSS(new Date())));
+		try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+			out.println("hour,facility_id,name,value");
+			for (Kpi kpi : kpis) {
+				out.println(kpi.getHour() + "," + kpi.getFacilityID() + "," + kpi.getName() + "," + kpi.getValue());
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		System.out.println("KPIs written to " + file);
+	}
+}
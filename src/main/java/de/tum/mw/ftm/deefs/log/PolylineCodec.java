@@ -0,0 +1,102 @@
+package de.tum.mw.ftm.deefs.log;
+
+/**
+ * Encoded polyline format (as used by Google Maps) for the geometry of {@link Leg}s.
+ * <p> Every value is the difference to the previous value of the same kind, zigzag encoded and written in chunks of 5 bits,
+ * each chunk as one printable ASCII character. Coordinates are rounded to 1e-5 degree (about 1 m),
+ * latitude and longitude are written alternately. Timestamps use the same encoding with ms as unit.
+ */
+public class PolylineCodec {
+
+	private static final double PRECISION = 1e5;
+
+
+	private PolylineCodec() {
+	}
+
+	/**
+	 * @param coordinate latitude or longitude in degree
+	 * @return coordinate in units of the encoding
+	 */
+	public static long toUnits(double coordinate) {
+		return Math.round(coordinate * PRECISION);
+	}
+
+	/**
+	 * Appends a signed value to an encoded polyline
+	 *
+	 * @param value   difference to the previous value of the same kind
+	 * @param encoded polyline the value is appended to
+	 */
+	public static void encode(long value, StringBuilder encoded) {
+		long bits = (value << 1) ^ (value >> 63);
+		while (bits >= 0x20) {
+			encoded.append((char) ((0x20 | (bits & 0x1f)) + 63));
+			bits >>>= 5;
+		}
+		encoded.append((char) (bits + 63));
+	}
+
+	/**
+	 * Decodes the differences stored in an encoded string
+	 *
+	 * @param encoded encoded string
+	 * @return decoded differences in their order
+	 */
+	public static long[] decode(String encoded) {
+		long[] values = new long[encoded.length()];
+		int count = 0;
+		int index = 0;
+		while (index < encoded.length()) {
+			long bits = 0;
+			int shift = 0;
+			int chunk;
+			do {
+				chunk = encoded.charAt(index++) - 63;
+				bits |= (long) (chunk & 0x1f) << shift;
+				shift += 5;
+			} while (chunk >= 0x20);
+			values[count++] = (bits >>> 1) ^ -(bits & 1);
+		}
+		long[] result = new long[count];
+		System.arraycopy(values, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * Decodes an encoded polyline
+	 *
+	 * @param polyline encoded polyline
+	 * @return coordinates [point][0 = lat, 1 = lon] in degree
+	 */
+	public static double[][] decodeCoordinates(String polyline) {
+		long[] values = decode(polyline);
+		double[][] coordinates = new double[values.length / 2][2];
+		long lat = 0;
+		long lon = 0;
+		for (int i = 0; i < coordinates.length; i++) {
+			lat += values[2 * i];
+			lon += values[2 * i + 1];
+			coordinates[i][0] = lat / PRECISION;
+			coordinates[i][1] = lon / PRECISION;
+		}
+		return coordinates;
+	}
+
+	/**
+	 * Decodes encoded relative timestamps
+	 *
+	 * @param times encoded timestamps
+	 * @param start time the first timestamp is relative to in ms
+	 * @return absolute timestamps in ms
+	 */
+	public static long[] decodeTimes(String times, long start) {
+		long[] values = decode(times);
+		long time = start;
+		for (int i = 0; i < values.length; i++) {
+			time += values[i];
+			values[i] = time;
+		}
+		return values;
+	}
+}
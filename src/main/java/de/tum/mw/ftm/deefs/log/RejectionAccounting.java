@@ -0,0 +1,138 @@
+package de.tum.mw.ftm.deefs.log;
+
+import de.tum.mw.ftm.deefs.Config;
+import de.tum.mw.ftm.deefs.elements.taxi.Taxi;
+import de.tum.mw.ftm.deefs.events.DemandEvent;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Collects the reasons why cars decline customer requests.
+ * <p> Instead of writing one {@link DeniedRide} per declining car, declines are counted per request and reason.
+ * When the request is finished, one {@link DeniedRideSummary} is written and the counts are added to an hourly histogram,
+ * which is written at the end of the simulation.
+ * <p> Log levels (config key denied_rides_log_level):
+ * <br>SUMMARY: summaries, hourly histogram and one DeniedRide per unserved request (default)
+ * <br>FULL: in addition one DeniedRide per declining car (debugging)
+ *
+ * @see DeniedRide
+ * @see DeniedRideSummary
+ */
+public class RejectionAccounting {
+
+	public static final String LEVEL_SUMMARY = "SUMMARY";
+	public static final String LEVEL_FULL = "FULL";
+
+	private static final long HOUR = 3600000;
+
+	private final ResultSink resultSink;
+	private final boolean fullTrail;
+	private final Map<DemandEvent, Tally> openRequests;    // requests which are actually processed
+	private int[][] hourly;                                // declines per hour and reason code
+
+
+	/**
+	 * New instance of RejectionAccounting
+	 *
+	 * @param resultSink ResultSink the results are written to
+	 */
+	public RejectionAccounting(ResultSink resultSink) {
+		this.resultSink = resultSink;
+		this.fullTrail = LEVEL_FULL.equalsIgnoreCase(Config.getProperty(Config.DENIED_RIDES_LOG_LEVEL, LEVEL_SUMMARY));
+		this.openRequests = new IdentityHashMap<>();
+		this.hourly = new int[24][DeniedRide.REASONS.length];
+	}
+
+	/**
+	 * Opens the accounting for a customer request. Calling it for an already open request has no effect.
+	 *
+	 * @param e customer request
+	 */
+	public void begin(DemandEvent e) {
+		openRequests.computeIfAbsent(e, k -> new Tally());
+	}
+
+	/**
+	 * Counts the decline of a customer request by a car.
+	 *
+	 * @param car                  declining car
+	 * @param e                    customer request
+	 * @param distance_to_customer distance from car to customer in m if calculated, -1 otherwise
+	 * @param reason               reason the ride was denied (use static variables of DeniedRide)
+	 */
+	public void reject(Taxi car, DemandEvent e, double distance_to_customer, String reason) {
+		int code = DeniedRide.getReasonCode(reason);
+		Tally tally = openRequests.computeIfAbsent(e, k -> new Tally());
+		tally.reasonCounts[code]++;
+		tally.candidates++;
+		float distance = (float) car.getPosition().calcDist(e.getStart());
+		if (tally.closestCarId == 0 || distance < tally.closestDistance) {
+			tally.closestCarId = car.getId();
+			tally.closestDistance = distance;
+			tally.closestReason = code;
+		}
+		countHourly(e.getScheduledTime(), code);
+		if (fullTrail) {
+			resultSink.addDeniedRide(car.getId(), e.getTrack_id(), e.getScheduledTime(), e.getDistance(), distance_to_customer, reason);
+		}
+	}
+
+	/**
+	 * Closes the accounting for a customer request and writes its summary, if at least one car declined it or it was not served at all.
+	 *
+	 * @param e      customer request
+	 * @param served <b>true</b> if a car accepted the request, <b>false</b> otherwise
+	 */
+	public void end(DemandEvent e, boolean served) {
+		Tally tally = openRequests.remove(e);
+		if (!served) {
+			countHourly(e.getScheduledTime(), DeniedRide.getReasonCode(DeniedRide.REASON_NO_FREE_CAR));
+			resultSink.addDeniedRide(0, e.getTrack_id(), e.getScheduledTime(), e.getDistance(), -1, DeniedRide.REASON_NO_FREE_CAR);
+		}
+		if (tally == null) {
+			if (served) return;
+			tally = new Tally();
+		}
+		resultSink.addDeniedRideSummary(new DeniedRideSummary(e.getTrack_id(), e.getScheduledTime(), e.getDistance(), served, tally.candidates,
+				tally.reasonCounts, tally.closestCarId, tally.closestCarId == 0 ? -1 : tally.closestDistance,
+				tally.closestCarId == 0 ? null : DeniedRide.REASONS[tally.closestReason]));
+	}
+
+	/**
+	 * Writes the hourly histogram of declines. Call this method once at the end of the simulation.
+	 */
+	public void flush() {
+		resultSink.addDeniedRidesHourly(hourly);
+	}
+
+	/**
+	 * Adds a single decline to the hourly histogram, the histogram grows with the simulation horizon.
+	 *
+	 * @param time simulation time in ms
+	 * @param code reason code
+	 */
+	private void countHourly(long time, int code) {
+		int hour = (int) (time / HOUR);
+		if (hour >= hourly.length) {
+			int oldLength = hourly.length;
+			hourly = Arrays.copyOf(hourly, Math.max(hour + 1, oldLength * 2));
+			for (int i = oldLength; i < hourly.length; i++) {
+				hourly[i] = new int[DeniedRide.REASONS.length];
+			}
+		}
+		hourly[hour][code]++;
+	}
+
+	/**
+	 * Counters of a single customer request
+	 */
+	private static class Tally {
+		private final int[] reasonCounts = new int[DeniedRide.REASONS.length];
+		private int candidates = 0;
+		private int closestCarId = 0;        // 0 if no car declined yet (car ids are always > 0)
+		private float closestDistance = 0;
+		private int closestReason = -1;
+	}
+}
@@ -0,0 +1,127 @@
+package de.tum.mw.ftm.deefs.log;
+
+import de.tum.mw.ftm.deefs.elements.facilitiies.Facility;
+import de.tum.mw.ftm.deefs.elements.taxi.Taxi;
+
+import java.util.List;
+
+/**
+ * Destination of all simulation results. The implementation is selected by the config key result_sink:
+ * <br>SQLITE: sqlite database, see {@link de.tum.mw.ftm.deefs.log.sqlite.DBLog} (default)
+ * <br>COLUMNAR: compact binary column files, see {@link de.tum.mw.ftm.deefs.log.columnar.ColumnarSink}
+ * <br>NULL: results are only counted, see {@link NullSink}
+ * <p> Sinks may buffer results, make shure to close the sink when finishing the simulation.
+ * <p> Trackpoints, facility stats, energy stats and denied rides are logged on the hot path of the simulation, so they are passed as primitive
+ * arguments. Sinks store these values without creating any objects.
+ */
+public interface ResultSink {
+
+	/**
+	 * writes the defined facilities
+	 *
+	 * @param facilities facilites used in this simulation run
+	 */
+	void addFacilities(List<Facility> facilities);
+
+	/**
+	 * writes the defined fleet
+	 *
+	 * @param fleet vehicle fleet used for this simulation run
+	 */
+	void addFleet(List<Taxi> fleet);
+
+	/**
+	 * @param car_id      unique car id
+	 * @param shift_count vehicles shift count
+	 * @param track_id    vehicles track id
+	 * @param time        time the position was reached
+	 * @param status      internal vehicle status, one of {@link de.tum.mw.ftm.deefs.elements.taxi.Taxi#STATUS_NAMES}
+	 * @param lat         latitude of the vehicle position
+	 * @param lon         longitude of the vehicle position
+	 * @param distance    driven distance since last trackpoint in m
+	 * @param soc         actual vehicle soc
+	 * @param facility_id id of connected facility (if connected)
+	 */
+	void addTrackpoint(int car_id, int shift_count, int track_id, long time, String status, double lat, double lon,
+					   float distance, float soc, int facility_id);
+
+	/**
+	 * @param facility_id    unique facility id
+	 * @param car_id         id of the car which caused the action
+	 * @param time           time of action in ms
+	 * @param action         action, one of the ACTION constants of the facilities
+	 * @param connected_cars count of connected cars at facility
+	 * @param waiting_cars   count of waiting cars at facility
+	 */
+	void addFacilityStats(int facility_id, int car_id, long time, String action, int connected_cars, int waiting_cars);
+
+	/**
+	 * @param facility_id unique facility id
+	 * @param car_id      id of the car connected to the facility
+	 * @param time        actual time
+	 * @param power       actual charging power in W
+	 * @param energy      charged energy in J
+	 * @param connector   used Connector, see {@link de.tum.mw.ftm.deefs.elements.eMobilityComponents.Connector#getTypeName(int)}
+	 * @param p_max       max. supported power for charging process
+	 */
+	void addEnergyStats(int facility_id, int car_id, long time, float power, float energy, String connector, float p_max);
+
+	/**
+	 * @param leg Leg to be added, only used with the trackpoint policy LEG
+	 */
+	void addLeg(Leg leg);
+
+	/**
+	 * @param chargingSession ChargingSession to be added
+	 */
+	void addChargingSession(ChargingSession chargingSession);
+
+	/**
+	 * writes the load curves and peaks. Called once at the end of the simulation.
+	 *
+	 * @param loadCurve load curves to write
+	 */
+	void addLoadCurve(LoadCurve loadCurve);
+
+	/**
+	 * @param car_id               id of the car which denied the ride, 0 if no car was available
+	 * @param track_id             id of the denied track
+	 * @param time                 scheduled time of the track
+	 * @param track_distance       original track distance
+	 * @param distance_to_customer distance from agent to customer, negative if it was not calculated
+	 * @param reason               reason the track was denied, one of {@link DeniedRide#REASONS}
+	 */
+	void addDeniedRide(int car_id, int track_id, long time, double track_distance, double distance_to_customer, String reason);
+
+	/**
+	 * @param summary DeniedRideSummary to be added
+	 */
+	void addDeniedRideSummary(DeniedRideSummary summary);
+
+	/**
+	 * writes the hourly histogram of denied rides. Called once at the end of the simulation.
+	 *
+	 * @param hourly number of denied rides [hour][reason code], see {@link DeniedRide#REASONS}
+	 */
+	void addDeniedRidesHourly(int[][] hourly);
+
+	/**
+	 * @param controllerStats ControllerStats to be added
+	 */
+	void addControllerStats(ControllerStats controllerStats);
+
+	/**
+	 * @param kpi Kpi to be added. Called at the end of the simulation, see {@link KpiAccounting}.
+	 */
+	void addKpi(Kpi kpi);
+
+	/**
+	 * Flush all buffers
+	 */
+	void flush();
+
+	/**
+	 * Flushes all buffers and releases all resources. The sink can't be used afterwards.
+	 */
+	void close();
+}
@@ -0,0 +1,103 @@
+package de.tum.mw.ftm.deefs.log;
+
+import de.tum.mw.ftm.deefs.Config;
+
+/**
+ * Decides which trackpoints are written. One instance is shared by all vehicles of a scenario, see {@link TrackpointSampler}.
+ * <p> Policies (config key trackpoint_policy):
+ * <br>FULL: every waypoint and every state change (default)
+ * <br>STATE: only the first and the last trackpoint of every state
+ * <br>NTH: state changes and every nth waypoint (config key trackpoint_nth)
+ * <br>SPACING: state changes and waypoints which are at least trackpoint_min_interval ms or trackpoint_min_distance m
+ * away from the last written trackpoint (0 disables a criterion)
+ * <br>LEG: no trackpoints, one {@link Leg} per state with the geometry of all its trackpoints
+ * <p> A state change is a change of the vehicle status, the connected facility, the track or the shift.
+ * Consecutive duplicates (same time, position, state and soc without driven distance) are dropped by all policies.
+ */
+public class TrackpointPolicy {
+
+	public static final String POLICY_FULL = "FULL";
+	public static final String POLICY_STATE = "STATE";
+	public static final String POLICY_NTH = "NTH";
+	public static final String POLICY_SPACING = "SPACING";
+	public static final String POLICY_LEG = "LEG";
+
+	private final String policy;
+	private final int nth;              // every nth waypoint is written (NTH)
+	private final long minInterval;     // min. time between two written waypoints in ms (SPACING)
+	private final float minDistance;    // min. driven distance between two written waypoints in m (SPACING)
+
+
+	/**
+	 * New instance of TrackpointPolicy, configured by config.properties
+	 */
+	public TrackpointPolicy() {
+		this(Config.getProperty(Config.TRACKPOINT_POLICY, POLICY_FULL).trim().toUpperCase(),
+				Integer.parseInt(Config.getProperty(Config.TRACKPOINT_NTH, "10")),
+				Long.parseLong(Config.getProperty(Config.TRACKPOINT_MIN_INTERVAL, "60000")),
+				Float.parseFloat(Config.getProperty(Config.TRACKPOINT_MIN_DISTANCE, "0")));
+	}
+
+	/**
+	 * New instance of TrackpointPolicy
+	 *
+	 * @param policy      one of the POLICY constants
+	 * @param nth         every nth waypoint is written (NTH)
+	 * @param minInterval min. time between two written waypoints in ms (SPACING)
+	 * @param minDistance min. driven distance between two written waypoints in m (SPACING)
+	 */
+	public TrackpointPolicy(String policy, int nth, long minInterval, float minDistance) {
+		switch (policy) {
+			case POLICY_FULL:
+			case POLICY_STATE:
+			case POLICY_NTH:
+			case POLICY_SPACING:
+			case POLICY_LEG:
+				break;
+			default:
+				throw new RuntimeException("Unknown trackpoint policy: " + policy);
+		}
+		if (nth < 1) {
+			throw new RuntimeException("trackpoint_nth has to be at least 1!");
+		}
+		this.policy = policy;
+		this.nth = nth;
+		this.minInterval = minInterval;
+		this.minDistance = minDistance;
+	}
+
+	/**
+	 * Decides if a waypoint without state change is written.
+	 *
+	 * @param skipped  waypoints skipped since the last written trackpoint
+	 * @param interval time since the last written trackpoint in ms
+	 * @param distance driven distance since the last written trackpoint in m
+	 * @return <b>true</b> if the waypoint has to be written
+	 */
+	boolean keep(int skipped, long interval, float distance) {
+		switch (policy) {
+			case POLICY_FULL:
+				return true;
+			case POLICY_NTH:
+				return skipped + 1 >= nth;
+			case POLICY_SPACING:
+				return (minInterval > 0 && interval >= minInterval) || (minDistance > 0 && distance >= minDistance);
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * @return <b>true</b> if legs are written instead of trackpoints
+	 */
+	boolean isLeg() {
+		return POLICY_LEG.equals(policy);
+	}
+
+	/**
+	 * @return name of the policy
+	 */
+	public String getPolicy() {
+		return policy;
+	}
+}
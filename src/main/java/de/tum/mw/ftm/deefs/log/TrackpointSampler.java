@@ -0,0 +1,168 @@
+package de.tum.mw.ftm.deefs.log;
+
+/**
+ * Filters the trackpoints of one vehicle according to a {@link TrackpointPolicy} before they are passed to the {@link ResultSink}.
+ * <p> The last skipped trackpoint is kept back and written before the next state change, so the last position and soc of every state are preserved.
+ * The distance of skipped trackpoints is added to the next written one, the sum of the distance column stays the same as with the FULL policy.
+ * <p> With the LEG policy all trackpoints of a state are collected to one {@link Leg}, which is written on the next state change.
+ * Call {@link #flush()} at the end of the simulation to write a kept back trackpoint or leg.
+ */
+public class TrackpointSampler {
+
+	private final TrackpointPolicy policy;
+	private final ResultSink resultSink;
+
+	// last written trackpoint
+	private boolean written = false;
+	private int shift_count;
+	private int track_id;
+	private long time;
+	private String status;
+	private int facility_id;
+
+	// last skipped trackpoint, which is kept back
+	private boolean pending = false;
+	private int p_car_id;
+	private int p_shift_count;
+	private int p_track_id;
+	private long p_time;
+	private String p_status;
+	private double p_lat;
+	private double p_lon;
+	private float p_soc;
+	private int p_facility_id;
+
+	private float distance = 0;     // distance driven since the last written trackpoint in m, including the kept back one
+	private int skipped = 0;        // trackpoints skipped since the last written trackpoint
+	private double lastLat;         // position of the last not dropped trackpoint
+	private double lastLon;
+	private float lastSoc;          // soc of the last not dropped trackpoint
+	private long lastTime;          // time of the last not dropped trackpoint
+
+	// actual leg (LEG policy)
+	private boolean legOpen = false;
+	private int l_car_id;
+	private long l_end;
+	private float l_start_soc;
+	private float l_end_soc;
+	private float l_distance;
+	private int l_points;
+	private long l_lat;             // last encoded latitude
+	private long l_lon;             // last encoded longitude
+	private final StringBuilder l_polyline = new StringBuilder();
+	private final StringBuilder l_times = new StringBuilder();
+
+
+	/**
+	 * @param policy     policy shared by all vehicles
+	 * @param resultSink ResultSink the trackpoints are written to
+	 */
+	public TrackpointSampler(TrackpointPolicy policy, ResultSink resultSink) {
+		this.policy = policy;
+		this.resultSink = resultSink;
+	}
+
+	/**
+	 * Passes a trackpoint to the sampler, the arguments equal {@link ResultSink#addTrackpoint(int, int, int, long, String, double, double, float, float, int)}
+	 */
+	public void add(int car_id, int shift_count, int track_id, long time, String status, double lat, double lon,
+					float distance, float soc, int facility_id) {
+		boolean stateChange = !written || shift_count != this.shift_count || track_id != this.track_id
+				|| facility_id != this.facility_id || !status.equals(this.status);
+		if (!stateChange && distance == 0 && time == lastTime && lat == lastLat && lon == lastLon && soc == lastSoc) {
+			// consecutive duplicate
+			return;
+		}
+		lastTime = time;
+		lastLat = lat;
+		lastLon = lon;
+		lastSoc = soc;
+		if (policy.isLeg()) {
+			if (stateChange) {
+				flush();
+				openLeg(car_id, shift_count, track_id, time, status, soc, facility_id);
+			}
+			addToLeg(time, lat, lon, distance, soc);
+			return;
+		}
+		if (stateChange) {
+			flush();
+		} else if (!policy.keep(skipped, time - this.time, this.distance + distance)) {
+			this.distance += distance;
+			skipped++;
+			pending = true;
+			p_car_id = car_id;
+			p_shift_count = shift_count;
+			p_track_id = track_id;
+			p_time = time;
+			p_status = status;
+			p_lat = lat;
+			p_lon = lon;
+			p_soc = soc;
+			p_facility_id = facility_id;
+			return;
+		}
+		write(car_id, shift_count, track_id, time, status, lat, lon, this.distance + distance, soc, facility_id);
+	}
+
+	/**
+	 * Writes the kept back trackpoint or the actual leg, if there is one
+	 */
+	public void flush() {
+		if (legOpen) {
+			resultSink.addLeg(new Leg(l_car_id, shift_count, track_id, status, facility_id, time, l_end, l_start_soc, l_end_soc,
+					l_distance, l_points, l_polyline.toString(), l_times.toString()));
+			legOpen = false;
+		}
+		if (pending) {
+			write(p_car_id, p_shift_count, p_track_id, p_time, p_status, p_lat, p_lon, distance, p_soc, p_facility_id);
+		}
+	}
+
+	private void openLeg(int car_id, int shift_count, int track_id, long time, String status, float soc, int facility_id) {
+		legOpen = true;
+		written = true;
+		this.shift_count = shift_count;
+		this.track_id = track_id;
+		this.time = time;
+		this.status = status;
+		this.facility_id = facility_id;
+		l_car_id = car_id;
+		l_end = time;
+		l_start_soc = soc;
+		l_distance = 0;
+		l_points = 0;
+		l_lat = 0;
+		l_lon = 0;
+		l_polyline.setLength(0);
+		l_times.setLength(0);
+	}
+
+	private void addToLeg(long time, double lat, double lon, float distance, float soc) {
+		long latUnits = PolylineCodec.toUnits(lat);
+		long lonUnits = PolylineCodec.toUnits(lon);
+		PolylineCodec.encode(latUnits - l_lat, l_polyline);
+		PolylineCodec.encode(lonUnits - l_lon, l_polyline);
+		PolylineCodec.encode(time - l_end, l_times);
+		l_lat = latUnits;
+		l_lon = lonUnits;
+		l_end = time;
+		l_end_soc = soc;
+		l_distance += distance;
+		l_points++;
+	}
+
+	private void write(int car_id, int shift_count, int track_id, long time, String status, double lat, double lon,
+					   float distance, float soc, int facility_id) {
+		resultSink.addTrackpoint(car_id, shift_count, track_id, time, status, lat, lon, distance, soc, facility_id);
+		written = true;
+		pending = false;
+		this.distance = 0;
+		this.skipped = 0;
+		this.shift_count = shift_count;
+		this.track_id = track_id;
+		this.time = time;
+		this.status = status;
+		this.facility_id = facility_id;
+	}
+}
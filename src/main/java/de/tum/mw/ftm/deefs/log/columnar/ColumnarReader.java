@@ -0,0 +1,215 @@
+package de.tum.mw.ftm.deefs.log.columnar;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a column file written by {@link ColumnarTable} row by row.
+ * <p> Values are returned as Long ({@link ColumnarTable#TYPE_INT}, {@link ColumnarTable#TYPE_TIME}), Float, Double or String
+ * ({@link ColumnarTable#TYPE_STRING}, {@link ColumnarTable#TYPE_TEXT}).
+ * <p> Run this class with the path of a column file as argument to print the file as CSV.
+ *
+ * @see ColumnarTable
+ */
+public class ColumnarReader implements Closeable {
+
+	private final DataInputStream in;
+	private final String[] names;
+	private final byte[] types;
+	private final long[] lastTime;             // last read value of every time column
+	private final List<List<String>> dictionaries; // dictionary of every string column, null for other columns
+	private Object[][] block = null;           // actual block [column][row]
+	private int rows = 0;                      // rows in the actual block
+	private int row = 0;                       // next row of the actual block
+	private boolean finished = false;
+
+
+	/**
+	 * Opens a column file and reads its header
+	 *
+	 * @param file column file
+	 * @throws IOException if the file can't be read or is no column file
+	 */
+	public ColumnarReader(File file) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		if (in.readInt() != ColumnarTable.MAGIC) {
+			in.close();
+			throw new IOException("No column file: " + file);
+		}
+		int version = in.readInt();
+		if (version < 1 || version > ColumnarTable.VERSION) {
+			in.close();
+			throw new IOException("Unsupported column file version " + version);
+		}
+		int columns = in.readInt();
+		this.names = new String[columns];
+		this.types = new byte[columns];
+		for (int i = 0; i < columns; i++) {
+			names[i] = in.readUTF();
+			types[i] = in.readByte();
+		}
+		this.lastTime = new long[columns];
+		this.dictionaries = new ArrayList<>(columns);
+		for (int i = 0; i < columns; i++) {
+			dictionaries.add(types[i] == ColumnarTable.TYPE_STRING ? new ArrayList<>() : null);
+		}
+	}
+
+	/**
+	 * @return column names
+	 */
+	public String[] getColumnNames() {
+		return names.clone();
+	}
+
+	/**
+	 * @return column types, see the static fields of {@link ColumnarTable}
+	 */
+	public byte[] getColumnTypes() {
+		return types.clone();
+	}
+
+	/**
+	 * Reads the next row
+	 *
+	 * @return values of the row in column order, <b>null</b> if there are no more rows
+	 * @throws IOException if the file can't be read
+	 */
+	public Object[] next() throws IOException {
+		while (row == rows) {
+			if (finished || !readBlock()) return null;
+		}
+		Object[] values = new Object[names.length];
+		for (int i = 0; i < names.length; i++) {
+			values[i] = block[i][row];
+		}
+		row++;
+		return values;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * @return <b>false</b> if the end of the file was reached
+	 */
+	private boolean readBlock() throws IOException {
+		rows = (int) readVarint();
+		row = 0;
+		if (rows == 0) {
+			finished = true;
+			return false;
+		}
+		for (int i = 0; i < types.length; i++) {
+			if (types[i] != ColumnarTable.TYPE_STRING) continue;
+			long entries = readVarint();
+			for (long e = 0; e < entries; e++) {
+				dictionaries.get(i).add(in.readUTF());
+			}
+		}
+		block = new Object[types.length][rows];
+		for (int i = 0; i < types.length; i++) {
+			Object[] column = block[i];
+			for (int r = 0; r < rows; r++) {
+				switch (types[i]) {
+					case ColumnarTable.TYPE_INT:
+						column[r] = unzigzag(readVarint());
+						break;
+					case ColumnarTable.TYPE_TIME:
+						lastTime[i] += unzigzag(readVarint());
+						column[r] = lastTime[i];
+						break;
+					case ColumnarTable.TYPE_FLOAT:
+						column[r] = in.readFloat();
+						break;
+					case ColumnarTable.TYPE_DOUBLE:
+						column[r] = in.readDouble();
+						break;
+					case ColumnarTable.TYPE_STRING:
+						int code = (int) readVarint();
+						column[r] = code == 0 ? null : dictionaries.get(i).get(code - 1);
+						break;
+					case ColumnarTable.TYPE_TEXT:
+						int length = (int) readVarint();
+						if (length == 0) {
+							column[r] = null;
+						} else {
+							byte[] bytes = new byte[length - 1];
+							in.readFully(bytes);
+							column[r] = new String(bytes, StandardCharsets.UTF_8);
+						}
+						break;
+					default:
+						throw new IOException("Unknown column type " + types[i]);
+				}
+			}
+		}
+		return true;
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private long readVarint() throws IOException {
+		long value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	/**
+	 * Formats a value as CSV field according to RFC 4180: fields containing commas, quotes or line breaks are enclosed in quotes,
+	 * quotes are doubled. <b>null</b> is written as empty field.
+	 *
+	 * @param value value of the field
+	 * @return CSV field
+	 */
+	private static String toCsvField(Object value) {
+		if (value == null) return "";
+		String field = value.toString();
+		if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) return field;
+		return '"' + field.replace("\"", "\"\"") + '"';
+	}
+
+	/**
+	 * Prints a column file as CSV, see {@link #toCsvField(Object)}
+	 *
+	 * @param args path of the column file
+	 */
+	public static void main(String[] args) {
+		if (args.length != 1) {
+			System.err.println("Usage: ColumnarReader <file>");
+			return;
+		}
+		try (ColumnarReader reader = new ColumnarReader(new File(args[0]))) {
+			StringBuilder line = new StringBuilder();
+			Object[] values = reader.getColumnNames();
+			while (values != null) {
+				line.setLength(0);
+				for (int i = 0; i < values.length; i++) {
+					if (i > 0) line.append(',');
+					line.append(toCsvField(values[i]));
+				}
+				System.out.println(line);
+				values = reader.next();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,409 @@
+package de.tum.mw.ftm.deefs.log.columnar;
+
+import de.tum.mw.ftm.deefs.Config;
+import de.tum.mw.ftm.deefs.elements.eMobilityComponents.Connector;
+import de.tum.mw.ftm.deefs.elements.facilitiies.ChargingStation;
+import de.tum.mw.ftm.deefs.elements.facilitiies.Facility;
+import de.tum.mw.ftm.deefs.elements.facilitiies.TaxiRank;
+import de.tum.mw.ftm.deefs.elements.taxi.BEVTaxi;
+import de.tum.mw.ftm.deefs.elements.taxi.Taxi;
+import de.tum.mw.ftm.deefs.log.*;
+import de.tum.mw.ftm.deefs.utils.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static de.tum.mw.ftm.deefs.log.columnar.ColumnarTable.*;
+
+/**
+ * ResultSink which writes every table to a compact binary column file, see {@link ColumnarTable}.
+ * <p> The files are created in a new folder named like the sqlite database (config keys output_folder and db_name), one file per table with the ending .col.
+ * Tables and columns are the same as in the sqlite database. Status, action and reason strings are dictionary encoded, times are delta encoded.
+ * Use {@link ColumnarReader} to read the files.
+ *
+ * @see de.tum.mw.ftm.deefs.log.sqlite.DBLog
+ */
+public class ColumnarSink implements ResultSink {
+
+	private final File folder;
+	private final List<ColumnarTable> tables;
+	private final ColumnarTable fleet;
+	private final ColumnarTable facility;
+	private final ColumnarTable trackpoint;
+	private final ColumnarTable energy;
+	private final ColumnarTable chargingSession;
+	private final ColumnarTable leg;
+	private final ColumnarTable kpi;
+	private final ColumnarTable facilityStats;
+	private final ColumnarTable deniedRides;
+	private final ColumnarTable deniedRideSummary;
+	private final ColumnarTable deniedRidesHourly;
+	private final ColumnarTable controller;
+	private final ColumnarTable loadCurveStation;
+	private final ColumnarTable loadCurveConnector;
+	private final ColumnarTable loadCurveSystem;
+	private final ColumnarTable loadPeak;
+
+
+	/**
+	 * Creates the output folder and all column files. The config is written immediately.
+	 */
+	public ColumnarSink() {
+		folder = new File(String.format("%s%s_%s",
+				Config.getProperty(Config.OUTPUT_FOLDER, "output/"),
+				Config.getProperty(Config.DB_NAME, "result"),
+				StringUtils.dateToStringFormatYYYYMMDD_HHMMSS(new Date())));
+		if (!folder.exists() && !folder.mkdirs()) {
+			throw new RuntimeException("Error while creating output folder " + folder);
+		}
+		tables = new ArrayList<>();
+		fleet = create("fleet", new String[]{"car_id", "type", "concept_name", "e_mean", "e_bat"},
+				new byte[]{TYPE_INT, TYPE_STRING, TYPE_STRING, TYPE_FLOAT, TYPE_FLOAT});
+		facility = create("facility", new String[]{"facility_id", "type", "lat", "lon", "area", "description"},
+				new byte[]{TYPE_INT, TYPE_STRING, TYPE_DOUBLE, TYPE_DOUBLE, TYPE_INT, TYPE_STRING});
+		trackpoint = create("trackpoint", new String[]{"car_id", "shift_count", "track_id", "time", "status", "facility_id", "lat", "lon", "distance", "soc"},
+				new byte[]{TYPE_INT, TYPE_INT, TYPE_INT, TYPE_TIME, TYPE_STRING, TYPE_INT, TYPE_DOUBLE, TYPE_DOUBLE, TYPE_FLOAT, TYPE_FLOAT});
+		leg = create("leg", new String[]{"car_id", "shift_count", "track_id", "status", "facility_id", "start_time", "end_time", "start_soc", "end_soc",
+						"distance", "points", "polyline", "times"},
+				new byte[]{TYPE_INT, TYPE_INT, TYPE_INT, TYPE_STRING, TYPE_INT, TYPE_TIME, TYPE_TIME, TYPE_FLOAT, TYPE_FLOAT, TYPE_FLOAT, TYPE_INT, TYPE_TEXT, TYPE_TEXT});
+		energy = create("energy", new String[]{"facility_id", "car_id", "time", "energy", "power", "connector", "p_max"},
+				new byte[]{TYPE_INT, TYPE_INT, TYPE_TIME, TYPE_FLOAT, TYPE_FLOAT, TYPE_STRING, TYPE_FLOAT});
+		chargingSession = create("charging_session", new String[]{"facility_id", "car_id", "start_time", "end_time", "energy", "avg_power", "peak_power", "connector", "p_max"},
+				new byte[]{TYPE_INT, TYPE_INT, TYPE_TIME, TYPE_TIME, TYPE_FLOAT, TYPE_FLOAT, TYPE_FLOAT, TYPE_STRING, TYPE_FLOAT});
+		facilityStats = create("facility_stats", new String[]{"facility_id", "car_id", "time", "action", "connected_cars", "waiting_cars"},
+				new byte[]{TYPE_INT, TYPE_INT, TYPE_TIME, TYPE_STRING, TYPE_INT, TYPE_INT});
+		deniedRides = create("denied_rides", new String[]{"track_id", "car_id", "time", "track_distance", "disctace_to_customer", "reason"},
+				new byte[]{TYPE_INT, TYPE_INT, TYPE_TIME, TYPE_DOUBLE, TYPE_DOUBLE, TYPE_STRING});
+		String[] summaryNames = new String[8 + DeniedRide.REASONS.length];
+		byte[] summaryTypes = new byte[summaryNames.length];
+		String[] head = {"track_id", "time", "track_distance", "served", "candidates"};
+		byte[] headTypes = {TYPE_INT, TYPE_TIME, TYPE_DOUBLE, TYPE_INT, TYPE_INT};
+		for (int i = 0; i < head.length; i++) {
+			summaryNames[i] = head[i];
+			summaryTypes[i] = headTypes[i];
+		}
+		for (int i = 0; i < DeniedRide.REASONS.length; i++) {
+			summaryNames[head.length + i] = "n_" + DeniedRide.REASONS[i].toLowerCase();
+			summaryTypes[head.length + i] = TYPE_INT;
+		}
+		String[] tail = {"closest_car_id", "closest_car_distance", "closest_car_reason"};
+		byte[] tailTypes = {TYPE_INT, TYPE_FLOAT, TYPE_STRING};
+		for (int i = 0; i < tail.length; i++) {
+			summaryNames[head.length + DeniedRide.REASONS.length + i] = tail[i];
+			summaryTypes[head.length + DeniedRide.REASONS.length + i] = tailTypes[i];
+		}
+		deniedRideSummary = create("denied_ride_summary", summaryNames, summaryTypes);
+		deniedRidesHourly = create("denied_rides_hourly", new String[]{"hour", "reason", "n"}, new byte[]{TYPE_INT, TYPE_STRING, TYPE_INT});
+		controller = create("controller", new String[]{"time", "type", "n"}, new byte[]{TYPE_TIME, TYPE_STRING, TYPE_INT});
+		kpi = create("kpi", new String[]{"hour", "facility_id", "name", "value"}, new byte[]{TYPE_INT, TYPE_INT, TYPE_STRING, TYPE_DOUBLE});
+		loadCurveStation = create("load_curve_station", new String[]{"facility_id", "time", "power"}, new byte[]{TYPE_INT, TYPE_TIME, TYPE_FLOAT});
+		loadCurveConnector = create("load_curve_connector", new String[]{"connector", "time", "power"}, new byte[]{TYPE_STRING, TYPE_TIME, TYPE_FLOAT});
+		loadCurveSystem = create("load_curve_system", new String[]{"time", "power"}, new byte[]{TYPE_TIME, TYPE_FLOAT});
+		loadPeak = create("load_peak", new String[]{"facility_id", "peak_time", "peak_power", "installed_power", "coincidence_factor"},
+				new byte[]{TYPE_INT, TYPE_TIME, TYPE_FLOAT, TYPE_FLOAT, TYPE_FLOAT});
+		ColumnarTable config = create("config", new String[]{"attribute", "value"}, new byte[]{TYPE_STRING, TYPE_STRING});
+		try {
+			for (Map.Entry<Object, Object> entry : Config.getProperties().entrySet()) {
+				config.putString(entry.getKey().toString()).putString(entry.getValue().toString()).endRow();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void addFacilities(List<Facility> facilities) {
+		try {
+			for (Facility f : facilities) {
+				facility.putInt(f.getId())
+						.putString(f instanceof TaxiRank ? "RANK" : f instanceof ChargingStation ? "CHARGINGSTATION" : null)
+						.putDouble(f.getPosition().getLat())
+						.putDouble(f.getPosition().getLon())
+						.putInt(f.getPosition().getArea())
+						.putString(f instanceof TaxiRank ? ((TaxiRank) f).getAddress() : null)
+						.endRow();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void addFleet(List<Taxi> fleet) {
+		try {
+			for (Taxi taxi : fleet) {
+				this.fleet.putInt(taxi.getId()).putString(taxi.getType());
+				if (taxi instanceof BEVTaxi) {
+					BEVTaxi bev = (BEVTaxi) taxi;
+					this.fleet.putString(bev.getConcept().getConceptName())
+							.putFloat(bev.getConcept().getVMean())
+							.putFloat(bev.getConcept().getBattery().getEBatMax());
+				} else {
+					this.fleet.putString(null).putFloat(Float.NaN).putFloat(Float.NaN);
+				}
+				this.fleet.endRow();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void addTrackpoint(int car_id, int shift_count, int track_id, long time, String status, double lat, double lon,
+							  float distance, float soc, int facility_id) {
+		try {
+			trackpoint.putInt(car_id)
+					.putInt(shift_count)
+					.putInt(track_id)
+					.putTime(time)
+					.putString(status)
+					.putInt(facility_id)
+					.putDouble(lat)
+					.putDouble(lon)
+					.putFloat(distance)
+					.putFloat(soc)
+					.endRow();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void addFacilityStats(int facility_id, int car_id, long time, String action, int connected_cars, int waiting_cars) {
+		try {
+			facilityStats.putInt(facility_id)
+					.putInt(car_id)
+					.putTime(time)
+					.putString(action)
+					.putInt(connected_cars)
+					.putInt(waiting_cars)
+					.endRow();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void addEnergyStats(int facility_id, int car_id, long time, float power, float energy, String connector, float p_max) {
+		try {
+			this.energy.putInt(facility_id)
+					.putInt(car_id)
+					.putTime(time)
+					.putFloat(energy)
+					.putFloat(power)
+					.putString(connector)
+					.putFloat(p_max)
+					.endRow();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void addLeg(Leg leg) {
+		try {
+			this.leg.putInt(leg.getCarID())
+					.putInt(leg.getShiftCount())
+					.putInt(leg.getTrackID())
+					.putString(leg.getStatus())
+					.putInt(leg.getFacilityID())
+					.putTime(leg.getStart())
+					.putTime(leg.getEnd())
+					.putFloat(leg.getStartSoc())
+					.putFloat(leg.getEndSoc())
+					.putFloat(leg.getDistance())
+					.putInt(leg.getPoints())
+					.putText(leg.getPolyline())
+					.putText(leg.getTimes())
+					.endRow();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void addChargingSession(ChargingSession session) {
+		try {
+			chargingSession.putInt(session.getFacilityID())
+					.putInt(session.getCarID())
+					.putTime(session.getStart())
+					.putTime(session.getEnd())
+					.putFloat(session.getEnergy())
+					.putFloat(session.getAveragePower())
+					.putFloat(session.getPeakPower())
+					.putString(session.getConnector())
+					.putFloat(session.getPMax())
+					.endRow();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void addLoadCurve(LoadCurve loadCurve) {
+		long bucketSize = loadCurve.getBucketSize();
+		try {
+			for (int row = 0; row < loadCurve.getStationCount(); row++) {
+				for (int bucket = 0; bucket < loadCurve.getBucketCount(); bucket++) {
+					float power = loadCurve.getStationPower(row, bucket);
+					if (power == 0) continue;
+					loadCurveStation.putInt(loadCurve.getStationId(row)).putTime(bucket * bucketSize).putFloat(power).endRow();
+				}
+			}
+			for (int type = Connector.TYPE_SCHUKO; type <= Connector.TYPE_SUPERCHARGER; type++) {
+				for (int bucket = 0; bucket < loadCurve.getBucketCount(); bucket++) {
+					float power = loadCurve.getConnectorPower(type, bucket);
+					if (power == 0) continue;
+					loadCurveConnector.putString(Connector.getTypeName(type)).putTime(bucket * bucketSize).putFloat(power).endRow();
+				}
+			}
+			for (int bucket = 0; bucket < loadCurve.getBucketCount(); bucket++) {
+				loadCurveSystem.putTime(bucket * bucketSize).putFloat(loadCurve.getSystemPower(bucket)).endRow();
+			}
+			float installed = 0;
+			for (int row = 0; row < loadCurve.getStationCount(); row++) {
+				int peak = loadCurve.getStationPeakBucket(row);
+				installed += loadCurve.getInstalledPower(row);
+				loadPeak.putInt(loadCurve.getStationId(row))
+						.putTime(peak < 0 ? -1 : peak * bucketSize)
+						.putFloat(peak < 0 ? 0 : loadCurve.getStationPower(row, peak))
+						.putFloat(loadCurve.getInstalledPower(row))
+						.putFloat(loadCurve.getStationCoincidenceFactor(row))
+						.endRow();
+			}
+			//the system row has facility id 0
+			int peak = loadCurve.getSystemPeakBucket();
+			loadPeak.putInt(0)
+					.putTime(peak < 0 ? -1 : peak * bucketSize)
+					.putFloat(peak < 0 ? 0 : loadCurve.getSystemPower(peak))
+					.putFloat(installed)
+					.putFloat(loadCurve.getSystemCoincidenceFactor())
+					.endRow();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void addDeniedRide(int car_id, int track_id, long time, double track_distance, double distance_to_customer, String reason) {
+		try {
+			deniedRides.putInt(track_id)
+					.putInt(car_id)
+					.putTime(time)
+					.putDouble(track_distance)
+					.putDouble(distance_to_customer < 0 ? Double.NaN : distance_to_customer)
+					.putString(reason)
+					.endRow();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void addDeniedRideSummary(DeniedRideSummary summary) {
+		try {
+			deniedRideSummary.putInt(summary.getTrack_id())
+					.putTime(summary.getTime())
+					.putDouble(summary.getTrack_distance())
+					.putInt(summary.isServed() ? 1 : 0)
+					.putInt(summary.getCandidates());
+			for (int i = 0; i < DeniedRide.REASONS.length; i++) {
+				deniedRideSummary.putInt(summary.getReasonCount(i));
+			}
+			if (summary.getClosest_car_id() == 0) {
+				deniedRideSummary.putInt(0).putFloat(Float.NaN).putString(null);
+			} else {
+				deniedRideSummary.putInt(summary.getClosest_car_id())
+						.putFloat(summary.getClosest_car_distance())
+						.putString(summary.getClosest_car_reason());
+			}
+			deniedRideSummary.endRow();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void addDeniedRidesHourly(int[][] hourly) {
+		try {
+			for (int hour = 0; hour < hourly.length; hour++) {
+				for (int reason = 0; reason < hourly[hour].length; reason++) {
+					if (hourly[hour][reason] == 0) continue;
+					deniedRidesHourly.putInt(hour).putString(DeniedRide.REASONS[reason]).putInt(hourly[hour][reason]).endRow();
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void addControllerStats(ControllerStats controllerStats) {
+		try {
+			controller.putTime(controllerStats.getTime())
+					.putString(controllerStats.getAction())
+					.putInt(controllerStats.getN())
+					.endRow();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void addKpi(Kpi kpi) {
+		try {
+			this.kpi.putInt(kpi.getHour())
+					.putInt(kpi.getFacilityID())
+					.putString(kpi.getName())
+					.putDouble(kpi.getValue())
+					.endRow();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void flush() {
+		try {
+			for (ColumnarTable table : tables) {
+				table.flush();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			for (ColumnarTable table : tables) {
+				table.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		System.out.println("Results written to " + folder);
+	}
+
+	/**
+	 * Creates a new column file in the output folder
+	 *
+	 * @param name  table name
+	 * @param names column names
+	 * @param types column types
+	 * @return new table
+	 */
+	private ColumnarTable create(String name, String[] names, byte[] types) {
+		try {
+			ColumnarTable table = new ColumnarTable(new File(folder, name + ".col"), names, types);
+			tables.add(table);
+			return table;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
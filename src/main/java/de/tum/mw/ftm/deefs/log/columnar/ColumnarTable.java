@@ -0,0 +1,259 @@
+package de.tum.mw.ftm.deefs.log.columnar;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes one result table to a compact binary column file. Rows are collected in blocks of {@value #BLOCK_SIZE}, every block is written column by column.
+ * <p> File layout:
+ * <br>header: magic, version, number of columns, name (UTF) and type (byte) of every column
+ * <br>blocks: number of rows (varint), new dictionary entries of every string column (varint count, UTF strings), column data
+ * <br>end: a block with 0 rows
+ * <p> Column encodings:
+ * <br>{@link #TYPE_INT}: zigzag varint
+ * <br>{@link #TYPE_TIME}: zigzag varint of the difference to the previous row of the column (the first row of the file to 0)
+ * <br>{@link #TYPE_FLOAT}, {@link #TYPE_DOUBLE}: raw IEEE 754
+ * <br>{@link #TYPE_STRING}: varint dictionary index + 1, 0 for <b>null</b>. Every distinct string is written once, in the block where it first appears.
+ * <br>{@link #TYPE_TEXT}: varint length of the UTF-8 bytes + 1, 0 for <b>null</b>, followed by the bytes. Use it for values which are (almost) unique, e.g. encoded polylines.
+ * <p> Values of a row are put in column order, followed by {@link #endRow()}. Use {@link ColumnarReader} to read the files.
+ *
+ * @see ColumnarReader
+ */
+public class ColumnarTable {
+
+	public static final byte TYPE_INT = 1;
+	public static final byte TYPE_TIME = 2;
+	public static final byte TYPE_FLOAT = 3;
+	public static final byte TYPE_DOUBLE = 4;
+	public static final byte TYPE_STRING = 5;
+	public static final byte TYPE_TEXT = 6;
+
+	static final int MAGIC = 0x44454643;    // "DEFC"
+	static final int VERSION = 2;        // 2: TYPE_TEXT
+	private static final int BLOCK_SIZE = 4096;
+
+	private final DataOutputStream out;
+	private final byte[] types;                          // type of every column
+	private final long[][] values;                       // values of the actual block [column][row], floating point values as raw bits
+	private final long[] lastTime;                       // last written value of every time column
+	private final List<Map<String, Integer>> dictionaries;   // dictionary of every string column, null for other columns
+	private final List<List<String>> newEntries;             // dictionary entries of every string column, which were not written yet
+	private final String[][] texts;                      // values of the actual block of every text column [column][row]
+	private int rows = 0;                                // rows in the actual block
+	private int column = 0;                              // next column of the actual row
+
+
+	/**
+	 * Creates a new column file and writes its header
+	 *
+	 * @param file  file to be created
+	 * @param names column names
+	 * @param types column types, use the static fields of this class
+	 * @throws IOException if the file can't be created
+	 */
+	public ColumnarTable(File file, String[] names, byte[] types) throws IOException {
+		if (names.length != types.length) {
+			throw new RuntimeException("Error while creating ColumnarTable: every column needs a name and a type!");
+		}
+		this.types = types.clone();
+		this.values = new long[types.length][BLOCK_SIZE];
+		this.lastTime = new long[types.length];
+		this.dictionaries = new ArrayList<>(types.length);
+		this.newEntries = new ArrayList<>(types.length);
+		this.texts = new String[types.length][];
+		for (int i = 0; i < types.length; i++) {
+			boolean string = types[i] == TYPE_STRING;
+			dictionaries.add(string ? new HashMap<>() : null);
+			newEntries.add(string ? new ArrayList<>() : null);
+			if (types[i] == TYPE_TEXT) {
+				texts[i] = new String[BLOCK_SIZE];
+			}
+		}
+		this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(types.length);
+		for (int i = 0; i < types.length; i++) {
+			out.writeUTF(names[i]);
+			out.writeByte(types[i]);
+		}
+	}
+
+	/**
+	 * @param value value of the next column, which has to be a {@link #TYPE_INT} column
+	 * @return this table
+	 */
+	public ColumnarTable putInt(long value) {
+		return put(TYPE_INT, value);
+	}
+
+	/**
+	 * @param value value of the next column, which has to be a {@link #TYPE_TIME} column
+	 * @return this table
+	 */
+	public ColumnarTable putTime(long value) {
+		return put(TYPE_TIME, value);
+	}
+
+	/**
+	 * @param value value of the next column, which has to be a {@link #TYPE_FLOAT} column
+	 * @return this table
+	 */
+	public ColumnarTable putFloat(float value) {
+		return put(TYPE_FLOAT, Float.floatToRawIntBits(value));
+	}
+
+	/**
+	 * @param value value of the next column, which has to be a {@link #TYPE_DOUBLE} column
+	 * @return this table
+	 */
+	public ColumnarTable putDouble(double value) {
+		return put(TYPE_DOUBLE, Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * @param value value of the next column, which has to be a {@link #TYPE_STRING} column, may be <b>null</b>
+	 * @return this table
+	 */
+	public ColumnarTable putString(String value) {
+		int code = 0;
+		if (value != null) {
+			Map<String, Integer> dictionary = dictionaries.get(column);
+			Integer index = dictionary.get(value);
+			if (index == null) {
+				index = dictionary.size();
+				dictionary.put(value, index);
+				newEntries.get(column).add(value);
+			}
+			code = index + 1;
+		}
+		return put(TYPE_STRING, code);
+	}
+
+	/**
+	 * @param value value of the next column, which has to be a {@link #TYPE_TEXT} column, may be <b>null</b>
+	 * @return this table
+	 */
+	public ColumnarTable putText(String value) {
+		put(TYPE_TEXT, 0);
+		texts[column - 1][rows] = value;
+		return this;
+	}
+
+	/**
+	 * Finishes the actual row. The block is written if it is full.
+	 *
+	 * @throws IOException if the block can't be written
+	 */
+	public void endRow() throws IOException {
+		if (column != types.length) {
+			throw new RuntimeException(String.format("Error in ColumnarTable: row has %d of %d columns", column, types.length));
+		}
+		column = 0;
+		rows++;
+		if (rows == BLOCK_SIZE) {
+			writeBlock();
+		}
+	}
+
+	/**
+	 * Writes the actual block, even if it is not full
+	 *
+	 * @throws IOException if the block can't be written
+	 */
+	public void flush() throws IOException {
+		if (rows > 0) writeBlock();
+		out.flush();
+	}
+
+	/**
+	 * Writes the actual block and the end of the file, and closes the file
+	 *
+	 * @throws IOException if the file can't be written
+	 */
+	public void close() throws IOException {
+		if (rows > 0) writeBlock();
+		writeVarint(out, 0);
+		out.close();
+	}
+
+	private ColumnarTable put(byte type, long value) {
+		if (column >= types.length || types[column] != type) {
+			throw new RuntimeException(String.format("Error in ColumnarTable: column %d is not of type %d", column, type));
+		}
+		values[column++][rows] = value;
+		return this;
+	}
+
+	private void writeBlock() throws IOException {
+		writeVarint(out, rows);
+		for (int i = 0; i < types.length; i++) {
+			if (types[i] != TYPE_STRING) continue;
+			List<String> entries = newEntries.get(i);
+			writeVarint(out, entries.size());
+			for (String entry : entries) {
+				out.writeUTF(entry);
+			}
+			entries.clear();
+		}
+		for (int i = 0; i < types.length; i++) {
+			long[] column = values[i];
+			switch (types[i]) {
+				case TYPE_INT:
+					for (int row = 0; row < rows; row++) writeVarint(out, zigzag(column[row]));
+					break;
+				case TYPE_TIME:
+					for (int row = 0; row < rows; row++) {
+						writeVarint(out, zigzag(column[row] - lastTime[i]));
+						lastTime[i] = column[row];
+					}
+					break;
+				case TYPE_FLOAT:
+					for (int row = 0; row < rows; row++) out.writeInt((int) column[row]);
+					break;
+				case TYPE_DOUBLE:
+					for (int row = 0; row < rows; row++) out.writeLong(column[row]);
+					break;
+				case TYPE_STRING:
+					for (int row = 0; row < rows; row++) writeVarint(out, column[row]);
+					break;
+				case TYPE_TEXT:
+					for (int row = 0; row < rows; row++) {
+						if (texts[i][row] == null) {
+							writeVarint(out, 0);
+						} else {
+							byte[] bytes = texts[i][row].getBytes(StandardCharsets.UTF_8);
+							writeVarint(out, bytes.length + 1);
+							out.write(bytes);
+						}
+						texts[i][row] = null;
+					}
+					break;
+			}
+		}
+		rows = 0;
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Writes an unsigned value with 7 bits per byte, the highest bit marks that more bytes follow
+	 */
+	private static void writeVarint(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+}
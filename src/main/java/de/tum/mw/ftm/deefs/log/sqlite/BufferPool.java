@@ -0,0 +1,44 @@
+package de.tum.mw.ftm.deefs.log.sqlite;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Free {@link RecordBuffer}s of one table. The simulation thread takes an empty buffer after handing a full one over to the writer,
+ * the writer releases the buffer after it was written. New buffers are only created while all buffers are in use,
+ * so the number of buffers is limited by the writer queue size.
+ *
+ * @param <T> buffer type
+ */
+class BufferPool<T extends RecordBuffer> {
+
+	private final Queue<T> free = new ConcurrentLinkedQueue<>();
+	private final Supplier<T> factory;  // creates new buffers
+
+
+	/**
+	 * @param factory creates new buffers
+	 */
+	BufferPool(Supplier<T> factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * @return an empty buffer
+	 */
+	T take() {
+		T buffer = free.poll();
+		return buffer == null ? factory.get() : buffer;
+	}
+
+	/**
+	 * Clears the buffer and makes it available again
+	 *
+	 * @param buffer buffer which is not used anymore
+	 */
+	void release(T buffer) {
+		buffer.clear();
+		free.offer(buffer);
+	}
+}
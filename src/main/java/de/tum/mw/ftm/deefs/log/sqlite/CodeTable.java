@@ -0,0 +1,63 @@
+package de.tum.mw.ftm.deefs.log.sqlite;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps the few distinct values of a string column (vehicle states, facility actions, connector types, reasons) to byte codes,
+ * so record buffers only have to store one byte per value.
+ * <p> Codes are assigned by the simulation thread. The writer thread only decodes codes of buffers handed over to it,
+ * the table of names is replaced on every new entry and never modified after it was published.
+ * <p> DBLog stores the codes in the result tables, the names are written once to a lookup table by the writer.
+ */
+class CodeTable {
+
+	private final Map<String, Byte> codes = new HashMap<>();    // code of every known name
+	private volatile String[] names = new String[0];            // name of every code
+	int persisted = 0;                                          // number of codes written to the lookup table, only used by the writer
+
+
+	/**
+	 * @param known values to be registered in the given order, so their codes don't depend on the order of the results
+	 */
+	CodeTable(String... known) {
+		for (String name : known) {
+			encode(name);
+		}
+	}
+
+	/**
+	 * @param name value to be encoded, may be <b>null</b>
+	 * @return code of the value, a new code is assigned to unknown values
+	 */
+	byte encode(String name) {
+		Byte code = codes.get(name);
+		if (code == null) {
+			if (names.length == 256) {
+				throw new RuntimeException("Error in CodeTable: more than 256 distinct values!");
+			}
+			String[] grown = Arrays.copyOf(names, names.length + 1);
+			grown[names.length] = name;
+			code = (byte) names.length;
+			codes.put(name, code);
+			names = grown;
+		}
+		return code;
+	}
+
+	/**
+	 * @param code code returned by {@link #encode(String)}
+	 * @return encoded value
+	 */
+	String decode(byte code) {
+		return names[code & 0xFF];
+	}
+
+	/**
+	 * @return name of every code assigned so far, indexed by code. The array must not be modified.
+	 */
+	String[] names() {
+		return names;
+	}
+}
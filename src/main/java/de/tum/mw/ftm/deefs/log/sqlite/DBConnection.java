@@ -1,7 +1,10 @@
 package de.tum.mw.ftm.deefs.log.sqlite;
 
+import de.tum.mw.ftm.deefs.Config;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.Statement;
 
 
 /**
@@ -13,7 +16,12 @@ public class DBConnection {
 
 
 	/**
-	 * Opens a new connection to a sqlite database using JDBC
+	 * Opens a new connection to a sqlite database using JDBC. The database is tuned for bulk inserts of a single writer:
+	 * <br>journal_mode = WAL
+	 * <br>synchronous as configured (config key db_synchronous, default NORMAL)
+	 * <br>cache_size as configured in KiB (config key db_cache_size, default 65536)
+	 * <br>temp_store = MEMORY
+	 * <p>Auto commit is disabled.
 	 *
 	 * @param filepath Path to sqlite database
 	 * @return Connection to the sqlite database
@@ -23,6 +31,13 @@ public class DBConnection {
 		try {
 			Class.forName("org.sqlite.JDBC");
 			Connection conn = DriverManager.getConnection("jdbc:sqlite:" + filepath);
+			//pragmas have to be set outside of a transaction
+			Statement stmt = conn.createStatement();
+			stmt.execute("PRAGMA journal_mode = WAL");
+			stmt.execute("PRAGMA synchronous = " + Config.getProperty(Config.DB_SYNCHRONOUS, "NORMAL").trim());
+			stmt.execute("PRAGMA cache_size = -" + Long.parseLong(Config.getProperty(Config.DB_CACHE_SIZE, "65536").trim()));
+			stmt.execute("PRAGMA temp_store = MEMORY");
+			stmt.close();
 			conn.setAutoCommit(false);
 			return conn;
 		} catch (Exception e) {
@@ -0,0 +1,182 @@
+package de.tum.mw.ftm.deefs.log.sqlite;
+
+import de.tum.mw.ftm.deefs.utils.Stopwatch;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Prepares a finished result database for analysis. Indexes are created in bulk after all results were loaded,
+ * which is much faster than maintaining them during the simulation. Steps:
+ * <br>1. indexes for the common queries per car, per facility and per time range
+ * <br>2. R*Tree indexes over the coordinates of trackpoints (trackpoint_rtree, id = rowid of trackpoint_data) and facilities (facility_rtree, id = facility_id)
+ * <br>3. summary tables: distance per car and status (summary_car_status), facility actions per hour (summary_facility_hourly)
+ * and charging sessions per facility (summary_charging)
+ * <br>4. ANALYZE, so the query planner knows the new indexes
+ * <p> Indexes of trackpoint, facility_stats, energy and denied_rides are created on their compact tables (e.g. trackpoint_data),
+ * the views with the old names can't be indexed. Databases written before the compact schema are finalized as well.
+ * <p> The finalization is configured by the config key db_finalize:
+ * <br>SYNC: DBLog finalizes the database when it is closed (default)
+ * <br>ASYNC: the finalization runs on its own thread, the application continues and waits for it before exiting
+ * <br>NONE: no finalization
+ * <p> Run this class with the path of a result database as argument to finalize an existing database.
+ *
+ * @see DBLog
+ */
+public class DBFinalizer implements Runnable {
+
+	public static final String MODE_SYNC = "SYNC";
+	public static final String MODE_ASYNC = "ASYNC";
+	public static final String MODE_NONE = "NONE";
+
+	// index name, table or view, columns
+	private static final String[][] INDEXES = {
+			{"idx_trackpoint_car_time", "trackpoint", "car_id, time"},
+			{"idx_trackpoint_time", "trackpoint", "time"},
+			{"idx_trackpoint_facility", "trackpoint", "facility_id, time"},
+			{"idx_leg_car_time", "leg", "car_id, start_time"},
+			{"idx_leg_time", "leg", "start_time"},
+			{"idx_facility_stats_facility_time", "facility_stats", "facility_id, time"},
+			{"idx_facility_stats_car", "facility_stats", "car_id, time"},
+			{"idx_energy_facility_time", "energy", "facility_id, time"},
+			{"idx_energy_car_time", "energy", "car_id, time"},
+			{"idx_charging_session_facility_time", "charging_session", "facility_id, start_time"},
+			{"idx_charging_session_car_time", "charging_session", "car_id, start_time"},
+			{"idx_load_curve_station_facility_time", "load_curve_station", "facility_id, time"},
+			{"idx_denied_rides_time", "denied_rides", "time"},
+			{"idx_denied_rides_car", "denied_rides", "car_id, time"},
+			{"idx_denied_ride_summary_time", "denied_ride_summary", "time"},
+			{"idx_controller_time", "controller", "time"},
+	};
+
+	private final String path;
+
+
+	/**
+	 * @param path path of the result database
+	 */
+	public DBFinalizer(String path) {
+		this.path = path;
+	}
+
+	/**
+	 * Finalizes the database as configured
+	 *
+	 * @param path path of the result database
+	 * @param mode one of the MODE constants
+	 */
+	static void finalizeDatabase(String path, String mode) {
+		switch (mode) {
+			case MODE_NONE:
+				break;
+			case MODE_ASYNC:
+				// not a daemon, the JVM waits for the finalization before exiting
+				Thread thread = new Thread(new DBFinalizer(path), "DBFinalizer");
+				thread.start();
+				break;
+			case MODE_SYNC:
+				new DBFinalizer(path).run();
+				break;
+			default:
+				throw new RuntimeException("Unknown db_finalize mode: " + mode);
+		}
+	}
+
+	@Override
+	public void run() {
+		Stopwatch timer = new Stopwatch();
+		try {
+			Class.forName("org.sqlite.JDBC");
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException(e);
+		}
+		try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + path)) {
+			Statement stmt = connection.createStatement();
+			stmt.execute("PRAGMA temp_store = MEMORY");
+			connection.setAutoCommit(false);
+			createIndexes(connection, stmt);
+			createSpatialIndexes(connection, stmt);
+			createSummaries(connection, stmt);
+			connection.setAutoCommit(true);
+			stmt.execute("ANALYZE");
+			stmt.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return;
+		}
+		System.out.println("Finalized " + path + " in " + timer.getTimeAsString());
+	}
+
+	private void createIndexes(Connection connection, Statement stmt) throws SQLException {
+		for (String[] index : INDEXES) {
+			String table = tableExists(connection, index[1] + "_data") ? index[1] + "_data" : index[1];
+			if (tableExists(connection, table)) {
+				stmt.executeUpdate(String.format("CREATE INDEX IF NOT EXISTS %s ON %s (%s)", index[0], table, index[2]));
+			}
+		}
+		connection.commit();
+	}
+
+	private void createSpatialIndexes(Connection connection, Statement stmt) throws SQLException {
+		try {
+			stmt.executeUpdate("DROP TABLE IF EXISTS trackpoint_rtree");
+			stmt.executeUpdate("CREATE VIRTUAL TABLE trackpoint_rtree USING rtree(id, min_lat, max_lat, min_lon, max_lon)");
+			if (tableExists(connection, "trackpoint_data")) {
+				stmt.executeUpdate("INSERT INTO trackpoint_rtree SELECT rowid, lat_e7 / 1e7, lat_e7 / 1e7, lon_e7 / 1e7, lon_e7 / 1e7 FROM trackpoint_data");
+			} else {
+				stmt.executeUpdate("INSERT INTO trackpoint_rtree SELECT rowid, lat, lat, lon, lon FROM trackpoint");
+			}
+			stmt.executeUpdate("DROP TABLE IF EXISTS facility_rtree");
+			stmt.executeUpdate("CREATE VIRTUAL TABLE facility_rtree USING rtree(id, min_lat, max_lat, min_lon, max_lon)");
+			stmt.executeUpdate("INSERT INTO facility_rtree SELECT facility_id, lat, lat, lon, lon FROM facility");
+			connection.commit();
+		} catch (SQLException e) {
+			// the sqlite library may be built without the R*Tree module
+			connection.rollback();
+			System.err.println("Spatial indexes not created: " + e.getMessage());
+		}
+	}
+
+	private void createSummaries(Connection connection, Statement stmt) throws SQLException {
+		stmt.executeUpdate("DROP TABLE IF EXISTS summary_car_status");
+		String legs = tableExists(connection, "leg") ? " UNION ALL SELECT car_id, status, points, distance FROM leg" : "";
+		stmt.executeUpdate("CREATE TABLE summary_car_status AS "
+				+ "SELECT car_id, status, SUM(n) AS trackpoints, SUM(distance) AS distance "
+				+ "FROM (SELECT car_id, status, 1 AS n, distance FROM trackpoint" + legs + ") "
+				+ "GROUP BY car_id, status");
+		stmt.executeUpdate("DROP TABLE IF EXISTS summary_facility_hourly");
+		stmt.executeUpdate("CREATE TABLE summary_facility_hourly AS "
+				+ "SELECT facility_id, time / 3600000 AS hour, action, COUNT(*) AS n, "
+				+ "AVG(connected_cars) AS avg_connected_cars, AVG(waiting_cars) AS avg_waiting_cars "
+				+ "FROM facility_stats GROUP BY facility_id, hour, action");
+		stmt.executeUpdate("DROP TABLE IF EXISTS summary_charging");
+		stmt.executeUpdate("CREATE TABLE summary_charging AS "
+				+ "SELECT facility_id, COUNT(*) AS sessions, COUNT(DISTINCT car_id) AS cars, SUM(energy) AS energy, "
+				+ "AVG(end_time - start_time) AS avg_duration, MAX(peak_power) AS peak_power "
+				+ "FROM charging_session GROUP BY facility_id");
+		connection.commit();
+	}
+
+	private static boolean tableExists(Connection connection, String table) throws SQLException {
+		try (Statement stmt = connection.createStatement();
+			 ResultSet rs = stmt.executeQuery(String.format("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = '%s'", table))) {
+			return rs.next();
+		}
+	}
+
+	/**
+	 * Finalizes an existing result database
+	 *
+	 * @param args path of the result database
+	 */
+	public static void main(String[] args) {
+		if (args.length != 1) {
+			System.err.println("Usage: DBFinalizer <result database>");
+			return;
+		}
+		new DBFinalizer(args[0]).run();
+	}
+}
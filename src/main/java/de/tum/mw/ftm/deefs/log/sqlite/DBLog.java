@@ -1,6 +1,7 @@
 package de.tum.mw.ftm.deefs.log.sqlite;
 
 import de.tum.mw.ftm.deefs.Config;
+import de.tum.mw.ftm.deefs.elements.eMobilityComponents.Connector;
 import de.tum.mw.ftm.deefs.elements.facilitiies.ChargingStation;
 import de.tum.mw.ftm.deefs.elements.facilitiies.Facility;
 import de.tum.mw.ftm.deefs.elements.facilitiies.TaxiRank;
@@ -14,20 +15,30 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
- * DataLogger. This class can be used to log simulation results to a output sqlite Database.
+ * DataLogger. This class can be used to log simulation results to a output sqlite Database. This is the default ResultSink.
  * <p> A database with the given name from config.properties will be created automatically when creating a instance of this object.
- * <p> Log-data will be pushed to the Database in Bacthes. As longs as the defined batch size is not reached the data remains in local memory.
- * Make shure to flush the DBLog when finishing the simulation.
+ * <p> Log-data will be pushed to the Database in Bacthes. As longs as the defined batch size is not reached the data remains in local memory,
+ * in addition all buffers are flushed after the configured flush interval (config key db_flush_interval).
+ * <p> One connection in WAL mode is kept open for the whole run, see {@link DBConnection}. Flushed batches are written by a {@link DBWriter}
+ * on a background thread (config keys db_writer and db_writer_queue_size). Make shure to close the DBLog when finishing the simulation.
+ * <p> The tables have no indexes while results are written, they are created by the {@link DBFinalizer} after closing (config key db_finalize).
+ * <p> Trackpoints, FacilityStats, EnergyStats and DeniedRides are appended to {@link RecordBuffer}s, which are reused after they were written.
+ * They are stored in a compact form: states, actions, connector types and reasons as integer codes, which are resolved by the lookup tables
+ * code_status, code_action, code_connector and code_reason, and the coordinates of trackpoints as integers in 1e-7 degrees.
+ * The views trackpoint, facility_stats, energy and denied_rides restore the text columns and coordinates in degrees.
  *
  * @author Michael Wittmann
  */
-public class DBLog {
+public class DBLog implements ResultSink {
 
 	// Batch Size 
 	private final int BATCH_SIZE = 1000;
@@ -49,6 +60,7 @@ public class DBLog {
 	private final String FACILITY_AREA = "area";
 	private final String FACILITY_DESCRIPTION = "description";
 	private final String TABLE_TRACKPOINT = "trackpoint";
+	private final String TABLE_TRACKPOINT_DATA = "trackpoint_data";
 	private final String TRACKPOINT_CAR_ID = "car_id";
 	private final String TRACKPOINT_SHIFT_COUNT = "shift_count";
 	private final String TRACKPOINT_TRACK_ID = "track_id";
@@ -57,9 +69,26 @@ public class DBLog {
 	private final String TRACKPOINT_FACILITY_ID = "facility_id";
 	private final String TRACKPOINT_LAT = "lat";
 	private final String TRACKPOINT_LON = "lon";
+	private final String TRACKPOINT_LAT_E7 = "lat_e7";
+	private final String TRACKPOINT_LON_E7 = "lon_e7";
 	private final String TRACKPOINT_DISTANCE = "distance";
 	private final String TRACKPOINT_SOC = "soc";
+	private final String TABLE_LEG = "leg";
+	private final String LEG_CAR_ID = "car_id";
+	private final String LEG_SHIFT_COUNT = "shift_count";
+	private final String LEG_TRACK_ID = "track_id";
+	private final String LEG_STATUS = "status";
+	private final String LEG_FACILITY_ID = "facility_id";
+	private final String LEG_START = "start_time";
+	private final String LEG_END = "end_time";
+	private final String LEG_START_SOC = "start_soc";
+	private final String LEG_END_SOC = "end_soc";
+	private final String LEG_DISTANCE = "distance";
+	private final String LEG_POINTS = "points";
+	private final String LEG_POLYLINE = "polyline";
+	private final String LEG_TIMES = "times";
 	private final String TABLE_ENERGY_STATS = "energy";
+	private final String TABLE_ENERGY_STATS_DATA = "energy_data";
 	private final String ENERGY_STATS_FACILITY_ID = "facility_id";
 	private final String ENERGY_STATS_CAR_ID = "car_id";
 	private final String ENERGY_STATS_TIME = "time";
@@ -67,7 +96,35 @@ public class DBLog {
 	private final String ENERGY_STATS_POWER = "power";
 	private final String ENERGY_STATS_CONNECTOR = "connector";
 	private final String ENERGY_STATS_P_MAX = "p_max";
+	private final String TABLE_CHARGING_SESSION = "charging_session";
+	private final String CHARGING_SESSION_FACILITY_ID = "facility_id";
+	private final String CHARGING_SESSION_CAR_ID = "car_id";
+	private final String CHARGING_SESSION_START = "start_time";
+	private final String CHARGING_SESSION_END = "end_time";
+	private final String CHARGING_SESSION_ENERGY = "energy";
+	private final String CHARGING_SESSION_AVG_POWER = "avg_power";
+	private final String CHARGING_SESSION_PEAK_POWER = "peak_power";
+	private final String CHARGING_SESSION_CONNECTOR = "connector";
+	private final String CHARGING_SESSION_P_MAX = "p_max";
+	private final String TABLE_LOAD_CURVE_STATION = "load_curve_station";
+	private final String LOAD_CURVE_STATION_FACILITY_ID = "facility_id";
+	private final String LOAD_CURVE_STATION_TIME = "time";
+	private final String LOAD_CURVE_STATION_POWER = "power";
+	private final String TABLE_LOAD_CURVE_CONNECTOR = "load_curve_connector";
+	private final String LOAD_CURVE_CONNECTOR_CONNECTOR = "connector";
+	private final String LOAD_CURVE_CONNECTOR_TIME = "time";
+	private final String LOAD_CURVE_CONNECTOR_POWER = "power";
+	private final String TABLE_LOAD_CURVE_SYSTEM = "load_curve_system";
+	private final String LOAD_CURVE_SYSTEM_TIME = "time";
+	private final String LOAD_CURVE_SYSTEM_POWER = "power";
+	private final String TABLE_LOAD_PEAK = "load_peak";
+	private final String LOAD_PEAK_FACILITY_ID = "facility_id";
+	private final String LOAD_PEAK_TIME = "peak_time";
+	private final String LOAD_PEAK_POWER = "peak_power";
+	private final String LOAD_PEAK_INSTALLED_POWER = "installed_power";
+	private final String LOAD_PEAK_COINCIDENCE_FACTOR = "coincidence_factor";
 	private final String TABLE_FACILITY_STATS = "facility_stats";
+	private final String TABLE_FACILITY_STATS_DATA = "facility_stats_data";
 	private final String FACILITY_STATS_FACILITY_ID = "facility_id";
 	private final String FACILITY_STATS_TIME = "time";
 	private final String FACILITY_STATS_CAR_ID = "car_id";
@@ -75,26 +132,72 @@ public class DBLog {
 	private final String FACILITY_STATS_CONNECTED_CARS = "connected_cars";
 	private final String FACILITY_STATS_WAITING_CARS = "waiting_cars";
 	private final String TABLE_DENIED_RIDES = "denied_rides";
+	private final String TABLE_DENIED_RIDES_DATA = "denied_rides_data";
 	private final String DENIED_RIDES_ID = "track_id";
 	private final String DENIED_RIDES_CAR_ID = "car_id";
 	private final String DENIED_RIDES_TIME = "time";
 	private final String DENIED_RIDES_DISTANCE_TO_CUSTOMER = "disctace_to_customer";
 	private final String DENIED_RIDES_TRACK_DISTANCE = "track_distance";
 	private final String DENIED_RIDES_REASON = "reason";
+	private final String TABLE_DENIED_RIDE_SUMMARY = "denied_ride_summary";
+	private final String DENIED_RIDE_SUMMARY_ID = "track_id";
+	private final String DENIED_RIDE_SUMMARY_TIME = "time";
+	private final String DENIED_RIDE_SUMMARY_TRACK_DISTANCE = "track_distance";
+	private final String DENIED_RIDE_SUMMARY_SERVED = "served";
+	private final String DENIED_RIDE_SUMMARY_CANDIDATES = "candidates";
+	private final String DENIED_RIDE_SUMMARY_CLOSEST_CAR_ID = "closest_car_id";
+	private final String DENIED_RIDE_SUMMARY_CLOSEST_CAR_DISTANCE = "closest_car_distance";
+	private final String DENIED_RIDE_SUMMARY_CLOSEST_CAR_REASON = "closest_car_reason";
+	private final String DENIED_RIDE_SUMMARY_REASON_PREFIX = "n_";
+	private final String TABLE_DENIED_RIDES_HOURLY = "denied_rides_hourly";
+	private final String DENIED_RIDES_HOURLY_HOUR = "hour";
+	private final String DENIED_RIDES_HOURLY_REASON = "reason";
+	private final String DENIED_RIDES_HOURLY_N = "n";
 	private final String TABLE_CONTROLLER = "controller";
 	private final String CONTROLLER_TIME = "time";
 	private final String CONTROLLER_TYPE = "type";
 	private final String CONTROLLER_N = "n";
+	private final String TABLE_KPI = "kpi";
+	private final String KPI_HOUR = "hour";
+	private final String KPI_FACILITY_ID = "facility_id";
+	private final String KPI_NAME = "name";
+	private final String KPI_VALUE = "value";
 	private final String TABLE_CONFIG = "config";
 	private final String CONFIG_ATTRIBUTE = "attribute";
 	private final String CONFIG_VALUE = "value";
-	// Buffers
-	private final List<Trackpoint> buffer_trackpoints;
-	private final List<FacilityStats> buffer_facilityStats;
-	private final List<EnergyStats> buffer_energyStats;
-	private final List<DeniedRide> buffer_deniedRides;
-	private final List<ControllerStats> buffer_controllerStats;
+	private final String TABLE_CODE_STATUS = "code_status";
+	private final String TABLE_CODE_ACTION = "code_action";
+	private final String TABLE_CODE_CONNECTOR = "code_connector";
+	private final String TABLE_CODE_REASON = "code_reason";
+	private final String CODE_CODE = "code";
+	private final String CODE_NAME = "name";
+	// Scale of the stored trackpoint coordinates, 1e-7 degrees equals the resolution of the road graph
+	private final double COORDINATE_SCALE = 1e7;
+	// Codes of the text columns, stored instead of the text
+	private final CodeTable statuses;
+	private final CodeTable actions;
+	private final CodeTable connectors;
+	private final CodeTable reasons;
+	// Buffers, the hot path tables use reusable struct of arrays buffers
+	private final BufferPool<TrackpointBuffer> pool_trackpoints;
+	private final BufferPool<FacilityStatsBuffer> pool_facilityStats;
+	private final BufferPool<EnergyStatsBuffer> pool_energyStats;
+	private final BufferPool<DeniedRideBuffer> pool_deniedRides;
+	private TrackpointBuffer buffer_trackpoints;
+	private FacilityStatsBuffer buffer_facilityStats;
+	private EnergyStatsBuffer buffer_energyStats;
+	private List<ChargingSession> buffer_chargingSessions;
+	private List<Leg> buffer_legs;
+	private DeniedRideBuffer buffer_deniedRides;
+	private List<DeniedRideSummary> buffer_deniedRideSummaries;
+	private List<ControllerStats> buffer_controllerStats;
+	private List<Kpi> buffer_kpis;
 	// Sqlite Connection
+	private final Map<String, PreparedStatement> statements;    // prepared statements by their sql, kept open as long as the connection
+	private final DBWriter writer;                              // writes the flushed batches, owns the connection after initialization
+	private final String finalizeMode;                          // finalization after closing, see DBFinalizer
+	private final long flushInterval;                           // max. wall clock time between two flushes in ms, 0 to flush on batch size only
+	private long nextFlush;                                     // wall clock time of the next flush in ms
 	private Connection connection = null;
 
 
@@ -116,15 +219,37 @@ public class DBLog {
 				Config.getProperty(Config.OUTPUT_FOLDER, "output/"),
 				Config.getProperty(Config.DB_NAME, "result"),
 				StringUtils.dateToStringFormatYYYYMMDD_HHMMSS(new Date()));
+		finalizeMode = Config.getProperty(Config.DB_FINALIZE, DBFinalizer.MODE_SYNC).trim().toUpperCase();
+		flushInterval = Long.parseLong(Config.getProperty(Config.DB_FLUSH_INTERVAL, "60000"));
+		nextFlush = System.currentTimeMillis() + flushInterval;
+		statements = new HashMap<>();
 		connect();
-		buffer_trackpoints = new ArrayList<>(BATCH_SIZE);
-		buffer_facilityStats = new ArrayList<>(BATCH_SIZE);
-		buffer_energyStats = new ArrayList<>(BATCH_SIZE);
-		buffer_deniedRides = new ArrayList<>(BATCH_SIZE);
+		// known values are registered up front, so status and reason codes equal Taxi.getStatus() and DeniedRide.getReasonCode()
+		statuses = new CodeTable(Taxi.STATUS_NAMES);
+		actions = new CodeTable();
+		String[] connectorTypes = new String[Connector.TYPE_SUPERCHARGER];
+		for (int type = Connector.TYPE_SCHUKO; type <= Connector.TYPE_SUPERCHARGER; type++) {
+			connectorTypes[type - 1] = Connector.getTypeName(type);
+		}
+		connectors = new CodeTable(connectorTypes);
+		reasons = new CodeTable(DeniedRide.REASONS);
+		pool_trackpoints = new BufferPool<>(() -> new TrackpointBuffer(BATCH_SIZE, statuses));
+		pool_facilityStats = new BufferPool<>(() -> new FacilityStatsBuffer(BATCH_SIZE, actions));
+		pool_energyStats = new BufferPool<>(() -> new EnergyStatsBuffer(BATCH_SIZE, connectors));
+		pool_deniedRides = new BufferPool<>(() -> new DeniedRideBuffer(BATCH_SIZE, reasons));
+		buffer_trackpoints = pool_trackpoints.take();
+		buffer_facilityStats = pool_facilityStats.take();
+		buffer_energyStats = pool_energyStats.take();
+		buffer_chargingSessions = new ArrayList<>(BATCH_SIZE);
+		buffer_legs = new ArrayList<>(BATCH_SIZE);
+		buffer_deniedRides = pool_deniedRides.take();
+		buffer_deniedRideSummaries = new ArrayList<>(BATCH_SIZE);
 		buffer_controllerStats = new ArrayList<>(BATCH_SIZE);
+		buffer_kpis = new ArrayList<>(BATCH_SIZE);
 		initialize();
 		writeConfigs();
-		closeConnection();
+		writer = new DBWriter(connection, Integer.parseInt(Config.getProperty(Config.DB_WRITER_QUEUE_SIZE, "16")),
+				!"SYNC".equalsIgnoreCase(Config.getProperty(Config.DB_WRITER, "ASYNC")));
 	}
 
 
@@ -134,13 +259,36 @@ public class DBLog {
 	private void initialize() {
 		try {
 			Statement stmt = connection.createStatement();
+			stmt.executeUpdate(String.format("DROP VIEW IF EXISTS %s", TABLE_TRACKPOINT));
+			stmt.executeUpdate(String.format("DROP VIEW IF EXISTS %s", TABLE_ENERGY_STATS));
+			stmt.executeUpdate(String.format("DROP VIEW IF EXISTS %s", TABLE_FACILITY_STATS));
+			stmt.executeUpdate(String.format("DROP VIEW IF EXISTS %s", TABLE_DENIED_RIDES));
 			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_FLEET));
-			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_ENERGY_STATS));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_ENERGY_STATS_DATA));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_CHARGING_SESSION));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_LEG));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_LOAD_CURVE_STATION));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_LOAD_CURVE_CONNECTOR));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_LOAD_CURVE_SYSTEM));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_LOAD_PEAK));
 			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_FACILITY));
-			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_TRACKPOINT));
-			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_FACILITY_STATS));
-			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_DENIED_RIDES));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_TRACKPOINT_DATA));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_FACILITY_STATS_DATA));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_DENIED_RIDES_DATA));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_DENIED_RIDE_SUMMARY));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_DENIED_RIDES_HOURLY));
 			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_CONTROLLER));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_KPI));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_CODE_STATUS));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_CODE_ACTION));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_CODE_CONNECTOR));
+			stmt.executeUpdate(String.format("DROP TABLE IF EXISTS %s", TABLE_CODE_REASON));
+			for (String table : new String[]{TABLE_CODE_STATUS, TABLE_CODE_ACTION, TABLE_CODE_CONNECTOR, TABLE_CODE_REASON}) {
+				stmt.executeUpdate(String.format("CREATE TABLE %s ("
+								+ "%s INTEGER PRIMARY KEY,"
+								+ "%s TEXT);",
+						table, CODE_CODE, CODE_NAME));
+			}
 			stmt.executeUpdate(String.format("CREATE TABLE %s ("
 							+ "%s INTEGER PRIMARY KEY,"
 							+ "%s TEXT, "
@@ -161,48 +309,149 @@ public class DBLog {
 							+ "%s INTEGER,"
 							+ "%s INTEGER,"
 							+ "%s INTEGER,"
-							+ "%s TEXT,"
+							+ "%s INTEGER,"
+							+ "%s INTEGER,"
+							+ "%s INTEGER,"
 							+ "%s INTEGER,"
 							+ "%s REAL,"
+							+ "%s REAL);",
+					TABLE_TRACKPOINT_DATA, TRACKPOINT_CAR_ID, TRACKPOINT_SHIFT_COUNT, TRACKPOINT_TRACK_ID, TRACKPOINT_TIME, TRACKPOINT_STATUS, TRACKPOINT_FACILITY_ID,
+					TRACKPOINT_LAT_E7, TRACKPOINT_LON_E7, TRACKPOINT_DISTANCE, TRACKPOINT_SOC));
+			stmt.executeUpdate(String.format("CREATE VIEW %s AS SELECT "
+							+ "d.%s, d.%s, d.%s, d.%s, c.%s AS %s, d.%s, d.%s / %s AS %s, d.%s / %s AS %s, d.%s, d.%s "
+							+ "FROM %s d LEFT JOIN %s c ON c.%s = d.%s;",
+					TABLE_TRACKPOINT, TRACKPOINT_CAR_ID, TRACKPOINT_SHIFT_COUNT, TRACKPOINT_TRACK_ID, TRACKPOINT_TIME, CODE_NAME, TRACKPOINT_STATUS,
+					TRACKPOINT_FACILITY_ID, TRACKPOINT_LAT_E7, COORDINATE_SCALE, TRACKPOINT_LAT, TRACKPOINT_LON_E7, COORDINATE_SCALE, TRACKPOINT_LON,
+					TRACKPOINT_DISTANCE, TRACKPOINT_SOC, TABLE_TRACKPOINT_DATA, TABLE_CODE_STATUS, CODE_CODE, TRACKPOINT_STATUS));
+			stmt.executeUpdate(String.format("CREATE TABLE %s ("
+							+ "%s INTEGER,"
+							+ "%s INTEGER,"
+							+ "%s INTEGER, "
 							+ "%s REAL,"
 							+ "%s REAL,"
+							+ "%s INTEGER, "
 							+ "%s REAL);",
-					TABLE_TRACKPOINT, TRACKPOINT_CAR_ID, TRACKPOINT_SHIFT_COUNT, TRACKPOINT_TRACK_ID, TRACKPOINT_TIME, TRACKPOINT_STATUS, TRACKPOINT_FACILITY_ID,
-					TRACKPOINT_LAT, TRACKPOINT_LON, TRACKPOINT_DISTANCE, TRACKPOINT_SOC));
+					TABLE_ENERGY_STATS_DATA, ENERGY_STATS_FACILITY_ID, ENERGY_STATS_CAR_ID, ENERGY_STATS_TIME, ENERGY_STATS_ENERGY, ENERGY_STATS_POWER, ENERGY_STATS_CONNECTOR, ENERGY_STATS_P_MAX));
+			stmt.executeUpdate(String.format("CREATE VIEW %s AS SELECT "
+							+ "d.%s, d.%s, d.%s, d.%s, d.%s, c.%s AS %s, d.%s "
+							+ "FROM %s d LEFT JOIN %s c ON c.%s = d.%s;",
+					TABLE_ENERGY_STATS, ENERGY_STATS_FACILITY_ID, ENERGY_STATS_CAR_ID, ENERGY_STATS_TIME, ENERGY_STATS_ENERGY, ENERGY_STATS_POWER, CODE_NAME,
+					ENERGY_STATS_CONNECTOR, ENERGY_STATS_P_MAX, TABLE_ENERGY_STATS_DATA, TABLE_CODE_CONNECTOR, CODE_CODE, ENERGY_STATS_CONNECTOR));
 			stmt.executeUpdate(String.format("CREATE TABLE %s ("
 							+ "%s INTEGER,"
 							+ "%s INTEGER,"
-							+ "%s INTEGER, "
+							+ "%s INTEGER,"
+							+ "%s TEXT,"
+							+ "%s INTEGER,"
+							+ "%s INTEGER,"
+							+ "%s INTEGER,"
+							+ "%s REAL,"
+							+ "%s REAL,"
+							+ "%s REAL,"
+							+ "%s INTEGER,"
+							+ "%s TEXT,"
+							+ "%s TEXT);",
+					TABLE_LEG, LEG_CAR_ID, LEG_SHIFT_COUNT, LEG_TRACK_ID, LEG_STATUS, LEG_FACILITY_ID, LEG_START, LEG_END, LEG_START_SOC, LEG_END_SOC,
+					LEG_DISTANCE, LEG_POINTS, LEG_POLYLINE, LEG_TIMES));
+			stmt.executeUpdate(String.format("CREATE TABLE %s ("
+							+ "%s INTEGER,"
+							+ "%s INTEGER,"
+							+ "%s INTEGER,"
+							+ "%s INTEGER,"
+							+ "%s REAL,"
 							+ "%s REAL,"
 							+ "%s REAL,"
 							+ "%s TEXT, "
 							+ "%s REAL);",
-					TABLE_ENERGY_STATS, ENERGY_STATS_FACILITY_ID, ENERGY_STATS_CAR_ID, ENERGY_STATS_TIME, ENERGY_STATS_ENERGY, ENERGY_STATS_POWER, ENERGY_STATS_CONNECTOR, ENERGY_STATS_P_MAX));
+					TABLE_CHARGING_SESSION, CHARGING_SESSION_FACILITY_ID, CHARGING_SESSION_CAR_ID, CHARGING_SESSION_START, CHARGING_SESSION_END, CHARGING_SESSION_ENERGY,
+					CHARGING_SESSION_AVG_POWER, CHARGING_SESSION_PEAK_POWER, CHARGING_SESSION_CONNECTOR, CHARGING_SESSION_P_MAX));
 			stmt.executeUpdate(String.format("CREATE TABLE %s ("
 							+ "%s INTEGER,"
 							+ "%s INTEGER,"
-							+ "%s INTEGER,"
+							+ "%s REAL);",
+					TABLE_LOAD_CURVE_STATION, LOAD_CURVE_STATION_FACILITY_ID, LOAD_CURVE_STATION_TIME, LOAD_CURVE_STATION_POWER));
+			stmt.executeUpdate(String.format("CREATE TABLE %s ("
 							+ "%s TEXT,"
 							+ "%s INTEGER,"
+							+ "%s REAL);",
+					TABLE_LOAD_CURVE_CONNECTOR, LOAD_CURVE_CONNECTOR_CONNECTOR, LOAD_CURVE_CONNECTOR_TIME, LOAD_CURVE_CONNECTOR_POWER));
+			stmt.executeUpdate(String.format("CREATE TABLE %s ("
+							+ "%s INTEGER,"
+							+ "%s REAL);",
+					TABLE_LOAD_CURVE_SYSTEM, LOAD_CURVE_SYSTEM_TIME, LOAD_CURVE_SYSTEM_POWER));
+			stmt.executeUpdate(String.format("CREATE TABLE %s ("
+							+ "%s INTEGER,"
+							+ "%s INTEGER,"
+							+ "%s REAL,"
+							+ "%s REAL,"
+							+ "%s REAL);",
+					TABLE_LOAD_PEAK, LOAD_PEAK_FACILITY_ID, LOAD_PEAK_TIME, LOAD_PEAK_POWER, LOAD_PEAK_INSTALLED_POWER, LOAD_PEAK_COINCIDENCE_FACTOR));
+			stmt.executeUpdate(String.format("CREATE TABLE %s ("
+							+ "%s INTEGER,"
+							+ "%s INTEGER,"
+							+ "%s INTEGER,"
+							+ "%s INTEGER,"
+							+ "%s INTEGER,"
 							+ "%s INTEGER);",
-					TABLE_FACILITY_STATS, FACILITY_STATS_FACILITY_ID, FACILITY_STATS_CAR_ID, FACILITY_STATS_TIME, FACILITY_STATS_ACTION, FACILITY_STATS_CONNECTED_CARS, FACILITY_STATS_WAITING_CARS));
+					TABLE_FACILITY_STATS_DATA, FACILITY_STATS_FACILITY_ID, FACILITY_STATS_CAR_ID, FACILITY_STATS_TIME, FACILITY_STATS_ACTION, FACILITY_STATS_CONNECTED_CARS, FACILITY_STATS_WAITING_CARS));
+			stmt.executeUpdate(String.format("CREATE VIEW %s AS SELECT "
+							+ "d.%s, d.%s, d.%s, c.%s AS %s, d.%s, d.%s "
+							+ "FROM %s d LEFT JOIN %s c ON c.%s = d.%s;",
+					TABLE_FACILITY_STATS, FACILITY_STATS_FACILITY_ID, FACILITY_STATS_CAR_ID, FACILITY_STATS_TIME, CODE_NAME, FACILITY_STATS_ACTION,
+					FACILITY_STATS_CONNECTED_CARS, FACILITY_STATS_WAITING_CARS, TABLE_FACILITY_STATS_DATA, TABLE_CODE_ACTION, CODE_CODE, FACILITY_STATS_ACTION));
 			stmt.executeUpdate(String.format("CREATE TABLE %s ("
 							+ "%s INTEGER,"
 							+ "%s INTEGER,"
 							+ "%s INTEGER,"
 							+ "%s REAL,"
 							+ "%s REAL,"
+							+ "%s INTEGER);",
+					TABLE_DENIED_RIDES_DATA, DENIED_RIDES_ID, DENIED_RIDES_CAR_ID, DENIED_RIDES_TIME, DENIED_RIDES_TRACK_DISTANCE, DENIED_RIDES_DISTANCE_TO_CUSTOMER, DENIED_RIDES_REASON));
+			stmt.executeUpdate(String.format("CREATE VIEW %s AS SELECT "
+							+ "d.%s, d.%s, d.%s, d.%s, d.%s, c.%s AS %s "
+							+ "FROM %s d LEFT JOIN %s c ON c.%s = d.%s;",
+					TABLE_DENIED_RIDES, DENIED_RIDES_ID, DENIED_RIDES_CAR_ID, DENIED_RIDES_TIME, DENIED_RIDES_TRACK_DISTANCE, DENIED_RIDES_DISTANCE_TO_CUSTOMER,
+					CODE_NAME, DENIED_RIDES_REASON, TABLE_DENIED_RIDES_DATA, TABLE_CODE_REASON, CODE_CODE, DENIED_RIDES_REASON));
+			StringBuilder reasonColumns = new StringBuilder();
+			for (String reason : DeniedRide.REASONS) {
+				reasonColumns.append(String.format("%s%s INTEGER,", DENIED_RIDE_SUMMARY_REASON_PREFIX, reason.toLowerCase()));
+			}
+			stmt.executeUpdate(String.format("CREATE TABLE %s ("
+							+ "%s INTEGER,"
+							+ "%s INTEGER,"
+							+ "%s REAL,"
+							+ "%s INTEGER,"
+							+ "%s INTEGER,"
+							+ "%s"
+							+ "%s INTEGER,"
+							+ "%s REAL,"
 							+ "%s TEXT);",
-					TABLE_DENIED_RIDES, DENIED_RIDES_ID, DENIED_RIDES_CAR_ID, DENIED_RIDES_TIME, DENIED_RIDES_TRACK_DISTANCE, DENIED_RIDES_DISTANCE_TO_CUSTOMER, DENIED_RIDES_REASON));
+					TABLE_DENIED_RIDE_SUMMARY, DENIED_RIDE_SUMMARY_ID, DENIED_RIDE_SUMMARY_TIME, DENIED_RIDE_SUMMARY_TRACK_DISTANCE, DENIED_RIDE_SUMMARY_SERVED,
+					DENIED_RIDE_SUMMARY_CANDIDATES, reasonColumns, DENIED_RIDE_SUMMARY_CLOSEST_CAR_ID, DENIED_RIDE_SUMMARY_CLOSEST_CAR_DISTANCE, DENIED_RIDE_SUMMARY_CLOSEST_CAR_REASON));
+			stmt.executeUpdate(String.format("CREATE TABLE %s ("
+							+ "%s INTEGER,"
+							+ "%s TEXT,"
+							+ "%s INTEGER);",
+					TABLE_DENIED_RIDES_HOURLY, DENIED_RIDES_HOURLY_HOUR, DENIED_RIDES_HOURLY_REASON, DENIED_RIDES_HOURLY_N));
 			stmt.executeUpdate(String.format("CREATE TABLE %s ("
 							+ "%s INTEGER,"
 							+ "%s TEXT,"
 							+ "%s INTEGER);",
 					TABLE_CONTROLLER, CONTROLLER_TIME, CONTROLLER_TYPE, CONTROLLER_N));
+			stmt.executeUpdate(String.format("CREATE TABLE %s ("
+							+ "%s INTEGER,"
+							+ "%s INTEGER,"
+							+ "%s TEXT,"
+							+ "%s REAL);",
+					TABLE_KPI, KPI_HOUR, KPI_FACILITY_ID, KPI_NAME, KPI_VALUE));
 			stmt.executeUpdate(String.format("CREATE TABLE %s ("
 							+ "%s TEXT,"
 							+ "%s TEXT);",
 					TABLE_CONFIG, CONFIG_ATTRIBUTE, CONFIG_VALUE));
+			writeCodes(statuses, TABLE_CODE_STATUS);
+			writeCodes(actions, TABLE_CODE_ACTION);
+			writeCodes(connectors, TABLE_CODE_CONNECTOR);
+			writeCodes(reasons, TABLE_CODE_REASON);
 			connection.commit();
 			stmt.close();
 		} catch (SQLException e) {
@@ -219,7 +468,7 @@ public class DBLog {
 		List<Object> keys = new ArrayList<>(Config.getProperties().keySet());
 		List<Object> values = new ArrayList<>(Config.getProperties().values());
 		try {
-			PreparedStatement ps = connection.prepareStatement(String.format("INSERT INTO %s VALUES (?,?)", TABLE_CONFIG));
+			PreparedStatement ps = prepare(String.format("INSERT INTO %s VALUES (?,?)", TABLE_CONFIG));
 			for (int i = 0; i < keys.size(); i++) {
 				ps.setString(1, keys.get(i).toString());
 				ps.setString(2, values.get(i).toString());
@@ -227,7 +476,6 @@ public class DBLog {
 			}
 			ps.executeBatch();
 			connection.commit();
-			ps.close();
 		} catch (SQLException e) {
 			e.printStackTrace();
 		}
@@ -239,10 +487,10 @@ public class DBLog {
 	 *
 	 * @param facilities facilites used in this simulation run
 	 */
+	@Override
 	public void addFacilities(List<Facility> facilities) {
-		connect();
-		try {
-			PreparedStatement ps = connection.prepareStatement(String.format("INSERT INTO %s VALUES (?,?,?,?,?, ?)", TABLE_FACILITY));
+		writer.submit(() -> {
+			PreparedStatement ps = prepare(String.format("INSERT INTO %s VALUES (?,?,?,?,?, ?)", TABLE_FACILITY));
 			for (Facility facility : facilities) {
 				ps.setInt(1, facility.getId());
 				if (facility instanceof TaxiRank) {
@@ -261,12 +509,7 @@ public class DBLog {
 				ps.addBatch();
 			}
 			ps.executeBatch();
-			connection.commit();
-			ps.close();
-		} catch (SQLException e) {
-			e.printStackTrace();
-		}
-		closeConnection();
+		});
 	}
 
 
@@ -275,10 +518,10 @@ public class DBLog {
 	 *
 	 * @param fleet vehicle fleet used for this simulation run
 	 */
+	@Override
 	public void addFleet(List<Taxi> fleet) {
-		connect();
-		try {
-			PreparedStatement ps = connection.prepareStatement(String.format("INSERT INTO %s VALUES (?,?,?,?,?)", TABLE_FLEET));
+		writer.submit(() -> {
+			PreparedStatement ps = prepare(String.format("INSERT INTO %s VALUES (?,?,?,?,?)", TABLE_FLEET));
 			for (Taxi taxi : fleet) {
 				ps.setInt(1, taxi.getId());
 				ps.setString(2, taxi.getType());
@@ -286,188 +529,503 @@ public class DBLog {
 					ps.setString(3, ((BEVTaxi) taxi).getConcept().getConceptName());
 					ps.setFloat(4, ((BEVTaxi) taxi).getConcept().getVMean());
 					ps.setFloat(5, ((BEVTaxi) taxi).getConcept().getBattery().getEBatMax());
+				} else {
+					//statements are reused, so parameters of the previous row have to be cleared
+					ps.setNull(3, java.sql.Types.CHAR);
+					ps.setNull(4, java.sql.Types.REAL);
+					ps.setNull(5, java.sql.Types.REAL);
 				}
 				ps.addBatch();
 			}
 			ps.executeBatch();
-			connection.commit();
-			ps.close();
-		} catch (SQLException e) {
-			e.printStackTrace();
-		}
-		closeConnection();
+		});
 	}
 
 
 	/**
 	 * Adds a new trackpoint to the log-buffer. Trackpoints will be flushed to db if defined batch size is reached or a flush is called manually.
 	 *
-	 * @param trackpoint Trackpoint to be added
-	 * @see Trackpoint
+	 * @see ResultSink#addTrackpoint
 	 */
-	public void addTrackpoint(Trackpoint trackpoint) {
-		if (buffer_trackpoints.size() == BATCH_SIZE) {
+	@Override
+	public void addTrackpoint(int car_id, int shift_count, int track_id, long time, String status, double lat, double lon,
+							  float distance, float soc, int facility_id) {
+		if (buffer_trackpoints.isFull()) {
 			flushTrackpoints();
 		}
-		buffer_trackpoints.add(trackpoint);
+		buffer_trackpoints.add(car_id, shift_count, track_id, time, status, lat, lon, distance, soc, facility_id);
+		checkFlushInterval();
 	}
 
 
 	/**
-	 * Flushes trackpoints from buffer to db
+	 * Hands the buffered trackpoints over to the writer
 	 */
 	private void flushTrackpoints() {
-		connect();
-		try {
-			PreparedStatement ps = connection.prepareStatement(String.format("INSERT INTO %s VALUES (?,?,?,?,?,?,?,?,?,?)", TABLE_TRACKPOINT));
-			for (Trackpoint trackpoint : buffer_trackpoints) {
-				ps.setInt(1, trackpoint.getCar_id());
-				ps.setInt(2, trackpoint.getShiftCount());
-				ps.setInt(3, trackpoint.getTrack_id());
-				ps.setLong(4, trackpoint.getTime());
-				ps.setString(5, trackpoint.getStatus());
-				ps.setInt(6, trackpoint.getFacilityId());
-				ps.setDouble(7, trackpoint.getPosition().getLat());
-				ps.setDouble(8, trackpoint.getPosition().getLon());
-				ps.setFloat(9, trackpoint.getDistance());
-				ps.setFloat(10, trackpoint.getSoc());
-				ps.addBatch();
+		if (buffer_trackpoints.isEmpty()) return;
+		TrackpointBuffer batch = buffer_trackpoints;
+		buffer_trackpoints = pool_trackpoints.take();
+		writer.submit(() -> {
+			writeTrackpoints(batch);
+			pool_trackpoints.release(batch);
+		});
+	}
 
-			}
-			ps.executeBatch();
-			connection.commit();
-			ps.close();
-			buffer_trackpoints.clear();
-		} catch (SQLException e) {
-			e.printStackTrace();
+	/**
+	 * Writes trackpoints to db, executed by the writer
+	 *
+	 * @param batch trackpoints to be written
+	 * @throws SQLException if the batch can't be written
+	 */
+	private void writeTrackpoints(TrackpointBuffer batch) throws SQLException {
+		writeCodes(statuses, TABLE_CODE_STATUS);
+		PreparedStatement ps = prepare(String.format("INSERT INTO %s VALUES (?,?,?,?,?,?,?,?,?,?)", TABLE_TRACKPOINT_DATA));
+		for (int row = 0; row < batch.size(); row++) {
+			ps.setInt(1, batch.car_id[row]);
+			ps.setInt(2, batch.shift_count[row]);
+			ps.setInt(3, batch.track_id[row]);
+			ps.setLong(4, batch.time[row]);
+			ps.setInt(5, batch.status[row] & 0xFF);
+			ps.setInt(6, batch.facility_id[row]);
+			ps.setLong(7, Math.round(batch.lat[row] * COORDINATE_SCALE));
+			ps.setLong(8, Math.round(batch.lon[row] * COORDINATE_SCALE));
+			ps.setFloat(9, batch.distance[row]);
+			ps.setFloat(10, batch.soc[row]);
+			ps.addBatch();
+
+		}
+		ps.executeBatch();
+	}
+
+	/**
+	 * Writes the codes, which were assigned since the last call, to the lookup table. Every code is written once,
+	 * before the first row using it. Executed by the writer, or during the initialization.
+	 *
+	 * @param codes    codes of a text column
+	 * @param table    lookup table of the codes
+	 * @throws SQLException if the codes can't be written
+	 */
+	private void writeCodes(CodeTable codes, String table) throws SQLException {
+		String[] names = codes.names();
+		if (codes.persisted == names.length) return;
+		PreparedStatement ps = prepare(String.format("INSERT INTO %s VALUES (?,?)", table));
+		for (int code = codes.persisted; code < names.length; code++) {
+			ps.setInt(1, code);
+			ps.setString(2, names[code]);
+			ps.addBatch();
 		}
-		closeConnection();
+		ps.executeBatch();
+		codes.persisted = names.length;
 	}
 
 	/**
 	 * Adds a new FacilityStat to the log-buffer. FacilityStats will be flushed to db if defined batch size is reached or a flush is called manually.
 	 *
-	 * @param facilityStats FacilityStats to be added
-	 * @see FacilityStats
+	 * @see ResultSink#addFacilityStats
 	 */
-	public void addFacilityStats(FacilityStats facilityStats) {
-		if (buffer_facilityStats.size() == BATCH_SIZE) {
+	@Override
+	public void addFacilityStats(int facility_id, int car_id, long time, String action, int connected_cars, int waiting_cars) {
+		if (buffer_facilityStats.isFull()) {
 			flushFacilityStats();
 		}
-		buffer_facilityStats.add(facilityStats);
+		buffer_facilityStats.add(facility_id, car_id, time, action, connected_cars, waiting_cars);
+		checkFlushInterval();
 	}
 
 
 	/**
-	 * Flushes FacilityStats from buffer to db
+	 * Hands the buffered FacilityStats over to the writer
 	 */
 	private void flushFacilityStats() {
-		connect();
-		try {
-			PreparedStatement ps = connection.prepareStatement(String.format("INSERT INTO %s VALUES (?,?,?,?,?,?)", TABLE_FACILITY_STATS));
-			for (FacilityStats facilityStats : buffer_facilityStats) {
-				ps.setInt(1, facilityStats.getFacilityID());
-				ps.setInt(2, facilityStats.getCarID());
-				ps.setLong(3, facilityStats.getTime());
-				ps.setString(4, facilityStats.getAction());
-				ps.setInt(5, facilityStats.getConnected_cars());
-				ps.setInt(6, facilityStats.getWaitingCars());
-				ps.addBatch();
+		if (buffer_facilityStats.isEmpty()) return;
+		FacilityStatsBuffer batch = buffer_facilityStats;
+		buffer_facilityStats = pool_facilityStats.take();
+		writer.submit(() -> {
+			writeFacilityStats(batch);
+			pool_facilityStats.release(batch);
+		});
+	}
+
+	/**
+	 * Writes FacilityStats to db, executed by the writer
+	 *
+	 * @param batch FacilityStats to be written
+	 * @throws SQLException if the batch can't be written
+	 */
+	private void writeFacilityStats(FacilityStatsBuffer batch) throws SQLException {
+		writeCodes(actions, TABLE_CODE_ACTION);
+		PreparedStatement ps = prepare(String.format("INSERT INTO %s VALUES (?,?,?,?,?,?)", TABLE_FACILITY_STATS_DATA));
+		for (int row = 0; row < batch.size(); row++) {
+			ps.setInt(1, batch.facility_id[row]);
+			ps.setInt(2, batch.car_id[row]);
+			ps.setLong(3, batch.time[row]);
+			ps.setInt(4, batch.action[row] & 0xFF);
+			ps.setInt(5, batch.connected_cars[row]);
+			ps.setInt(6, batch.waiting_cars[row]);
+			ps.addBatch();
 
-			}
-			ps.executeBatch();
-			connection.commit();
-			ps.close();
-			buffer_facilityStats.clear();
-		} catch (SQLException e) {
-			e.printStackTrace();
 		}
-		closeConnection();
+		ps.executeBatch();
 	}
 
 	/**
 	 * Adds a new energyStats to the log-buffer. EnergyStats will be flushed to db if defined batch size is reached or a flush is called manually.
 	 *
-	 * @param energyStats EnergyStats to be added
-	 * @see EnergyStats
+	 * @see ResultSink#addEnergyStats
 	 */
-	public void addEnergyStats(EnergyStats energyStats) {
-		if (buffer_energyStats.size() == BATCH_SIZE) {
+	@Override
+	public void addEnergyStats(int facility_id, int car_id, long time, float power, float energy, String connector, float p_max) {
+		if (buffer_energyStats.isFull()) {
 			flushEnergyStats();
 		}
-		buffer_energyStats.add(energyStats);
+		buffer_energyStats.add(facility_id, car_id, time, power, energy, connector, p_max);
+		checkFlushInterval();
 	}
 
 	/**
-	 * Flushes EnergyStats from buffer to db
+	 * Hands the buffered EnergyStats over to the writer
 	 */
 	private void flushEnergyStats() {
-		connect();
-		try {
-			PreparedStatement ps = connection.prepareStatement(String.format("INSERT INTO %s VALUES (?,?,?,?,?,?,?)", TABLE_ENERGY_STATS));
-			for (EnergyStats energyStats : buffer_energyStats) {
-				ps.setInt(1, energyStats.getFacilityID());
-				ps.setInt(2, energyStats.getCarID());
-				ps.setLong(3, energyStats.getTime());
-				ps.setFloat(4, energyStats.getEnergy());
-				ps.setFloat(5, energyStats.getPower());
-				ps.setString(6, energyStats.getConnector());
-				ps.setFloat(7, energyStats.getPMax());
-				ps.addBatch();
-			}
-			ps.executeBatch();
-			connection.commit();
-			ps.close();
-			buffer_energyStats.clear();
-		} catch (SQLException e) {
-			e.printStackTrace();
+		if (buffer_energyStats.isEmpty()) return;
+		EnergyStatsBuffer batch = buffer_energyStats;
+		buffer_energyStats = pool_energyStats.take();
+		writer.submit(() -> {
+			writeEnergyStats(batch);
+			pool_energyStats.release(batch);
+		});
+	}
+
+	/**
+	 * Writes EnergyStats to db, executed by the writer
+	 *
+	 * @param batch EnergyStats to be written
+	 * @throws SQLException if the batch can't be written
+	 */
+	private void writeEnergyStats(EnergyStatsBuffer batch) throws SQLException {
+		writeCodes(connectors, TABLE_CODE_CONNECTOR);
+		PreparedStatement ps = prepare(String.format("INSERT INTO %s VALUES (?,?,?,?,?,?,?)", TABLE_ENERGY_STATS_DATA));
+		for (int row = 0; row < batch.size(); row++) {
+			ps.setInt(1, batch.facility_id[row]);
+			ps.setInt(2, batch.car_id[row]);
+			ps.setLong(3, batch.time[row]);
+			ps.setFloat(4, batch.energy[row]);
+			ps.setFloat(5, batch.power[row]);
+			ps.setInt(6, batch.connector[row] & 0xFF);
+			ps.setFloat(7, batch.p_max[row]);
+			ps.addBatch();
 		}
-		closeConnection();
+		ps.executeBatch();
+	}
 
+	/**
+	 * Adds a new Leg to the log-buffer. Legs will be flushed to db if defined batch size is reached or a flush is called manually.
+	 *
+	 * @param leg Leg to be added
+	 * @see Leg
+	 * @see LegExporter
+	 */
+	@Override
+	public void addLeg(Leg leg) {
+		if (buffer_legs.size() == BATCH_SIZE) {
+			flushLegs();
+		}
+		buffer_legs.add(leg);
+		checkFlushInterval();
 	}
 
 	/**
-	 * Adds a new DeniedRide to the log-buffer. DeniedRides will be flushed to db if defined batch size is reached or a flush is called manually.
+	 * Hands the buffered Legs over to the writer
+	 */
+	private void flushLegs() {
+		if (buffer_legs.isEmpty()) return;
+		List<Leg> batch = buffer_legs;
+		buffer_legs = new ArrayList<>(BATCH_SIZE);
+		writer.submit(() -> writeLegs(batch));
+	}
+
+	/**
+	 * Writes Legs to db, executed by the writer
 	 *
-	 * @param deniedRide DeniedRide to be added
-	 * @see DeniedRide
+	 * @param batch Legs to be written
+	 * @throws SQLException if the batch can't be written
 	 */
-	public void addDeniedRide(DeniedRide deniedRide) {
-		if (buffer_deniedRides.size() == BATCH_SIZE) {
-			flushDeniedRides();
+	private void writeLegs(List<Leg> batch) throws SQLException {
+		PreparedStatement ps = prepare(String.format("INSERT INTO %s VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?)", TABLE_LEG));
+		for (Leg leg : batch) {
+			ps.setInt(1, leg.getCarID());
+			ps.setInt(2, leg.getShiftCount());
+			ps.setInt(3, leg.getTrackID());
+			ps.setString(4, leg.getStatus());
+			ps.setInt(5, leg.getFacilityID());
+			ps.setLong(6, leg.getStart());
+			ps.setLong(7, leg.getEnd());
+			ps.setFloat(8, leg.getStartSoc());
+			ps.setFloat(9, leg.getEndSoc());
+			ps.setFloat(10, leg.getDistance());
+			ps.setInt(11, leg.getPoints());
+			ps.setString(12, leg.getPolyline());
+			ps.setString(13, leg.getTimes());
+			ps.addBatch();
 		}
-		buffer_deniedRides.add(deniedRide);
+		ps.executeBatch();
 	}
 
 	/**
-	 * Flushes DeniedRides from buffer to db
+	 * Adds a new ChargingSession to the log-buffer. ChargingSessions will be flushed to db if defined batch size is reached or a flush is called manually.
+	 *
+	 * @param chargingSession ChargingSession to be added
+	 * @see ChargingSession
 	 */
-	private void flushDeniedRides() {
-		connect();
-		try {
-			PreparedStatement ps = connection.prepareStatement(String.format("INSERT INTO %s VALUES (?,?,?,?,?,?)", TABLE_DENIED_RIDES));
-			for (DeniedRide deniedRide : buffer_deniedRides) {
-				ps.setInt(1, deniedRide.getTrack_id());
-				ps.setInt(2, deniedRide.getCar_id());
-				ps.setLong(3, deniedRide.getTime());
-				ps.setDouble(4, deniedRide.getTrack_distance());
-				if (deniedRide.getDistance_to_customer() < 0) {
-					ps.setNull(5, java.sql.Types.REAL);
+	@Override
+	public void addChargingSession(ChargingSession chargingSession) {
+		if (buffer_chargingSessions.size() == BATCH_SIZE) {
+			flushChargingSessions();
+		}
+		buffer_chargingSessions.add(chargingSession);
+		checkFlushInterval();
+	}
+
+	/**
+	 * Hands the buffered ChargingSessions over to the writer
+	 */
+	private void flushChargingSessions() {
+		if (buffer_chargingSessions.isEmpty()) return;
+		List<ChargingSession> batch = buffer_chargingSessions;
+		buffer_chargingSessions = new ArrayList<>(BATCH_SIZE);
+		writer.submit(() -> writeChargingSessions(batch));
+	}
+
+	/**
+	 * Writes ChargingSessions to db, executed by the writer
+	 *
+	 * @param batch ChargingSessions to be written
+	 * @throws SQLException if the batch can't be written
+	 */
+	private void writeChargingSessions(List<ChargingSession> batch) throws SQLException {
+		PreparedStatement ps = prepare(String.format("INSERT INTO %s VALUES (?,?,?,?,?,?,?,?,?)", TABLE_CHARGING_SESSION));
+		for (ChargingSession chargingSession : batch) {
+			ps.setInt(1, chargingSession.getFacilityID());
+			ps.setInt(2, chargingSession.getCarID());
+			ps.setLong(3, chargingSession.getStart());
+			ps.setLong(4, chargingSession.getEnd());
+			ps.setFloat(5, chargingSession.getEnergy());
+			ps.setFloat(6, chargingSession.getAveragePower());
+			ps.setFloat(7, chargingSession.getPeakPower());
+			ps.setString(8, chargingSession.getConnector());
+			ps.setFloat(9, chargingSession.getPMax());
+			ps.addBatch();
+		}
+		ps.executeBatch();
+	}
+
+	/**
+	 * writes the load curves and peaks to the db. Empty buckets of stations and connector types are skipped, the system curve is written completely.
+	 * The peak row of the whole system has no facility id.
+	 *
+	 * @param loadCurve load curves to write
+	 * @see LoadCurve
+	 */
+	@Override
+	public void addLoadCurve(LoadCurve loadCurve) {
+		writer.submit(() -> {
+			long bucketSize = loadCurve.getBucketSize();
+			PreparedStatement ps = prepare(String.format("INSERT INTO %s VALUES (?,?,?)", TABLE_LOAD_CURVE_STATION));
+			for (int row = 0; row < loadCurve.getStationCount(); row++) {
+				for (int bucket = 0; bucket < loadCurve.getBucketCount(); bucket++) {
+					float power = loadCurve.getStationPower(row, bucket);
+					if (power == 0) continue;
+					ps.setInt(1, loadCurve.getStationId(row));
+					ps.setLong(2, bucket * bucketSize);
+					ps.setFloat(3, power);
+					ps.addBatch();
+				}
+			}
+			ps.executeBatch();
+			ps = prepare(String.format("INSERT INTO %s VALUES (?,?,?)", TABLE_LOAD_CURVE_CONNECTOR));
+			for (int type = Connector.TYPE_SCHUKO; type <= Connector.TYPE_SUPERCHARGER; type++) {
+				for (int bucket = 0; bucket < loadCurve.getBucketCount(); bucket++) {
+					float power = loadCurve.getConnectorPower(type, bucket);
+					if (power == 0) continue;
+					ps.setString(1, Connector.getTypeName(type));
+					ps.setLong(2, bucket * bucketSize);
+					ps.setFloat(3, power);
+					ps.addBatch();
+				}
+			}
+			ps.executeBatch();
+			ps = prepare(String.format("INSERT INTO %s VALUES (?,?)", TABLE_LOAD_CURVE_SYSTEM));
+			for (int bucket = 0; bucket < loadCurve.getBucketCount(); bucket++) {
+				ps.setLong(1, bucket * bucketSize);
+				ps.setFloat(2, loadCurve.getSystemPower(bucket));
+				ps.addBatch();
+			}
+			ps.executeBatch();
+			ps = prepare(String.format("INSERT INTO %s VALUES (?,?,?,?,?)", TABLE_LOAD_PEAK));
+			for (int row = 0; row < loadCurve.getStationCount(); row++) {
+				int peak = loadCurve.getStationPeakBucket(row);
+				ps.setInt(1, loadCurve.getStationId(row));
+				if (peak < 0) {
+					ps.setNull(2, Types.INTEGER);
 				} else {
-					ps.setDouble(5, deniedRide.getDistance_to_customer());
+					ps.setLong(2, peak * bucketSize);
 				}
-				ps.setString(6, deniedRide.getReason());
+				ps.setFloat(3, peak < 0 ? 0 : loadCurve.getStationPower(row, peak));
+				ps.setFloat(4, loadCurve.getInstalledPower(row));
+				ps.setFloat(5, loadCurve.getStationCoincidenceFactor(row));
 				ps.addBatch();
 			}
+			int peak = loadCurve.getSystemPeakBucket();
+			float installed = 0;
+			for (int row = 0; row < loadCurve.getStationCount(); row++) {
+				installed += loadCurve.getInstalledPower(row);
+			}
+			ps.setNull(1, Types.INTEGER);
+			if (peak < 0) {
+				ps.setNull(2, Types.INTEGER);
+			} else {
+				ps.setLong(2, peak * bucketSize);
+			}
+			ps.setFloat(3, peak < 0 ? 0 : loadCurve.getSystemPower(peak));
+			ps.setFloat(4, installed);
+			ps.setFloat(5, loadCurve.getSystemCoincidenceFactor());
+			ps.addBatch();
 			ps.executeBatch();
-			connection.commit();
-			ps.close();
-			buffer_deniedRides.clear();
-		} catch (SQLException e) {
-			e.printStackTrace();
+		});
+	}
+
+	/**
+	 * Adds a new DeniedRide to the log-buffer. DeniedRides will be flushed to db if defined batch size is reached or a flush is called manually.
+	 *
+	 * @see ResultSink#addDeniedRide
+	 */
+	@Override
+	public void addDeniedRide(int car_id, int track_id, long time, double track_distance, double distance_to_customer, String reason) {
+		if (buffer_deniedRides.isFull()) {
+			flushDeniedRides();
 		}
-		closeConnection();
+		buffer_deniedRides.add(car_id, track_id, time, track_distance, distance_to_customer, reason);
+		checkFlushInterval();
+	}
 
+	/**
+	 * Hands the buffered DeniedRides over to the writer
+	 */
+	private void flushDeniedRides() {
+		if (buffer_deniedRides.isEmpty()) return;
+		DeniedRideBuffer batch = buffer_deniedRides;
+		buffer_deniedRides = pool_deniedRides.take();
+		writer.submit(() -> {
+			writeDeniedRides(batch);
+			pool_deniedRides.release(batch);
+		});
+	}
+
+	/**
+	 * Writes DeniedRides to db, executed by the writer
+	 *
+	 * @param batch DeniedRides to be written
+	 * @throws SQLException if the batch can't be written
+	 */
+	private void writeDeniedRides(DeniedRideBuffer batch) throws SQLException {
+		writeCodes(reasons, TABLE_CODE_REASON);
+		PreparedStatement ps = prepare(String.format("INSERT INTO %s VALUES (?,?,?,?,?,?)", TABLE_DENIED_RIDES_DATA));
+		for (int row = 0; row < batch.size(); row++) {
+			ps.setInt(1, batch.track_id[row]);
+			ps.setInt(2, batch.car_id[row]);
+			ps.setLong(3, batch.time[row]);
+			ps.setDouble(4, batch.track_distance[row]);
+			if (batch.distance_to_customer[row] < 0) {
+				ps.setNull(5, java.sql.Types.REAL);
+			} else {
+				ps.setDouble(5, batch.distance_to_customer[row]);
+			}
+			ps.setInt(6, batch.reason[row] & 0xFF);
+			ps.addBatch();
+		}
+		ps.executeBatch();
+	}
+
+	/**
+	 * Adds a new DeniedRideSummary to the log-buffer. DeniedRideSummaries will be flushed to db if defined batch size is reached or a flush is called manually.
+	 *
+	 * @param summary DeniedRideSummary to be added
+	 * @see DeniedRideSummary
+	 */
+	@Override
+	public void addDeniedRideSummary(DeniedRideSummary summary) {
+		if (buffer_deniedRideSummaries.size() == BATCH_SIZE) {
+			flushDeniedRideSummaries();
+		}
+		buffer_deniedRideSummaries.add(summary);
+		checkFlushInterval();
+	}
+
+	/**
+	 * Hands the buffered DeniedRideSummaries over to the writer
+	 */
+	private void flushDeniedRideSummaries() {
+		if (buffer_deniedRideSummaries.isEmpty()) return;
+		List<DeniedRideSummary> batch = buffer_deniedRideSummaries;
+		buffer_deniedRideSummaries = new ArrayList<>(BATCH_SIZE);
+		writer.submit(() -> writeDeniedRideSummaries(batch));
+	}
+
+	/**
+	 * Writes DeniedRideSummaries to db, executed by the writer
+	 *
+	 * @param batch DeniedRideSummaries to be written
+	 * @throws SQLException if the batch can't be written
+	 */
+	private void writeDeniedRideSummaries(List<DeniedRideSummary> batch) throws SQLException {
+		int nReasons = DeniedRide.REASONS.length;
+		StringBuilder placeholders = new StringBuilder("?,?,?,?,?");
+		for (int i = 0; i < nReasons + 3; i++) {
+			placeholders.append(",?");
+		}
+		PreparedStatement ps = prepare(String.format("INSERT INTO %s VALUES (%s)", TABLE_DENIED_RIDE_SUMMARY, placeholders));
+		for (DeniedRideSummary summary : batch) {
+			ps.setInt(1, summary.getTrack_id());
+			ps.setLong(2, summary.getTime());
+			ps.setDouble(3, summary.getTrack_distance());
+			ps.setBoolean(4, summary.isServed());
+			ps.setInt(5, summary.getCandidates());
+			for (int i = 0; i < nReasons; i++) {
+				ps.setInt(6 + i, summary.getReasonCount(i));
+			}
+			if (summary.getClosest_car_id() == 0) {
+				ps.setNull(6 + nReasons, java.sql.Types.INTEGER);
+				ps.setNull(7 + nReasons, java.sql.Types.REAL);
+				ps.setNull(8 + nReasons, java.sql.Types.CHAR);
+			} else {
+				ps.setInt(6 + nReasons, summary.getClosest_car_id());
+				ps.setFloat(7 + nReasons, summary.getClosest_car_distance());
+				ps.setString(8 + nReasons, summary.getClosest_car_reason());
+			}
+			ps.addBatch();
+		}
+		ps.executeBatch();
+	}
+
+	/**
+	 * writes the hourly histogram of denied rides to the db. Empty cells are skipped.
+	 *
+	 * @param hourly number of denied rides [hour][reason code], see {@link DeniedRide#REASONS}
+	 */
+	@Override
+	public void addDeniedRidesHourly(int[][] hourly) {
+		writer.submit(() -> {
+			PreparedStatement ps = prepare(String.format("INSERT INTO %s VALUES (?,?,?)", TABLE_DENIED_RIDES_HOURLY));
+			for (int hour = 0; hour < hourly.length; hour++) {
+				for (int reason = 0; reason < hourly[hour].length; reason++) {
+					if (hourly[hour][reason] == 0) continue;
+					ps.setInt(1, hour);
+					ps.setString(2, DeniedRide.REASONS[reason]);
+					ps.setInt(3, hourly[hour][reason]);
+					ps.addBatch();
+				}
+			}
+			ps.executeBatch();
+		});
 	}
 
 	/**
@@ -476,47 +1034,151 @@ public class DBLog {
 	 * @param controllerStats ControllerStats to be added
 	 * @see ControllerStats
 	 */
+	@Override
 	public void addControllerStats(ControllerStats controllerStats) {
 		if (buffer_controllerStats.size() == BATCH_SIZE) {
 			flushControllerStats();
 		}
 		buffer_controllerStats.add(controllerStats);
+		checkFlushInterval();
 	}
 
 
 	/**
-	 * Flushes ControllerStats from buffer to db
+	 * Hands the buffered ControllerStats over to the writer
 	 */
 	private void flushControllerStats() {
-		connect();
-		try {
-			PreparedStatement ps = connection.prepareStatement(String.format("INSERT INTO %s VALUES (?,?,?)", TABLE_CONTROLLER));
-			for (ControllerStats controllerStats : buffer_controllerStats) {
-				ps.setLong(1, controllerStats.getTime());
-				ps.setString(2, controllerStats.getAction());
-				ps.setInt(3, controllerStats.getN());
-				ps.addBatch();
+		if (buffer_controllerStats.isEmpty()) return;
+		List<ControllerStats> batch = buffer_controllerStats;
+		buffer_controllerStats = new ArrayList<>(BATCH_SIZE);
+		writer.submit(() -> writeControllerStats(batch));
+	}
+
+	/**
+	 * Writes ControllerStats to db, executed by the writer
+	 *
+	 * @param batch ControllerStats to be written
+	 * @throws SQLException if the batch can't be written
+	 */
+	private void writeControllerStats(List<ControllerStats> batch) throws SQLException {
+		PreparedStatement ps = prepare(String.format("INSERT INTO %s VALUES (?,?,?)", TABLE_CONTROLLER));
+		for (ControllerStats controllerStats : batch) {
+			ps.setLong(1, controllerStats.getTime());
+			ps.setString(2, controllerStats.getAction());
+			ps.setInt(3, controllerStats.getN());
+			ps.addBatch();
+		}
+		ps.executeBatch();
+	}
+
+	/**
+	 * Adds a new Kpi to the log-buffer. Kpis will be flushed to db if defined batch size is reached or a flush is called manually.
+	 *
+	 * @param kpi Kpi to be added
+	 * @see KpiAccounting
+	 */
+	@Override
+	public void addKpi(Kpi kpi) {
+		if (buffer_kpis.size() == BATCH_SIZE) {
+			flushKpis();
+		}
+		buffer_kpis.add(kpi);
+	}
+
+	/**
+	 * Hands the buffered Kpis over to the writer
+	 */
+	private void flushKpis() {
+		if (buffer_kpis.isEmpty()) return;
+		List<Kpi> batch = buffer_kpis;
+		buffer_kpis = new ArrayList<>(BATCH_SIZE);
+		writer.submit(() -> writeKpis(batch));
+	}
+
+	/**
+	 * Writes Kpis to db, executed by the writer. KPIs of the whole run have no hour, KPIs of the whole fleet have no facility id.
+	 *
+	 * @param batch Kpis to be written
+	 * @throws SQLException if the batch can't be written
+	 */
+	private void writeKpis(List<Kpi> batch) throws SQLException {
+		PreparedStatement ps = prepare(String.format("INSERT INTO %s VALUES (?,?,?,?)", TABLE_KPI));
+		for (Kpi kpi : batch) {
+			if (kpi.getHour() == KpiAccounting.HOUR_TOTAL) {
+				ps.setNull(1, Types.INTEGER);
+			} else {
+				ps.setInt(1, kpi.getHour());
 			}
-			ps.executeBatch();
-			connection.commit();
-			ps.close();
-			buffer_controllerStats.clear();
-		} catch (SQLException e) {
-			e.printStackTrace();
+			if (kpi.getFacilityID() == KpiAccounting.FLEET) {
+				ps.setNull(2, Types.INTEGER);
+			} else {
+				ps.setInt(2, kpi.getFacilityID());
+			}
+			ps.setString(3, kpi.getName());
+			ps.setDouble(4, kpi.getValue());
+			ps.addBatch();
 		}
-		closeConnection();
+		ps.executeBatch();
 	}
 
 
 	/**
 	 * Flush all buffers to db
 	 */
+	@Override
 	public void flush() {
 		flushFacilityStats();
 		flushTrackpoints();
+		flushLegs();
 		flushEnergyStats();
+		flushChargingSessions();
 		flushDeniedRides();
+		flushDeniedRideSummaries();
 		flushControllerStats();
+		flushKpis();
+		nextFlush = System.currentTimeMillis() + flushInterval;
+	}
+
+	/**
+	 * Flushes all buffers, waits until the writer has committed everything, closes the connection to the sqlite database and finalizes it.
+	 * Call this method once at the end of the simulation, the DBLog can't be used afterwards.
+	 */
+	@Override
+	public void close() {
+		try {
+			flush();
+			writer.close();
+		} finally {
+			closeConnection();
+		}
+		DBFinalizer.finalizeDatabase(path, finalizeMode);
+	}
+
+	/**
+	 * Flushes all buffers, if the flush interval has passed since the last flush. Keeps the results on disk reasonably up to date,
+	 * even if some buffers fill slowly.
+	 */
+	private void checkFlushInterval() {
+		if (flushInterval > 0 && System.currentTimeMillis() >= nextFlush) {
+			flush();
+		}
+	}
+
+	/**
+	 * Returns the prepared statement for the given sql. Statements are prepared once and reused for every flush.
+	 * Call this method only from write tasks, which are executed by the writer.
+	 *
+	 * @param sql sql of the statement
+	 * @return prepared statement
+	 * @throws SQLException if the statement can't be prepared
+	 */
+	private PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement ps = statements.get(sql);
+		if (ps == null) {
+			ps = connection.prepareStatement(sql);
+			statements.put(sql, ps);
+		}
+		return ps;
 	}
 
 	/**
@@ -524,6 +1186,10 @@ public class DBLog {
 	 */
 	private void closeConnection() {
 		try {
+			for (PreparedStatement ps : statements.values()) {
+				ps.close();
+			}
+			statements.clear();
 			connection.close();
 		} catch (SQLException e) {
 			e.printStackTrace();
@@ -533,7 +1199,7 @@ public class DBLog {
 	}
 
 	/**
-	 * connect to sqlite database
+	 * connect to sqlite database. The connection is kept open for the whole simulation run.
 	 */
 	private void connect() {
 		if (connection == null) {
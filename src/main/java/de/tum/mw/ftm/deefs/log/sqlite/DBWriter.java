@@ -0,0 +1,159 @@
+package de.tum.mw.ftm.deefs.log.sqlite;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes batches of log data to the sqlite database on a background thread, so the simulation and the output I/O overlap.
+ * <p> The simulation thread submits write tasks to a bounded queue. The writer thread executes the queued tasks and commits them together in large transactions.
+ * If the writer falls behind and the queue is full, the simulation thread waits until there is space again (backpressure),
+ * so the memory used for pending results stays bounded.
+ * <p> In synchronous mode every task is executed and committed directly on the calling thread.
+ * <p> Only the writer uses the connection after it was created, so tasks must not be executed anywhere else.
+ * <p> A failed write stops the writer. The error is thrown on the simulation thread by the next {@link #submit(Task)} or by {@link #close()},
+ * so the run fails instead of silently losing results.
+ *
+ * @see DBLog
+ */
+class DBWriter {
+
+	private static final int MAX_TASKS_PER_TRANSACTION = 64;    // commit at least after this number of tasks, even if more are queued
+	private static final Task CLOSE = () -> {
+	};    // marks the end of the task stream
+
+	private final Connection connection;
+	private final BlockingQueue<Task> queue;    // pending tasks, null in synchronous mode
+	private final Thread thread;                // writer thread, null in synchronous mode
+	private volatile Throwable failure = null;  // error which stopped the writer thread
+	private int waits = 0;                      // number of times the simulation thread waited for the writer
+
+
+	/**
+	 * Creates a new writer and starts its thread
+	 *
+	 * @param connection connection the tasks write to
+	 * @param capacity   max. number of pending tasks
+	 * @param async      <b>true</b> to write on a background thread, <b>false</b> to write on the calling thread
+	 */
+	DBWriter(Connection connection, int capacity, boolean async) {
+		this.connection = connection;
+		if (async) {
+			this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+			this.thread = new Thread(this::work, "DBWriter");
+			this.thread.setDaemon(true);
+			this.thread.start();
+		} else {
+			this.queue = null;
+			this.thread = null;
+		}
+	}
+
+	/**
+	 * Submits a task. Waits if the queue is full.
+	 *
+	 * @param task task to be executed by the writer
+	 */
+	void submit(Task task) {
+		checkFailure();
+		if (thread == null) {
+			execute(task);
+			commit();
+			return;
+		}
+		try {
+			if (!queue.offer(task)) {
+				waits++;
+				while (!queue.offer(task, 1, TimeUnit.SECONDS)) {
+					checkFailure();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for the DBWriter", e);
+		}
+	}
+
+	/**
+	 * Waits until all submitted tasks are written and committed, and stops the writer thread.
+	 */
+	void close() {
+		if (thread == null) return;
+		submit(CLOSE);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for the DBWriter", e);
+		}
+		checkFailure();
+		if (waits > 0) {
+			System.out.println("Simulation waited " + waits + " times for the result writer");
+		}
+	}
+
+	/**
+	 * Main loop of the writer thread. Takes all available tasks and commits them together, up to {@value #MAX_TASKS_PER_TRANSACTION} tasks per transaction.
+	 */
+	private void work() {
+		try {
+			while (true) {
+				Task task = queue.take();
+				boolean closing = false;
+				int tasks = 0;
+				do {
+					if (task == CLOSE) {
+						closing = true;
+						break;
+					}
+					execute(task);
+				} while (++tasks < MAX_TASKS_PER_TRANSACTION && (task = queue.poll()) != null);
+				commit();
+				if (closing) return;
+			}
+		} catch (Throwable t) {
+			failure = t;
+		}
+	}
+
+	/**
+	 * @param task task to execute
+	 * @throws RuntimeException if the task fails
+	 */
+	private void execute(Task task) {
+		try {
+			task.write();
+		} catch (SQLException e) {
+			throw new RuntimeException("Error while writing results", e);
+		}
+	}
+
+	/**
+	 * @throws RuntimeException if the commit fails
+	 */
+	private void commit() {
+		try {
+			connection.commit();
+		} catch (SQLException e) {
+			throw new RuntimeException("Error while committing results", e);
+		}
+	}
+
+	/**
+	 * Throws the error which stopped the writer thread, if any
+	 */
+	private void checkFailure() {
+		if (failure != null) {
+			throw new RuntimeException("Error in DBWriter", failure);
+		}
+	}
+
+	/**
+	 * Write task, executed on the writer thread
+	 */
+	interface Task {
+		void write() throws SQLException;
+	}
+}
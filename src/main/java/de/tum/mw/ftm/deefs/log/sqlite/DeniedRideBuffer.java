@@ -0,0 +1,51 @@
+package de.tum.mw.ftm.deefs.log.sqlite;
+
+/**
+ * Struct of arrays buffer for DeniedRides
+ *
+ * @see de.tum.mw.ftm.deefs.log.ResultSink#addDeniedRide
+ */
+class DeniedRideBuffer extends RecordBuffer {
+
+	final int[] car_id;
+	final int[] track_id;
+	final long[] time;
+	final double[] track_distance;
+	final double[] distance_to_customer;    // negative if not calculated
+	final byte[] reason;                    // see reasons
+	private final CodeTable reasons;
+
+
+	/**
+	 * @param capacity max. number of rows
+	 * @param reasons  codes of the reasons, shared by all buffers of the table
+	 */
+	DeniedRideBuffer(int capacity, CodeTable reasons) {
+		super(capacity);
+		this.reasons = reasons;
+		car_id = new int[capacity];
+		track_id = new int[capacity];
+		time = new long[capacity];
+		track_distance = new double[capacity];
+		distance_to_customer = new double[capacity];
+		reason = new byte[capacity];
+	}
+
+	void add(int car_id, int track_id, long time, double track_distance, double distance_to_customer, String reason) {
+		int row = size++;
+		this.car_id[row] = car_id;
+		this.track_id[row] = track_id;
+		this.time[row] = time;
+		this.track_distance[row] = track_distance;
+		this.distance_to_customer[row] = distance_to_customer;
+		this.reason[row] = reasons.encode(reason);
+	}
+
+	/**
+	 * @param row row index
+	 * @return reason of the row
+	 */
+	String getReason(int row) {
+		return reasons.decode(reason[row]);
+	}
+}
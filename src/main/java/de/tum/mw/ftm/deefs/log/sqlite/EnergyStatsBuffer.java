@@ -0,0 +1,54 @@
+package de.tum.mw.ftm.deefs.log.sqlite;
+
+/**
+ * Struct of arrays buffer for EnergyStats
+ *
+ * @see de.tum.mw.ftm.deefs.log.ResultSink#addEnergyStats
+ */
+class EnergyStatsBuffer extends RecordBuffer {
+
+	final int[] facility_id;
+	final int[] car_id;
+	final long[] time;
+	final float[] power;
+	final float[] energy;
+	final byte[] connector;     // see connectors
+	final float[] p_max;
+	private final CodeTable connectors;
+
+
+	/**
+	 * @param capacity   max. number of rows
+	 * @param connectors codes of the connector types, shared by all buffers of the table
+	 */
+	EnergyStatsBuffer(int capacity, CodeTable connectors) {
+		super(capacity);
+		this.connectors = connectors;
+		facility_id = new int[capacity];
+		car_id = new int[capacity];
+		time = new long[capacity];
+		power = new float[capacity];
+		energy = new float[capacity];
+		connector = new byte[capacity];
+		p_max = new float[capacity];
+	}
+
+	void add(int facility_id, int car_id, long time, float power, float energy, String connector, float p_max) {
+		int row = size++;
+		this.facility_id[row] = facility_id;
+		this.car_id[row] = car_id;
+		this.time[row] = time;
+		this.power[row] = power;
+		this.energy[row] = energy;
+		this.connector[row] = connectors.encode(connector);
+		this.p_max[row] = p_max;
+	}
+
+	/**
+	 * @param row row index
+	 * @return connector type of the row
+	 */
+	String getConnector(int row) {
+		return connectors.decode(connector[row]);
+	}
+}
@@ -0,0 +1,51 @@
+package de.tum.mw.ftm.deefs.log.sqlite;
+
+/**
+ * Struct of arrays buffer for FacilityStats
+ *
+ * @see de.tum.mw.ftm.deefs.log.ResultSink#addFacilityStats
+ */
+class FacilityStatsBuffer extends RecordBuffer {
+
+	final int[] facility_id;
+	final int[] car_id;
+	final long[] time;
+	final byte[] action;        // see actions
+	final int[] connected_cars;
+	final int[] waiting_cars;
+	private final CodeTable actions;
+
+
+	/**
+	 * @param capacity max. number of rows
+	 * @param actions  codes of the facility actions, shared by all buffers of the table
+	 */
+	FacilityStatsBuffer(int capacity, CodeTable actions) {
+		super(capacity);
+		this.actions = actions;
+		facility_id = new int[capacity];
+		car_id = new int[capacity];
+		time = new long[capacity];
+		action = new byte[capacity];
+		connected_cars = new int[capacity];
+		waiting_cars = new int[capacity];
+	}
+
+	void add(int facility_id, int car_id, long time, String action, int connected_cars, int waiting_cars) {
+		int row = size++;
+		this.facility_id[row] = facility_id;
+		this.car_id[row] = car_id;
+		this.time[row] = time;
+		this.action[row] = actions.encode(action);
+		this.connected_cars[row] = connected_cars;
+		this.waiting_cars[row] = waiting_cars;
+	}
+
+	/**
+	 * @param row row index
+	 * @return action of the row
+	 */
+	String getAction(int row) {
+		return actions.decode(action[row]);
+	}
+}
@@ -0,0 +1,114 @@
+package de.tum.mw.ftm.deefs.log.sqlite;
+
+import de.tum.mw.ftm.deefs.location.Position;
+import de.tum.mw.ftm.deefs.log.Leg;
+import de.tum.mw.ftm.deefs.log.PolylineCodec;
+import de.tum.mw.ftm.deefs.log.columnar.ColumnarReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Expands {@link Leg}s back into trackpoints, see trackpoint policy LEG.
+ * <p> Positions and times are decoded from the leg geometry. The distance of the leg is distributed to the trackpoints
+ * proportional to the distance between their positions, the soc is interpolated linearly over time.
+ * <p> Run this class with the path of a result database or of a leg.col file (and optionally a car id) as arguments
+ * to print the trackpoints as CSV, with the columns of the trackpoint table.
+ */
+public class LegExporter {
+
+	/**
+	 * Receives the expanded trackpoints, the arguments equal {@link de.tum.mw.ftm.deefs.log.ResultSink#addTrackpoint(int, int, int, long, String, double, double, float, float, int)}
+	 */
+	public interface TrackpointConsumer {
+		void accept(int car_id, int shift_count, int track_id, long time, String status, double lat, double lon,
+					float distance, float soc, int facility_id);
+	}
+
+
+	private LegExporter() {
+	}
+
+	/**
+	 * Expands a leg into trackpoints
+	 *
+	 * @param leg      leg to be expanded
+	 * @param consumer receives the trackpoints in their order, e.g. {@code resultSink::addTrackpoint}
+	 */
+	public static void expand(Leg leg, TrackpointConsumer consumer) {
+		double[][] coordinates = PolylineCodec.decodeCoordinates(leg.getPolyline());
+		long[] times = PolylineCodec.decodeTimes(leg.getTimes(), leg.getStart());
+		int points = Math.min(coordinates.length, times.length);
+		double[] distances = new double[points];
+		double sum = 0;
+		for (int i = 1; i < points; i++) {
+			distances[i] = new Position(coordinates[i - 1][0], coordinates[i - 1][1]).calcDist(new Position(coordinates[i][0], coordinates[i][1]));
+			sum += distances[i];
+		}
+		long duration = leg.getEnd() - leg.getStart();
+		for (int i = 0; i < points; i++) {
+			float distance;
+			if (sum > 0) {
+				distance = (float) (distances[i] / sum * leg.getDistance());
+			} else {
+				// no geometry, the whole distance is assigned to the last trackpoint
+				distance = i == points - 1 ? leg.getDistance() : 0;
+			}
+			float soc = duration > 0
+					? leg.getStartSoc() + (leg.getEndSoc() - leg.getStartSoc()) * (times[i] - leg.getStart()) / duration
+					: (i == points - 1 ? leg.getEndSoc() : leg.getStartSoc());
+			consumer.accept(leg.getCarID(), leg.getShiftCount(), leg.getTrackID(), times[i], leg.getStatus(), coordinates[i][0], coordinates[i][1],
+					distance, soc, leg.getFacilityID());
+		}
+	}
+
+	/**
+	 * Prints the expanded legs of a result database or a leg.col file as CSV
+	 *
+	 * @param args path of the result database or leg.col file, optional car id
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: LegExporter <result database | leg.col> [car_id]");
+			return;
+		}
+		Integer car_id = args.length == 2 ? Integer.parseInt(args[1]) : null;
+		PrintStream out = System.out;
+		out.println("car_id,shift_count,track_id,time,status,facility_id,lat,lon,distance,soc");
+		TrackpointConsumer printer = (car, shift, track, time, status, lat, lon, distance, soc, facility) ->
+				out.println(car + "," + shift + "," + track + "," + time + "," + status + "," + facility + "," + lat + "," + lon + "," + distance + "," + soc);
+		try {
+			if (args[0].endsWith(".col")) {
+				try (ColumnarReader reader = new ColumnarReader(new File(args[0]))) {
+					Object[] v;
+					while ((v = reader.next()) != null) {
+						Leg leg = new Leg(((Long) v[0]).intValue(), ((Long) v[1]).intValue(), ((Long) v[2]).intValue(), (String) v[3], ((Long) v[4]).intValue(),
+								(Long) v[5], (Long) v[6], (Float) v[7], (Float) v[8], (Float) v[9], ((Long) v[10]).intValue(), (String) v[11], (String) v[12]);
+						if (car_id == null || leg.getCarID() == car_id) expand(leg, printer);
+					}
+				}
+			} else {
+				Class.forName("org.sqlite.JDBC");
+				try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + args[0])) {
+					PreparedStatement ps = connection.prepareStatement(car_id == null
+							? "SELECT * FROM leg ORDER BY car_id, start_time"
+							: "SELECT * FROM leg WHERE car_id = ? ORDER BY start_time");
+					if (car_id != null) ps.setInt(1, car_id);
+					ResultSet rs = ps.executeQuery();
+					while (rs.next()) {
+						expand(new Leg(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getString(4), rs.getInt(5), rs.getLong(6), rs.getLong(7),
+								rs.getFloat(8), rs.getFloat(9), rs.getFloat(10), rs.getInt(11), rs.getString(12), rs.getString(13)), printer);
+					}
+				}
+			}
+		} catch (IOException | SQLException | ClassNotFoundException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package de.tum.mw.ftm.deefs.log.sqlite;
+
+/**
+ * Fixed size buffer for the rows of one table, stored as one primitive array per column. Buffers are allocated once
+ * and reused after they were written, so adding rows creates no garbage.
+ *
+ * @see BufferPool
+ */
+abstract class RecordBuffer {
+
+	protected final int capacity;   // max. number of rows
+	protected int size = 0;         // actual number of rows
+
+
+	RecordBuffer(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * @return actual number of rows
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return <b>true</b> if the buffer contains no rows
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return <b>true</b> if no more rows can be added
+	 */
+	boolean isFull() {
+		return size == capacity;
+	}
+
+	/**
+	 * Removes all rows. The arrays are kept.
+	 */
+	void clear() {
+		size = 0;
+	}
+}
@@ -0,0 +1,63 @@
+package de.tum.mw.ftm.deefs.log.sqlite;
+
+/**
+ * Struct of arrays buffer for trackpoints
+ *
+ * @see de.tum.mw.ftm.deefs.log.ResultSink#addTrackpoint
+ */
+class TrackpointBuffer extends RecordBuffer {
+
+	final int[] car_id;
+	final int[] shift_count;
+	final int[] track_id;
+	final long[] time;
+	final byte[] status;        // see statuses
+	final double[] lat;
+	final double[] lon;
+	final float[] distance;
+	final float[] soc;
+	final int[] facility_id;
+	private final CodeTable statuses;
+
+
+	/**
+	 * @param capacity max. number of rows
+	 * @param statuses codes of the vehicle states, shared by all buffers of the table
+	 */
+	TrackpointBuffer(int capacity, CodeTable statuses) {
+		super(capacity);
+		this.statuses = statuses;
+		car_id = new int[capacity];
+		shift_count = new int[capacity];
+		track_id = new int[capacity];
+		time = new long[capacity];
+		status = new byte[capacity];
+		lat = new double[capacity];
+		lon = new double[capacity];
+		distance = new float[capacity];
+		soc = new float[capacity];
+		facility_id = new int[capacity];
+	}
+
+	void add(int car_id, int shift_count, int track_id, long time, String status, double lat, double lon, float distance, float soc, int facility_id) {
+		int row = size++;
+		this.car_id[row] = car_id;
+		this.shift_count[row] = shift_count;
+		this.track_id[row] = track_id;
+		this.time[row] = time;
+		this.status[row] = statuses.encode(status);
+		this.lat[row] = lat;
+		this.lon[row] = lon;
+		this.distance[row] = distance;
+		this.soc[row] = soc;
+		this.facility_id[row] = facility_id;
+	}
+
+	/**
+	 * @param row row index
+	 * @return vehicle status of the row
+	 */
+	String getStatus(int row) {
+		return statuses.decode(status[row]);
+	}
+}
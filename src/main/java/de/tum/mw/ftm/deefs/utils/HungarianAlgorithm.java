@@ -0,0 +1,92 @@
+package de.tum.mw.ftm.deefs.utils;
+
+import java.util.Arrays;
+
+/**
+ * Solves the linear assignment problem (minimum cost matching of rows to columns) with the Hungarian algorithm
+ * in O(n<sup>2</sup>m) using row/column potentials.
+ */
+public class HungarianAlgorithm {
+
+	/**
+	 * Finds the assignment of rows to columns with minimal total cost. Each row is assigned to at most one column and vice versa.
+	 * If there are more rows than columns, the surplus rows stay unassigned.
+	 *
+	 * @param cost cost matrix [rows][columns], all rows must have the same length
+	 * @return assigned column for every row or <b>-1</b> if the row is unassigned
+	 */
+	public static int[] solve(double[][] cost) {
+		int n = cost.length;
+		if (n == 0) return new int[0];
+		int m = cost[0].length;
+		if (n > m) {
+			//solve transposed problem, the algorithm requires rows <= columns
+			double[][] transposed = new double[m][n];
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < m; j++) {
+					transposed[j][i] = cost[i][j];
+				}
+			}
+			int[] colToRow = solve(transposed);
+			int[] rowToCol = new int[n];
+			Arrays.fill(rowToCol, -1);
+			for (int j = 0; j < m; j++) {
+				if (colToRow[j] >= 0) rowToCol[colToRow[j]] = j;
+			}
+			return rowToCol;
+		}
+
+		// 1-based arrays as in the classic formulation, index 0 is a virtual row/column
+		double[] u = new double[n + 1];
+		double[] v = new double[m + 1];
+		int[] p = new int[m + 1];    // p[j] row assigned to column j
+		int[] way = new int[m + 1];
+		double[] minv = new double[m + 1];
+		boolean[] used = new boolean[m + 1];
+		for (int i = 1; i <= n; i++) {
+			p[0] = i;
+			int j0 = 0;
+			Arrays.fill(minv, Double.POSITIVE_INFINITY);
+			Arrays.fill(used, false);
+			do {
+				used[j0] = true;
+				int i0 = p[j0];
+				int j1 = 0;
+				double delta = Double.POSITIVE_INFINITY;
+				for (int j = 1; j <= m; j++) {
+					if (!used[j]) {
+						double cur = cost[i0 - 1][j - 1] - u[i0] - v[j];
+						if (cur < minv[j]) {
+							minv[j] = cur;
+							way[j] = j0;
+						}
+						if (minv[j] < delta) {
+							delta = minv[j];
+							j1 = j;
+						}
+					}
+				}
+				for (int j = 0; j <= m; j++) {
+					if (used[j]) {
+						u[p[j]] += delta;
+						v[j] -= delta;
+					} else {
+						minv[j] -= delta;
+					}
+				}
+				j0 = j1;
+			} while (p[j0] != 0);
+			do {
+				int j1 = way[j0];
+				p[j0] = p[j1];
+				j0 = j1;
+			} while (j0 != 0);
+		}
+		int[] rowToCol = new int[n];
+		Arrays.fill(rowToCol, -1);
+		for (int j = 1; j <= m; j++) {
+			if (p[j] != 0) rowToCol[p[j] - 1] = j - 1;
+		}
+		return rowToCol;
+	}
+}
@@ -0,0 +1,122 @@
+package de.tum.mw.ftm.deefs.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * FIFO queue with constant time removal of arbitrary elements and constant time order lookup.
+ * <p> Every element gets a monotonically increasing ticket when it enters the queue. Elements which entered earlier have smaller tickets,
+ * so comparing the tickets of two elements gives their order in the queue without searching it.
+ * Each element can be in the queue only once.
+ *
+ * @param <T> type of the queued elements
+ */
+public class IndexedQueue<T> implements Iterable<T> {
+
+	private final LinkedHashMap<T, Long> tickets;    // queued elements in FIFO order with their tickets
+	private long nextTicket = 0;
+
+
+	/**
+	 * New, empty queue
+	 */
+	public IndexedQueue() {
+		this.tickets = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Adds an element at the end of the queue
+	 *
+	 * @param element element to be added
+	 * @return <b>true</b> if the element was added, <b>false</b> if it was already queued
+	 */
+	public boolean offer(T element) {
+		if (tickets.containsKey(element)) return false;
+		tickets.put(element, nextTicket++);
+		return true;
+	}
+
+	/**
+	 * Removes the first element of the queue
+	 *
+	 * @return first element or <b>null</b> if the queue is empty
+	 */
+	public T poll() {
+		Iterator<Map.Entry<T, Long>> it = tickets.entrySet().iterator();
+		if (!it.hasNext()) return null;
+		T first = it.next().getKey();
+		it.remove();
+		return first;
+	}
+
+	/**
+	 * Removes the given element from the queue
+	 *
+	 * @param element element to be removed
+	 * @return <b>true</b> if the element was queued, <b>false</b> otherwise
+	 */
+	public boolean remove(T element) {
+		return tickets.remove(element) != null;
+	}
+
+	/**
+	 * @param element element to check
+	 * @return <b>true</b> if the element is queued
+	 */
+	public boolean contains(T element) {
+		return tickets.containsKey(element);
+	}
+
+	/**
+	 * Returns the ticket of the given element. Use tickets to compare the order of two queued elements.
+	 *
+	 * @param element queued element
+	 * @return ticket of the element, -1 if the element is not queued
+	 */
+	public long getTicket(T element) {
+		Long ticket = tickets.get(element);
+		return ticket == null ? -1 : ticket;
+	}
+
+	/**
+	 * Returns the actual position of the given element. This method has to count the elements in front, use {@link #getTicket(Object)} to compare positions.
+	 *
+	 * @param element queued element
+	 * @return position of the element (0 is the first), -1 if the element is not queued
+	 */
+	public int getPosition(T element) {
+		long ticket = getTicket(element);
+		if (ticket < 0) return -1;
+		int position = 0;
+		for (long t : tickets.values()) {
+			if (t == ticket) return position;
+			position++;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return number of queued elements
+	 */
+	public int size() {
+		return tickets.size();
+	}
+
+	/**
+	 * @return <b>true</b> if the queue is empty
+	 */
+	public boolean isEmpty() {
+		return tickets.isEmpty();
+	}
+
+	/**
+	 * Iterates the queued elements in FIFO order without copying them. The queue must not be changed while iterating, except by the iterator's remove.
+	 *
+	 * @return iterator over the queued elements
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return tickets.keySet().iterator();
+	}
+}
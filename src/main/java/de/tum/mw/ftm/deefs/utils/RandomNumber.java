@@ -1,22 +1,80 @@
 package de.tum.mw.ftm.deefs.utils;
 
 import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
- * Provides some static methods to generate RandomNumbers
+ * Provides seeded random number streams.
+ * <p> Each scenario owns one root stream, seeded from the configuration (see {@link de.tum.mw.ftm.deefs.Config#RANDOM_SEED}).
+ * Every subsystem which needs random numbers gets its own stream split from the root stream during initialization.
+ * As the split order is fixed, the same seed always gives the same run, and the draws of one subsystem don't shift the draws of another one.
+ * This allows to compare variants of a scenario under identical randomness (common random numbers).
  *
  * @author Michael Wittmann
+ * @see SplittableRandom
  */
 public class RandomNumber {
 
+	private final SplittableRandom random;
+	private final long seed;    // seed of the root stream
+
+
+	/**
+	 * New root stream
+	 *
+	 * @param seed seed of the stream
+	 */
+	public RandomNumber(long seed) {
+		this(new SplittableRandom(seed), seed);
+	}
+
+	private RandomNumber(SplittableRandom random, long seed) {
+		this.random = random;
+		this.seed = seed;
+	}
+
 	/**
 	 * @param min
 	 * @param max
 	 * @return a random Integer value between <b>min</b> and <b>max</b>
+	 * @deprecated not reproducible, use a seeded stream of the scenario and {@link #nextInt(int, int)} instead
 	 */
+	@Deprecated
 	public static int randInt(int min, int max) {
 		Random rand = new Random();
 		int randomNum = rand.nextInt((max - min) + 1) + min;
 		return randomNum;
 	}
+
+	/**
+	 * Splits off a new independent stream, e.g. for a subsystem. Call this method only during initialization to keep the split order fixed.
+	 *
+	 * @return new independent stream
+	 */
+	public RandomNumber split() {
+		return new RandomNumber(random.split(), seed);
+	}
+
+	/**
+	 * @param min
+	 * @param max
+	 * @return a random Integer value between <b>min</b> and <b>max</b> (both inclusive)
+	 */
+	public int nextInt(int min, int max) {
+		return random.nextInt(min, max + 1);
+	}
+
+	/**
+	 * @return a random double value between 0.0 (inclusive) and 1.0 (exclusive)
+	 */
+	public double nextDouble() {
+		return random.nextDouble();
+	}
+
+	/**
+	 * @return seed of the root stream this stream was split from
+	 */
+	public long getSeed() {
+		return seed;
+	}
 }
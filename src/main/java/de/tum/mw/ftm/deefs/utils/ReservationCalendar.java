@@ -0,0 +1,140 @@
+package de.tum.mw.ftm.deefs.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Calendar of time slots booked on a single resource. Every holder can book one slot [from, to) at the same time.
+ * <p> Slots are kept in a tree ordered by their start time, so an overlap check only visits the slots starting before the end of the requested interval.
+ * Overlapping slots are accepted by {@link #put(Object, long, long)}, {@link #book(Object, long, long)} refuses them.
+ *
+ * @param <T> type of the slot holders
+ */
+public class ReservationCalendar<T> {
+
+	private final TreeSet<Slot> slots;          // booked slots ordered by start time
+	private final Map<T, Slot> slotByHolder;    // booked slot of each holder
+	private long sequence = 0;                  // keeps slots with equal start time apart
+
+
+	/**
+	 * New, empty calendar
+	 */
+	public ReservationCalendar() {
+		this.slots = new TreeSet<>();
+		this.slotByHolder = new HashMap<>();
+	}
+
+	/**
+	 * Books a slot if it does not overlap a slot of an other holder. A previous slot of the holder is replaced.
+	 *
+	 * @param holder holder of the slot
+	 * @param from   start of the slot in ms
+	 * @param to     end of the slot in ms
+	 * @return <b>true</b> if the slot was booked, <b>false</b> if it overlaps an other slot
+	 */
+	public boolean book(T holder, long from, long to) {
+		if (!isFree(from, to, holder)) return false;
+		put(holder, from, to);
+		return true;
+	}
+
+	/**
+	 * Books a slot without checking for overlaps. A previous slot of the holder is replaced.
+	 *
+	 * @param holder holder of the slot
+	 * @param from   start of the slot in ms
+	 * @param to     end of the slot in ms
+	 */
+	public void put(T holder, long from, long to) {
+		release(holder);
+		Slot slot = new Slot(holder, from, Math.max(to, from + 1), sequence++);
+		slots.add(slot);
+		slotByHolder.put(holder, slot);
+	}
+
+	/**
+	 * Releases the slot of the given holder
+	 *
+	 * @param holder holder of the slot
+	 * @return <b>true</b> if the holder had booked a slot, <b>false</b> otherwise
+	 */
+	public boolean release(T holder) {
+		Slot slot = slotByHolder.remove(holder);
+		if (slot == null) return false;
+		slots.remove(slot);
+		return true;
+	}
+
+	/**
+	 * Checks if the given interval does not overlap any slot. The slot of the ignored holder is not taken into account.
+	 *
+	 * @param from    start of the interval in ms
+	 * @param to      end of the interval in ms
+	 * @param ignored holder whose slot is ignored, may be <b>null</b>
+	 * @return <b>true</b> if no other slot overlaps the interval
+	 */
+	public boolean isFree(long from, long to, T ignored) {
+		long end = Math.max(to, from + 1);
+		for (Slot slot : slots) {
+			if (slot.from >= end) break;
+			if (slot.to > from && slot.holder != ignored) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param holder holder of the slot
+	 * @return <b>true</b> if the holder has booked a slot
+	 */
+	public boolean contains(T holder) {
+		return slotByHolder.containsKey(holder);
+	}
+
+	/**
+	 * @param holder holder of the slot
+	 * @return end of the holder's slot in ms, -1 if the holder has not booked a slot
+	 */
+	public long getEnd(T holder) {
+		Slot slot = slotByHolder.get(holder);
+		return slot == null ? -1 : slot.to;
+	}
+
+	/**
+	 * @return number of booked slots
+	 */
+	public int size() {
+		return slots.size();
+	}
+
+	/**
+	 * @return <b>true</b> if no slot is booked
+	 */
+	public boolean isEmpty() {
+		return slots.isEmpty();
+	}
+
+	/**
+	 * Booked time slot
+	 */
+	private class Slot implements Comparable<Slot> {
+		private final T holder;
+		private final long from;
+		private final long to;
+		private final long sequence;
+
+		Slot(T holder, long from, long to, long sequence) {
+			this.holder = holder;
+			this.from = from;
+			this.to = to;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Slot o) {
+			int result = Long.compare(from, o.from);
+			return result != 0 ? result : Long.compare(sequence, o.sequence);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package de.tum.mw.ftm.deefs.comparators;
+
+import org.apache.commons.collections.comparators.ComparatorChain;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Differential test of {@link ScoreKeyRanking} against the comparator chains it replaces.
+ * Random candidates are sorted by both implementations, the resulting orders have to be identical, including the order of candidates with equal keys.
+ */
+public class ScoreKeyRankingTest {
+
+	private static final int RUNS = 2000;
+	private static final int MAX_CANDIDATES = 60;
+	private static final int MAX_COMPONENTS = 3;
+
+
+	@Test
+	public void sortedEqualsComparatorChain() {
+		Random random = new Random(42);
+		for (int run = 0; run < RUNS; run++) {
+			boolean[] reversed = randomReversed(random);
+			List<double[]> candidates = randomCandidates(random, reversed.length);
+			ScoreKeyRanking<double[]> ranking = rank(candidates, reversed);
+			List<double[]> expected = new ArrayList<>(candidates);
+			Collections.sort(expected, chain(reversed));
+			assertEquals("run " + run, expected, ranking.sorted());
+		}
+	}
+
+	@Test
+	public void minEqualsComparatorChain() {
+		Random random = new Random(43);
+		for (int run = 0; run < RUNS; run++) {
+			boolean[] reversed = randomReversed(random);
+			List<double[]> candidates = randomCandidates(random, reversed.length);
+			ScoreKeyRanking<double[]> ranking = rank(candidates, reversed);
+			if (candidates.isEmpty()) {
+				assertNull(ranking.min());
+			} else {
+				assertEquals("run " + run, Collections.min(candidates, chain(reversed)), ranking.min());
+			}
+		}
+	}
+
+	@Test
+	public void topEqualsHeadOfSortedChain() {
+		Random random = new Random(44);
+		for (int run = 0; run < RUNS; run++) {
+			boolean[] reversed = randomReversed(random);
+			List<double[]> candidates = randomCandidates(random, reversed.length);
+			int k = random.nextInt(MAX_CANDIDATES + 1);
+			List<double[]> expected = new ArrayList<>(candidates);
+			Collections.sort(expected, chain(reversed));
+			assertEquals("run " + run, expected.subList(0, Math.min(k, expected.size())), rank(candidates, reversed).top(k));
+		}
+	}
+
+	private static boolean[] randomReversed(Random random) {
+		boolean[] reversed = new boolean[1 + random.nextInt(MAX_COMPONENTS)];
+		for (int c = 0; c < reversed.length; c++) {
+			reversed[c] = random.nextBoolean();
+		}
+		return reversed;
+	}
+
+	/**
+	 * Creates candidates whose key is the candidate itself. Half of the runs use few distinct values, so that many keys are equal
+	 * and the later components and the insertion order decide.
+	 */
+	private static List<double[]> randomCandidates(Random random, int components) {
+		boolean ties = random.nextBoolean();
+		int n = random.nextInt(MAX_CANDIDATES + 1);
+		List<double[]> candidates = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			double[] key = new double[components];
+			for (int c = 0; c < components; c++) {
+				key[c] = ties ? random.nextInt(3) : random.nextDouble() * 1000 - 500;
+			}
+			candidates.add(key);
+		}
+		return candidates;
+	}
+
+	private static ScoreKeyRanking<double[]> rank(List<double[]> candidates, boolean[] reversed) {
+		ScoreKeyRanking<double[]> ranking = new ScoreKeyRanking<>(reversed);
+		for (double[] candidate : candidates) {
+			ranking.add(candidate, candidate);
+		}
+		return ranking;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Comparator<double[]> chain(boolean[] reversed) {
+		ComparatorChain chain = new ComparatorChain();
+		for (int c = 0; c < reversed.length; c++) {
+			int component = c;
+			chain.addComparator((Comparator<double[]>) (a, b) -> Double.compare(a[component], b[component]), reversed[c]);
+		}
+		return chain;
+	}
+}
@@ -0,0 +1,169 @@
+package de.tum.mw.ftm.deefs.elements.evConcept;
+
+import de.tum.mw.ftm.deefs.utils.Units;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the tabulated {@link ChargingCurve} with the closed form solution of the UI-charging model and with the numeric step integration
+ * it replaces, for random batteries, charging powers, start SOCs and charging times.
+ */
+public class ChargingCurveTest {
+
+	private static final float[] P_MAX = {2300, 3700, 7400, 11000, 22000, 50000};    // charging powers in W
+
+	private static final int BATTERY_TYPES = 50;
+	private static final int SESSIONS = 200000;
+	private static final int STEP_SESSIONS = 2000;
+	private static final long STEP = 1000;    // step of the numeric integration in ms
+
+
+	@Test
+	public void chargedEnergyMatchesClosedForm() {
+		Random random = new Random(42);
+		double maxDeviation = 0;
+		for (int i = 0; i < SESSIONS; i++) {
+			float p_max = P_MAX[random.nextInt(P_MAX.length)];
+			Battery battery = randomBattery(random);
+			long chargingTime = (long) (random.nextDouble() * 4 * 3600 * 1000);
+			double expected = closedFormSoc(p_max, battery, chargingTime);
+			battery.charge(ChargingCurve.of(p_max, battery).getChargedEnergy(chargingTime, battery));
+			maxDeviation = Math.max(maxDeviation, Math.abs(battery.getSoc() - expected));
+		}
+		assertTrue("max. deviation " + maxDeviation + " % SOC", maxDeviation < 0.01);
+	}
+
+	@Test
+	public void chargedEnergyMatchesStepIntegration() {
+		Random random = new Random(43);
+		double maxDeviation = 0;
+		for (int i = 0; i < STEP_SESSIONS; i++) {
+			float p_max = P_MAX[random.nextInt(P_MAX.length)];
+			Battery battery = randomBattery(random);
+			if (!hasDecay(p_max, battery)) continue;
+			Battery stepped = copy(battery);
+			long chargingTime = (long) (random.nextDouble() * 2 * 3600 * 1000);
+			for (long t = 0; t < chargingTime; t += STEP) {
+				stepped.charge(getEnergyIU(Math.min(STEP, chargingTime - t), p_max, stepped));
+			}
+			battery.charge(ChargingCurve.of(p_max, battery).getChargedEnergy(chargingTime, battery));
+			maxDeviation = Math.max(maxDeviation, Math.abs(battery.getSoc() - stepped.getSoc()));
+		}
+		assertTrue("max. deviation " + maxDeviation + " % SOC", maxDeviation < 0.05);
+	}
+
+	@Test
+	public void chargingTimeReachesTargetSoc() {
+		Random random = new Random(44);
+		for (int i = 0; i < SESSIONS; i++) {
+			float p_max = P_MAX[random.nextInt(P_MAX.length)];
+			Battery battery = randomBattery(random);
+			float target = battery.getSoc() + random.nextFloat() * (100 - battery.getSoc());
+			ChargingCurve curve = ChargingCurve.of(p_max, battery);
+			long chargingTime = curve.getChargingTime(target, battery.getE_bat(), battery);
+			battery.charge(curve.getChargedEnergy(chargingTime, battery));
+			assertEquals("session " + i, target, battery.getSoc(), 0.01);
+		}
+	}
+
+	@Test
+	public void constantPowerWithoutDecay() {
+		//a large battery at a household socket: p_max is below p_ls
+		float p_max = 2300;
+		Battery battery = new Battery(200, 400, 3.6f, 4.2f, 0.9f, 10);
+		assertTrue(!hasDecay(p_max, battery));
+		ChargingCurve curve = ChargingCurve.of(p_max, battery);
+		assertEquals(p_max, curve.getPower(battery.getEBatMax() * 0.99f, battery), 1e-3);
+		long oneHour = 3600 * 1000;
+		assertEquals(p_max * 3600, curve.getChargedEnergy(oneHour, battery), p_max * 3600 * 1e-4);
+		float remaining = (battery.getEBatMax() - battery.getE_bat()) / battery.getEta_l();
+		assertEquals(remaining, curve.getChargedEnergy(1000 * oneHour, battery), remaining * 1e-4);
+		assertEquals(Long.MAX_VALUE, curve.getChargingTime(100.5f, battery.getE_bat(), battery));
+	}
+
+	/**
+	 * Creates a battery of one of {@value #BATTERY_TYPES} random battery types with a random SOC. The number of types is limited,
+	 * as curves are shared per type and never released.
+	 */
+	private static Battery randomBattery(Random random) {
+		Random type = new Random(random.nextInt(BATTERY_TYPES));
+		float e_bat_max = 10 + type.nextFloat() * 90;
+		float u_cell_n = 3.5f + type.nextFloat() * 0.2f;
+		float u_cell_ls = 4.1f + type.nextFloat() * 0.1f;
+		float eta_l = 0.85f + type.nextFloat() * 0.1f;
+		return new Battery(e_bat_max, 355, u_cell_n, u_cell_ls, eta_l, random.nextFloat() * 100);
+	}
+
+	private static Battery copy(Battery b) {
+		return new Battery((float) Units.JToKWh(b.getEBatMax()), b.getU_bat(), b.getU_cell_n(), b.getU_cell_ls(), b.getEta_l(), b.getSoc());
+	}
+
+	private static double p_ls(float p_max, Battery battery) {
+		double i_ls = 0.006 / 1000 * p_max + 0.008;
+		return battery.getU_cell_ls() / battery.getU_cell_n() * i_ls * Units.JToKWh(battery.getEBatMax()) * 1000;
+	}
+
+	private static boolean hasDecay(float p_max, Battery battery) {
+		return p_max > p_ls(p_max, battery);
+	}
+
+	/**
+	 * Closed form solution of the UI-charging model, see {@link ChargingCurve}.
+	 *
+	 * @return SOC in % after charging the given time
+	 */
+	private static double closedFormSoc(float p_max, Battery battery, long chargingTime) {
+		double a = battery.getEta_l() * p_max / battery.getEBatMax();
+		double s = -0.008 / 1000 * p_max + 0.83;
+		double k_l = (1 - s) / Math.log(p_max / p_ls(p_max, battery));
+		if (k_l <= 0) s = 1;
+		double soc = battery.getE_bat() / battery.getEBatMax();
+		double t = chargingTime / 1000d;
+		if (soc < s) {
+			double untilDecay = (s - soc) / a;
+			if (t <= untilDecay) return Math.min(1, soc + a * t) * 100;
+			t -= untilDecay;
+			soc = s;
+		}
+		if (s >= 1) return 100;
+		//dSOC/dt = a * exp((s - SOC) / k_l)  =>  SOC(t) = s + k_l * ln(exp((SOC_0 - s) / k_l) + a * t / k_l)
+		return Math.min(1, s + k_l * Math.log(Math.exp((soc - s) / k_l) + a * t / k_l)) * 100;
+	}
+
+	/**
+	 * Numeric step of the UI-charging model as calculated by ChargingPoint before the charging curves were tabulated.
+	 *
+	 * @param timestep charging time in ms
+	 * @param p_max    maximum power supported by charging point an vehicle
+	 * @param battery  vehicle's battery
+	 * @return amount of energy the car was charged in J
+	 */
+	private static float getEnergyIU(long timestep, float p_max, Battery battery) {
+		float energy;
+		float soc = battery.getSoc() / 100f;
+		float u_cell_n = battery.getU_cell_n();
+		float u_cell_ls = battery.getU_cell_ls();
+		float e_bat_max = battery.getEBatMax();
+		float e_bat = battery.getE_bat();
+		float eta_l = battery.getEta_l();
+		float i_ls = 0.006f / 1000f * p_max + 0.008f;
+		float s = -0.008f / 1000f * p_max + 0.83f;
+		if (soc < s) {
+			energy = p_max * timestep / 1000f;
+		} else {
+			float p_ls = (u_cell_ls / u_cell_n * i_ls * (float) Units.JToKWh(e_bat_max)) * 1000f;
+			float k_l = (float) ((1 - s) / Math.log(p_max / p_ls));
+			float p = (float) (p_max * Math.exp((s - soc) / k_l));
+			energy = p * timestep / 1000f;
+		}
+		float newCharge = e_bat + energy * eta_l;
+		if (newCharge > e_bat_max) {
+			energy = (e_bat_max - e_bat) / eta_l;
+		}
+		return energy;
+	}
+}